@@ -0,0 +1,47 @@
+package xyz.prohinig.webservice.benchmark;
+
+import xyz.prohinig.webservice.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data, the same seed always produces the same carts.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static Burger randomBurger(Random random, Integer id) {
+        PattyType pattyType = random.nextBoolean() ? PattyType.MEAT : PattyType.VEGGIE;
+        Ingredient cheese = random.nextBoolean() ? Cheese.INSTANCE : null;
+        Ingredient salad = random.nextBoolean() ? Salad.INSTANCE : null;
+        Ingredient tomato = random.nextBoolean() ? Tomato.INSTANCE : null;
+
+        return id == null ? new Burger(pattyType, cheese, salad, tomato) : new Burger(id, pattyType, cheese, salad, tomato);
+    }
+
+    /**
+     * Carts with ids starting at 1, each holding one to three burgers.
+     */
+    static List<Cart> carts(int cartCount) {
+        Random random = new Random(SEED);
+        List<Cart> carts = new ArrayList<>(cartCount);
+        int burgerId = 1;
+
+        for (int cartId = 1; cartId <= cartCount; cartId++) {
+            Cart cart = new Cart(cartId, random.nextInt(4) == 0);
+            int burgerCount = 1 + random.nextInt(3);
+            for (int i = 0; i < burgerCount; i++) {
+                cart.addBurger(randomBurger(random, burgerId++));
+            }
+            carts.add(cart);
+        }
+
+        return carts;
+    }
+}
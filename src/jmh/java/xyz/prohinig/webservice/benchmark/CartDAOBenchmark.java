@@ -0,0 +1,129 @@
+package xyz.prohinig.webservice.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.database.DatabaseConnection;
+import xyz.prohinig.webservice.database.DatabaseSchema;
+import xyz.prohinig.webservice.database.InMemoryCartDAO;
+import xyz.prohinig.webservice.database.InMemoryStore;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cart read paths of both storage engines, result set hydration against an in-memory H2 database in PostgreSQL
+ * mode and the {@link InMemoryStore}. The cart cache is disabled so every call reads from the storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CartDAOBenchmark {
+
+    private static final int CART_COUNT = 1024;
+
+    @Param({"database", "memory"})
+    private String engine;
+
+    private DatabaseConnection databaseConnection;
+    private CartStorage cartDAO;
+    private int cartId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        StatementRegistry statementRegistry = new StatementRegistry();
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        if (engine.equals("memory")) {
+            cartDAO = new InMemoryCartDAO(new InMemoryStore(null, Duration.ZERO), statementRegistry, cartCache);
+            insertCarts(cartDAO, BenchmarkData.carts(CART_COUNT));
+        } else {
+            databaseConnection = createDatabase("benchmark", 2, CART_COUNT);
+            cartDAO = new CartDAO(databaseConnection, statementRegistry, cartCache, new ActiveCartRegistry());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (databaseConnection != null) {
+            databaseConnection.close();
+        }
+    }
+
+    @Benchmark
+    public Cart getCartByID() {
+        cartId = cartId % CART_COUNT + 1;
+        return cartDAO.getCartByID(cartId);
+    }
+
+    @Benchmark
+    public List<CartSummary> getCartSummariesPage() {
+        return cartDAO.getCartSummaries(0, 100);
+    }
+
+    /**
+     * An in-memory database holding {@code cartCount} carts with ids starting at 1.
+     */
+    static DatabaseConnection createDatabase(String name, int maximumPoolSize, int cartCount) throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(maximumPoolSize);
+        DatabaseConnection databaseConnection = new DatabaseConnection(new HikariDataSource(config));
+
+        new DatabaseSchema(databaseConnection).migrate();
+        try (Connection connection = databaseConnection.getConnection()) {
+            insertCarts(connection, BenchmarkData.carts(cartCount));
+        }
+
+        return databaseConnection;
+    }
+
+    // the store hands out the same ids as the database, in the order the carts are inserted
+    private static void insertCarts(CartStorage cartStorage, List<Cart> carts) {
+        for (Cart cart : carts) {
+            Cart newCart = new Cart();
+            cart.getBurgers().forEach(burger -> newCart.addBurger(new Burger(burger.getPattyType(), burger.getIngredients())));
+            if (cart.isCheckedOut()) {
+                newCart.checkout();
+            }
+            cartStorage.update(newCart);
+        }
+    }
+
+    private static void insertCarts(Connection connection, List<Cart> carts) throws SQLException {
+        try (PreparedStatement insertCart = connection.prepareStatement("insert into cart (id, active) values (?, ?);");
+             PreparedStatement insertBurger = connection.prepareStatement(
+                     "insert into burger (patty_type, cheese, salad, tomato, cart_id) values (?, ?, ?, ?, ?);")) {
+            for (Cart cart : carts) {
+                insertCart.setInt(1, cart.getId());
+                insertCart.setBoolean(2, !cart.isCheckedOut());
+                insertCart.addBatch();
+
+                for (Burger burger : cart.getBurgers()) {
+                    insertBurger.setInt(1, burger.getPattyType().getCode());
+                    insertBurger.setBoolean(2, burger.hasIngredient(Burger.CHEESE));
+                    insertBurger.setBoolean(3, burger.hasIngredient(Burger.SALAD));
+                    insertBurger.setBoolean(4, burger.hasIngredient(Burger.TOMATO));
+                    insertBurger.setInt(5, cart.getId());
+                    insertBurger.addBatch();
+                }
+            }
+            insertCart.executeBatch();
+            insertBurger.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package xyz.prohinig.webservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CartTotalBenchmark {
+
+    private Cart[] carts;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        carts = BenchmarkData.carts(1024).toArray(new Cart[0]);
+    }
+
+    @Benchmark
+    public double getTotal() {
+        index = (index + 1) & 1023;
+        return carts[index].getTotal();
+    }
+}
@@ -0,0 +1,57 @@
+package xyz.prohinig.webservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.CartDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MapperBenchmark {
+
+    private final BurgerMapper burgerMapper = new BurgerMapper();
+    private final CartMapper cartMapper = new CartMapper();
+
+    private Cart[] carts;
+    private Burger[] burgers;
+    private BurgerDto[] burgerDtos;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        List<Cart> cartList = BenchmarkData.carts(1024);
+        carts = cartList.toArray(new Cart[0]);
+        burgers = cartList.stream().map(cart -> cart.getBurgers().get(0)).toArray(Burger[]::new);
+        burgerDtos = cartList.stream().map(cart -> burgerMapper.toBurgerDto(cart.getBurgers().get(0))).toArray(BurgerDto[]::new);
+    }
+
+    private int next() {
+        index = (index + 1) & 1023;
+        return index;
+    }
+
+    @Benchmark
+    public BurgerDto toBurgerDto() {
+        return burgerMapper.toBurgerDto(burgers[next()]);
+    }
+
+    @Benchmark
+    public Burger fromBurgerDto() {
+        return burgerMapper.fromBurgerDto(burgerDtos[next()]);
+    }
+
+    @Benchmark
+    public CartDto toCartDto() {
+        return cartMapper.toCartDto(carts[next()]);
+    }
+}
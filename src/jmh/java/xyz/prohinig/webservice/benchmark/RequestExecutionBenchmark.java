@@ -0,0 +1,107 @@
+package xyz.prohinig.webservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.prohinig.webservice.BoundedRequestExecution;
+import xyz.prohinig.webservice.VirtualThreads;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.DatabaseConnection;
+import xyz.prohinig.webservice.database.StatementRegistry;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput of {@value #CONCURRENT_REQUESTS} concurrent cart reads on Tomcat's default worker pool of 200 platform
+ * threads, compared to the same pool handing the database work to the {@link BoundedRequestExecution} of
+ * {@value #POOL_SIZE} threads. Every request spends {@value #CLIENT_IO_MICROS}us on client I/O outside the database,
+ * half before and half after the cart is read, the database itself is bounded by a pool of {@value #POOL_SIZE}
+ * connections. One virtual thread per request is measured with {@code -p threads=virtual} on a Java 21 runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestExecutionBenchmark {
+
+    private static final int CART_COUNT = 1024;
+    private static final int POOL_SIZE = 10;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int CONCURRENT_REQUESTS = 2000;
+    private static final long CLIENT_IO_MICROS = 1000;
+
+    @Param({"platform", "bounded"})
+    private String threads;
+
+    private DatabaseConnection databaseConnection;
+    private CartDAO cartDAO;
+    private ExecutorService workers;
+    // null if the cart is read on the worker
+    private ExecutorService databaseExecutor;
+
+    @Setup
+    public void setUp() throws SQLException {
+        workers = "virtual".equals(threads) ? VirtualThreads.newExecutor() : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        databaseExecutor = "bounded".equals(threads) ? BoundedRequestExecution.newExecutor(POOL_SIZE) : null;
+        databaseConnection = CartDAOBenchmark.createDatabase("requests-" + threads, POOL_SIZE, CART_COUNT);
+        cartDAO = new CartDAO(databaseConnection, new StatementRegistry(), new CartCache(0, Duration.ZERO), new ActiveCartRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        workers.shutdownNow();
+        if (databaseExecutor != null) {
+            databaseExecutor.shutdownNow();
+        }
+        databaseConnection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public int handleRequests() {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int request = 0; request < CONCURRENT_REQUESTS; request++) {
+            responses.add(handleRequest(request % CART_COUNT + 1));
+        }
+
+        int burgerCount = 0;
+        for (CompletableFuture<Integer> response : responses) {
+            burgerCount += response.join();
+        }
+        return burgerCount;
+    }
+
+    private CompletableFuture<Integer> handleRequest(int cartId) {
+        if (databaseExecutor == null) {
+            return CompletableFuture.supplyAsync(() -> {
+                clientIo();
+                int burgerCount = readCart(cartId);
+                clientIo();
+                return burgerCount;
+            }, workers);
+        }
+
+        // the worker is released while the cart is read, a worker picks the request up again to answer it
+        return CompletableFuture.runAsync(RequestExecutionBenchmark::clientIo, workers)
+                .thenApplyAsync(ignored -> readCart(cartId), databaseExecutor)
+                .thenApplyAsync(burgerCount -> {
+                    clientIo();
+                    return burgerCount;
+                }, workers);
+    }
+
+    private int readCart(int cartId) {
+        return cartDAO.getCartByID(cartId).getBurgers().size();
+    }
+
+    private static void clientIo() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(CLIENT_IO_MICROS / 2));
+    }
+}
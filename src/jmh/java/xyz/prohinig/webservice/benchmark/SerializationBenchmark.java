@@ -0,0 +1,59 @@
+package xyz.prohinig.webservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.BurgersDto;
+import xyz.prohinig.webservice.dto.CartDto;
+import xyz.prohinig.webservice.dto.CartsDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    public int cartCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CartsDto cartsDto;
+    private BurgersDto burgersDto;
+
+    @Setup
+    public void setUp() {
+        List<Cart> carts = BenchmarkData.carts(cartCount);
+
+        CartMapper cartMapper = new CartMapper();
+        List<CartDto> cartDtos = carts.stream().map(cartMapper::toCartDto).collect(Collectors.toList());
+        cartsDto = new CartsDto(cartDtos.size(), cartDtos, null);
+
+        BurgerMapper burgerMapper = new BurgerMapper();
+        List<BurgerDto> burgerDtos = carts.stream()
+                .flatMap(cart -> cart.getBurgers().stream())
+                .map(burgerMapper::toBurgerDto)
+                .collect(Collectors.toList());
+        burgersDto = new BurgersDto(burgerDtos.size(), burgerDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeCarts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartsDto);
+    }
+
+    @Benchmark
+    public byte[] serializeBurgers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(burgersDto);
+    }
+}
@@ -0,0 +1,163 @@
+package xyz.prohinig.webservice.loadtest;
+
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the requests of the load test to the service. Carts are picked from the {@link CartPool}, which follows the
+ * carts created and deleted by the load test.
+ */
+final class CartClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int PAGE_SIZE = 100;
+    private static final String[] PATTY_TYPES = {"MEAT", "VEGGIE"};
+    private static final String[] INGREDIENTS = {"CHEESE", "SALAD", "TOMATO"};
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final CartStorage cartStorage;
+    private final CartPool cartPool;
+    private final Map<Integer, String> burgerETags = new ConcurrentHashMap<>();
+
+    CartClient(HttpClient httpClient, URI baseUri, CartStorage cartStorage, CartPool cartPool) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.cartStorage = cartStorage;
+        this.cartPool = cartPool;
+    }
+
+    /**
+     * Picks the cart and the parameters of the request. A request for a cart when there is none creates one.
+     */
+    Request prepare(Operation operation, SplittableRandom random) {
+        if (operation == Operation.CREATE_CART) {
+            return new Request(operation, 0, null);
+        }
+        if (operation == Operation.LIST_CARTS) {
+            return new Request(operation, random.nextInt(cartPool.getHighestCartId() + 1), null);
+        }
+
+        Integer cartId = cartPool.pick(random);
+        if (cartId == null) {
+            return new Request(Operation.CREATE_CART, 0, null);
+        }
+
+        switch (operation) {
+            case ADD_BURGER:
+                return new Request(operation, cartId, randomBurger(random));
+            case DELETE_CART:
+                // no other request picks the cart from now on
+                cartPool.remove(cartId);
+                return new Request(operation, cartId, null);
+            default:
+                return new Request(operation, cartId, null);
+        }
+    }
+
+    /**
+     * @return the status of the response, {@link LoadReport#NO_RESPONSE} if there was none
+     */
+    int send(Request request) {
+        try {
+            switch (request.operation) {
+                case CREATE_CART:
+                    return createCart();
+                case ADD_BURGER:
+                    return send(HttpRequest.newBuilder(uri("/carts/" + request.cartId + "/burgers"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(request.body)));
+                case LIST_CARTS:
+                    return send(HttpRequest.newBuilder(uri("/carts?limit=" + PAGE_SIZE + "&after=" + request.cartId))
+                            .header("Accept", "application/json"));
+                case GET_CART:
+                    return send(HttpRequest.newBuilder(uri("/carts/" + request.cartId)));
+                case POLL_BURGERS:
+                    return pollBurgers(request.cartId);
+                case DELETE_CART:
+                    burgerETags.remove(request.cartId);
+                    return send(HttpRequest.newBuilder(uri("/carts/" + request.cartId)).DELETE());
+                default:
+                    throw new IllegalArgumentException("unknown operation " + request.operation);
+            }
+        } catch (IOException e) {
+            return LoadReport.NO_RESPONSE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LoadReport.NO_RESPONSE;
+        }
+    }
+
+    // the service has no endpoint that creates carts, they are written through its storage
+    private int createCart() {
+        Cart cart = new Cart();
+        if (!cartStorage.update(cart)) {
+            return 500;
+        }
+        cartPool.add(cart.getId());
+        return 201;
+    }
+
+    private int pollBurgers(int cartId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/carts/" + cartId + "/burgers"));
+        String etag = burgerETags.get(cartId);
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+
+        HttpResponse<Void> response = httpClient.send(request.timeout(REQUEST_TIMEOUT).build(),
+                HttpResponse.BodyHandlers.discarding());
+        response.headers().firstValue("ETag").ifPresent(newETag -> burgerETags.put(cartId, newETag));
+        return response.statusCode();
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.timeout(REQUEST_TIMEOUT).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private URI uri(String pathAndQuery) {
+        return baseUri.resolve(pathAndQuery);
+    }
+
+    private static String randomBurger(SplittableRandom random) {
+        StringBuilder burger = new StringBuilder("{\"pattyType\":\"")
+                .append(PATTY_TYPES[random.nextInt(PATTY_TYPES.length)])
+                .append("\",\"ingredients\":[");
+        boolean first = true;
+        for (String ingredient : INGREDIENTS) {
+            if (random.nextBoolean()) {
+                burger.append(first ? "" : ",").append('"').append(ingredient).append('"');
+                first = false;
+            }
+        }
+        return burger.append("]}").toString();
+    }
+
+    static final class Request {
+        private final Operation operation;
+        // the cursor of a page of carts
+        private final int cartId;
+        private final String body;
+
+        private Request(Operation operation, int cartId, String body) {
+            this.operation = operation;
+            this.cartId = cartId;
+            this.body = body;
+        }
+
+        Operation getOperation() {
+            return operation;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package xyz.prohinig.webservice.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Ids of the carts the load test created and has not deleted, to pick the carts of its requests from.
+ */
+final class CartPool {
+
+    private int[] cartIds = new int[1024];
+    private int size;
+    private final Map<Integer, Integer> indexByCartId = new HashMap<>();
+    private int highestCartId;
+
+    synchronized void add(int cartId) {
+        if (size == cartIds.length) {
+            int[] grown = new int[size * 2];
+            System.arraycopy(cartIds, 0, grown, 0, size);
+            cartIds = grown;
+        }
+        indexByCartId.put(cartId, size);
+        cartIds[size++] = cartId;
+        highestCartId = Math.max(highestCartId, cartId);
+    }
+
+    synchronized void remove(int cartId) {
+        Integer index = indexByCartId.remove(cartId);
+        if (index == null) {
+            return;
+        }
+
+        // the last cart takes the place of the removed one
+        int lastCartId = cartIds[--size];
+        if (lastCartId != cartId) {
+            cartIds[index] = lastCartId;
+            indexByCartId.put(lastCartId, index);
+        }
+    }
+
+    /**
+     * @return {@code null} if there are no carts
+     */
+    synchronized Integer pick(SplittableRandom random) {
+        return size == 0 ? null : cartIds[random.nextInt(size)];
+    }
+
+    synchronized int getHighestCartId() {
+        return highestCartId;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
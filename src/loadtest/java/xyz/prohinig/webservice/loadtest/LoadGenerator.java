@@ -0,0 +1,98 @@
+package xyz.prohinig.webservice.loadtest;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the workload model of a {@link LoadProfile} for a while and records every request in a {@link LoadReport}.
+ * Requests are started on a schedule and their response time counts from the scheduled start, so a service that
+ * stalls shows the stall in every request that had to wait for it, not just in the one that was slow.
+ */
+final class LoadGenerator {
+
+    private final LoadProfile profile;
+    private final CartClient cartClient;
+
+    LoadGenerator(LoadProfile profile, CartClient cartClient) {
+        this.profile = profile;
+        this.cartClient = cartClient;
+    }
+
+    /**
+     * @param phase distinguishes the random sequences of the phases of a run
+     * @return how long it took until the last response
+     */
+    long run(Duration duration, LoadReport report, int phase) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        SplittableRandom random = new SplittableRandom(profile.getSeed() + phase);
+
+        if (profile.getModel() == LoadProfile.Model.CLOSED) {
+            runClosed(end, random, report);
+        } else {
+            runOpen(start, end, random, report);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // every user sends a request every pacing interval, right after the previous response if it is behind
+    private void runClosed(long end, SplittableRandom random, LoadReport report) throws InterruptedException {
+        long pacingNanos = profile.getPacing().toNanos();
+        ExecutorService users = Executors.newFixedThreadPool(profile.getUsers());
+        for (int user = 0; user < profile.getUsers(); user++) {
+            SplittableRandom userRandom = random.split();
+            users.execute(() -> {
+                long intendedStart = System.nanoTime();
+                while (intendedStart < end) {
+                    if (pacingNanos > 0) {
+                        parkUntil(intendedStart);
+                    }
+                    send(cartClient.prepare(profile.nextOperation(userRandom), userRandom), intendedStart, report);
+                    intendedStart = pacingNanos > 0 ? intendedStart + pacingNanos : System.nanoTime();
+                }
+            });
+        }
+        awaitTermination(users);
+    }
+
+    // requests start at a fixed rate, the ones that find all workers busy wait and their waiting counts
+    private void runOpen(long start, long end, SplittableRandom random, LoadReport report) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / profile.getRatePerSecond();
+        ExecutorService workers = Executors.newFixedThreadPool(profile.getMaxInFlight());
+        for (long request = 0; ; request++) {
+            long intendedStart = start + request * intervalNanos;
+            if (intendedStart >= end) {
+                break;
+            }
+            parkUntil(intendedStart);
+            CartClient.Request prepared = cartClient.prepare(profile.nextOperation(random), random);
+            workers.execute(() -> send(prepared, intendedStart, report));
+        }
+        awaitTermination(workers);
+    }
+
+    private void send(CartClient.Request request, long intendedStart, LoadReport report) {
+        long start = System.nanoTime();
+        int status = cartClient.send(request);
+        report.record(request.getOperation(), intendedStart, start, System.nanoTime(), status);
+    }
+
+    private static void parkUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+            throw new IllegalStateException("requests still running a minute after the end of the run");
+        }
+    }
+}
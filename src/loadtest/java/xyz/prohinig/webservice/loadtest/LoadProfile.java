@@ -0,0 +1,197 @@
+package xyz.prohinig.webservice.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * How a load test runs: the workload model, how long, and the mix of operations. Read from
+ * {@code profiles/<name>.properties} on the classpath or from a file, single settings can be overridden.
+ */
+final class LoadProfile {
+
+    enum Model {
+        // a fixed number of users, each waits for its response before the next request
+        CLOSED,
+        // requests arrive at a fixed rate, independent of the responses
+        OPEN
+    }
+
+    private final String name;
+    private final Model model;
+    private final int users;
+    private final Duration pacing;
+    private final int ratePerSecond;
+    private final int maxInFlight;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long seed;
+    private final int seedCarts;
+    private final String storageEngine;
+    private final Map<Operation, Integer> mix;
+    private final Operation[] operationsByWeight;
+
+    private LoadProfile(String name, Properties properties) {
+        this.name = name;
+        this.model = Model.valueOf(properties.getProperty("model", "closed").toUpperCase());
+        this.users = intProperty(properties, "users", 16);
+        this.pacing = Duration.ofMillis(intProperty(properties, "pacing-ms", 0));
+        this.ratePerSecond = intProperty(properties, "rate-per-second", 100);
+        this.maxInFlight = intProperty(properties, "max-in-flight", 64);
+        this.warmup = Duration.ofSeconds(intProperty(properties, "warmup-s", 5));
+        this.duration = Duration.ofSeconds(intProperty(properties, "duration-s", 30));
+        this.seed = Long.parseLong(properties.getProperty("seed", "42"));
+        this.seedCarts = intProperty(properties, "seed-carts", 1000);
+        this.storageEngine = properties.getProperty("storage-engine", "database");
+        this.mix = parseMix(properties.getProperty("mix", "get-cart:1"));
+
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.operationsByWeight = new Operation[totalWeight];
+        int index = 0;
+        for (Map.Entry<Operation, Integer> operation : mix.entrySet()) {
+            for (int i = 0; i < operation.getValue(); i++) {
+                operationsByWeight[index++] = operation.getKey();
+            }
+        }
+    }
+
+    /**
+     * @param profile name of a profile on the classpath or path of a properties file
+     * @param overrides settings that replace the ones of the profile
+     */
+    static LoadProfile load(String profile, Map<String, String> overrides) {
+        Properties properties = new Properties();
+        String name;
+        try {
+            Path path = Path.of(profile);
+            if (Files.isRegularFile(path)) {
+                name = path.getFileName().toString().replaceFirst("\\.properties$", "");
+                try (InputStream input = Files.newInputStream(path)) {
+                    properties.load(input);
+                }
+            } else {
+                name = profile;
+                try (InputStream input = LoadProfile.class.getResourceAsStream("/profiles/" + profile + ".properties")) {
+                    if (input == null) {
+                        throw new IllegalArgumentException("no profile " + profile);
+                    }
+                    properties.load(input);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        properties.putAll(overrides);
+        return new LoadProfile(name, properties);
+    }
+
+    /**
+     * The operation of the next request, the sequence only depends on the seed of the random.
+     */
+    Operation nextOperation(SplittableRandom random) {
+        return operationsByWeight[random.nextInt(operationsByWeight.length)];
+    }
+
+    /**
+     * The settings as they go into the report, in a fixed order.
+     */
+    Map<String, String> describe() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("profile", name);
+        settings.put("model", model.name().toLowerCase());
+        if (model == Model.CLOSED) {
+            settings.put("users", String.valueOf(users));
+            settings.put("pacing-ms", String.valueOf(pacing.toMillis()));
+        } else {
+            settings.put("rate-per-second", String.valueOf(ratePerSecond));
+            settings.put("max-in-flight", String.valueOf(maxInFlight));
+        }
+        settings.put("warmup-s", String.valueOf(warmup.toSeconds()));
+        settings.put("duration-s", String.valueOf(duration.toSeconds()));
+        settings.put("seed", String.valueOf(seed));
+        settings.put("seed-carts", String.valueOf(seedCarts));
+        settings.put("storage-engine", storageEngine);
+        StringBuilder mixSetting = new StringBuilder();
+        mix.forEach((operation, weight) -> mixSetting.append(mixSetting.length() == 0 ? "" : ",")
+                .append(operation.getName()).append(':').append(weight));
+        settings.put("mix", mixSetting.toString());
+        return settings;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Model getModel() {
+        return model;
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    Duration getPacing() {
+        return pacing;
+    }
+
+    int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getSeedCarts() {
+        return seedCarts;
+    }
+
+    String getStorageEngine() {
+        return storageEngine;
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    // operation:weight pairs in the order of the operations, so the same mix always gives the same sequence
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] operationAndWeight = entry.trim().split(":");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("mix entries are operation:weight, got " + entry);
+            }
+            int weight = Integer.parseInt(operationAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.ofName(operationAndWeight[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("mix has no operations");
+        }
+        return weights;
+    }
+}
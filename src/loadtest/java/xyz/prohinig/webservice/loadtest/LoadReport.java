@@ -0,0 +1,163 @@
+package xyz.prohinig.webservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and response statuses per operation. The response time of a request counts from the time it was meant
+ * to start, so time spent waiting behind slow requests is not lost; the service time counts from when it was sent.
+ * <p>
+ * The report has one value per line in a fixed order, so the reports of two builds can be compared with diff.
+ */
+final class LoadReport {
+
+    // status of requests that got no response
+    static final int NO_RESPONSE = 0;
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<Operation, OperationResults> results = new EnumMap<>(Operation.class);
+
+    LoadReport() {
+        for (Operation operation : Operation.values()) {
+            results.put(operation, new OperationResults());
+        }
+    }
+
+    /**
+     * @param intendedStartNanos when the request should have started according to the workload model
+     * @param startNanos when it was sent
+     */
+    void record(Operation operation, long intendedStartNanos, long startNanos, long endNanos, int status) {
+        OperationResults operationResults = results.get(operation);
+        operationResults.responseTime.recordValue(clamp(endNanos - intendedStartNanos));
+        operationResults.serviceTime.recordValue(clamp(endNanos - startNanos));
+        operationResults.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param settings the settings of the profile, they head the report
+     * @param elapsedNanos how long the measured part of the run took
+     */
+    List<String> toLines(Map<String, String> settings, long elapsedNanos) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# load test report, compare two with diff or with the baseline setting");
+        settings.forEach((key, value) -> lines.add(key + "=" + value));
+
+        long totalCount = 0;
+        for (Map.Entry<Operation, OperationResults> operation : results.entrySet()) {
+            Histogram responseTime = operation.getValue().responseTime.getIntervalHistogram();
+            Histogram serviceTime = operation.getValue().serviceTime.getIntervalHistogram();
+            if (responseTime.getTotalCount() == 0) {
+                continue;
+            }
+            totalCount += responseTime.getTotalCount();
+
+            String prefix = operation.getKey().getName() + ".";
+            lines.add(prefix + "count=" + responseTime.getTotalCount());
+            new TreeMap<>(operation.getValue().statuses).forEach((status, count) ->
+                    lines.add(prefix + "status." + (status == NO_RESPONSE ? "none" : status) + "=" + count.sum()));
+            addLatencies(lines, prefix + "response-time.", responseTime);
+            addLatencies(lines, prefix + "service-time.", serviceTime);
+        }
+
+        lines.add("total.count=" + totalCount);
+        lines.add("total.throughput-per-second=" + Math.round(totalCount / (elapsedNanos / 1e9)));
+        return lines;
+    }
+
+    /**
+     * The values that differ from the baseline report, numbers with their relative change.
+     */
+    static List<String> compare(List<String> baseline, List<String> current) {
+        Map<String, String> baselineValues = toValues(baseline);
+        Map<String, String> currentValues = toValues(current);
+
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, String> value : currentValues.entrySet()) {
+            String baselineValue = baselineValues.get(value.getKey());
+            if (baselineValue == null) {
+                differences.add(value.getKey() + ": new " + value.getValue());
+            } else if (!baselineValue.equals(value.getValue())) {
+                differences.add(value.getKey() + ": " + baselineValue + " -> " + value.getValue()
+                        + relativeChange(baselineValue, value.getValue()));
+            }
+        }
+        for (String key : baselineValues.keySet()) {
+            if (!currentValues.containsKey(key)) {
+                differences.add(key + ": gone, was " + baselineValues.get(key));
+            }
+        }
+        return differences;
+    }
+
+    static List<String> read(Path report) {
+        try {
+            return Files.readAllLines(report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addLatencies(List<String> lines, String prefix, Histogram histogram) {
+        for (double percentile : PERCENTILES) {
+            String name = percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+            lines.add(prefix + "p" + name + "-us=" + toMicros(histogram.getValueAtPercentile(percentile)));
+        }
+        lines.add(prefix + "max-us=" + toMicros(histogram.getMaxValue()));
+    }
+
+    private static Map<String, String> toValues(List<String> lines) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String line : lines) {
+            int separator = line.indexOf('=');
+            if (!line.startsWith("#") && separator > 0) {
+                values.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        return values;
+    }
+
+    private static String relativeChange(String baselineValue, String currentValue) {
+        try {
+            double baseline = Double.parseDouble(baselineValue);
+            double current = Double.parseDouble(currentValue);
+            if (baseline == 0) {
+                return "";
+            }
+            return String.format(" (%+.1f%%)", (current - baseline) / baseline * 100);
+        } catch (NumberFormatException e) {
+            return "";
+        }
+    }
+
+    private static long clamp(long nanos) {
+        return Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static final class OperationResults {
+        private final Recorder responseTime = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+}
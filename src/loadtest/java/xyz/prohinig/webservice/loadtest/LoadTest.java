@@ -0,0 +1,123 @@
+package xyz.prohinig.webservice.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import xyz.prohinig.webservice.WebserviceApplication;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.model.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Starts the service on a random port, on an in-memory H2 database in PostgreSQL mode standing in for Postgres, which
+ * the service migrates on startup, and runs a load profile against it. Arguments are {@code key=value} settings:
+ * {@code profile}, {@code report} (the path the report is written to), {@code baseline} (a report to compare with)
+ * and any setting of the profile.
+ */
+public final class LoadTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String DATABASE_USERNAME = "sa";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parseSettings(args);
+        String profileName = settings.getOrDefault("profile", "browse");
+        String reportPath = settings.getOrDefault("report", "target/loadtest-" + profileName + ".txt");
+        String baselinePath = settings.getOrDefault("baseline", "");
+        settings.remove("profile");
+        settings.remove("report");
+        settings.remove("baseline");
+        LoadProfile profile = LoadProfile.load(profileName, settings);
+
+        try (ConfigurableApplicationContext context = startService(profile)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            CartPool cartPool = new CartPool();
+            CartStorage cartStorage = context.getBean(CartStorage.class);
+            seedCarts(cartStorage, cartPool, profile);
+
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            CartClient cartClient = new CartClient(httpClient, URI.create("http://localhost:" + port), cartStorage, cartPool);
+            LoadGenerator loadGenerator = new LoadGenerator(profile, cartClient);
+
+            // warms up the JIT, the caches and the connection pools, nothing of it is reported
+            loadGenerator.run(profile.getWarmup(), new LoadReport(), 0);
+            LoadReport report = new LoadReport();
+            long elapsedNanos = loadGenerator.run(profile.getDuration(), report, 1);
+
+            List<String> lines = report.toLines(profile.describe(), elapsedNanos);
+            Path reportFile = Path.of(reportPath);
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            Files.write(reportFile, lines);
+            lines.forEach(System.out::println);
+            System.out.println("report written to " + reportFile.toAbsolutePath());
+
+            if (!baselinePath.isBlank()) {
+                System.out.println("changes from " + baselinePath + ":");
+                LoadReport.compare(LoadReport.read(Path.of(baselinePath)), lines)
+                        .forEach(difference -> System.out.println("  " + difference));
+            }
+        }
+    }
+
+    // key=value pairs, several of them can be passed in one argument separated by whitespace
+    private static Map<String, String> parseSettings(String[] args) {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            for (String setting : arg.trim().split("\\s+")) {
+                int separator = setting.indexOf('=');
+                if (separator > 0) {
+                    settings.put(setting.substring(0, separator), setting.substring(separator + 1));
+                } else if (!setting.isEmpty()) {
+                    throw new IllegalArgumentException("settings are key=value, got " + setting);
+                }
+            }
+        }
+        return settings;
+    }
+
+    // command line arguments, application.properties would take precedence over default properties
+    private static ConfigurableApplicationContext startService(LoadProfile profile) {
+        return new SpringApplicationBuilder(WebserviceApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--webservice.database.url=" + DATABASE_URL,
+                "--webservice.database.username=" + DATABASE_USERNAME,
+                "--webservice.database.password=",
+                "--webservice.storage.engine=" + profile.getStorageEngine());
+    }
+
+    // the same carts for the same seed, each with up to three burgers
+    private static void seedCarts(CartStorage cartStorage, CartPool cartPool, LoadProfile profile) {
+        Random random = new Random(profile.getSeed());
+        for (int i = 0; i < profile.getSeedCarts(); i++) {
+            Cart cart = new Cart();
+            int burgerCount = random.nextInt(Cart.MAX_BURGERS + 1);
+            for (int burger = 0; burger < burgerCount; burger++) {
+                cart.addBurger(new Burger(random.nextBoolean() ? PattyType.MEAT : PattyType.VEGGIE,
+                        random.nextInt(Burger.INGREDIENT_MASK_COUNT)));
+            }
+            if (!cartStorage.update(cart)) {
+                throw new IllegalStateException("could not seed cart " + i);
+            }
+            cartPool.add(cart.getId());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package xyz.prohinig.webservice.loadtest;
+
+/**
+ * What a request of the load test does, named as in the mix of a profile.
+ */
+enum Operation {
+    // through the storage of the service, it has no endpoint that creates carts
+    CREATE_CART("create-cart"),
+    // POST /carts/{id}/burgers
+    ADD_BURGER("add-burger"),
+    // GET /carts, one page from a random cursor
+    LIST_CARTS("list-carts"),
+    // GET /carts/{id}
+    GET_CART("get-cart"),
+    // GET /carts/{id}/burgers with the ETag of the previous poll of the cart
+    POLL_BURGERS("poll-burgers"),
+    // DELETE /carts/{id}
+    DELETE_CART("delete-cart");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    static Operation ofName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("unknown operation " + name);
+    }
+}
@@ -1,25 +1,260 @@
 package xyz.prohinig.webservice;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.cache.ResponseCache;
 import xyz.prohinig.webservice.database.BurgerDAO;
+import xyz.prohinig.webservice.database.BurgerStorage;
+import xyz.prohinig.webservice.database.BurgerWriteBehind;
+import xyz.prohinig.webservice.database.CartArchiver;
 import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.database.ConnectionUnavailableException;
+import xyz.prohinig.webservice.database.DatabaseSchema;
 import xyz.prohinig.webservice.database.DatabaseConnection;
+import xyz.prohinig.webservice.database.InMemoryBurgerDAO;
+import xyz.prohinig.webservice.database.InMemoryCartDAO;
+import xyz.prohinig.webservice.database.InMemoryStore;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.database.WriteBehindBurgerDAO;
+import xyz.prohinig.webservice.database.WriteBehindCartDAO;
+import xyz.prohinig.webservice.dto.IngredientDto;
+import xyz.prohinig.webservice.dto.PattyTypeDto;
+import xyz.prohinig.webservice.dto.PricesDto;
 import xyz.prohinig.webservice.mapper.BurgerMapper;
 import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.mapper.PriceTableMapper;
+import xyz.prohinig.webservice.metrics.EndpointMetrics;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 
 @Configuration
 public class AppConfiguration {
 
     @Bean
-    public DatabaseConnection databaseConnection() {
-        return new DatabaseConnection();
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "database", matchIfMissing = true)
+    public DatabaseConnection databaseConnection(@Value("${webservice.database.url}") String url,
+                                                 @Value("${webservice.database.username}") String username,
+                                                 @Value("${webservice.database.password}") String password,
+                                                 @Value("${webservice.database.pool.maximum-size}") int maximumPoolSize,
+                                                 @Value("${webservice.database.pool.minimum-idle}") int minimumIdle,
+                                                 @Value("${webservice.database.pool.connection-timeout-ms}") long connectionTimeoutMs,
+                                                 @Value("${webservice.database.pool.validation-timeout-ms}") long validationTimeoutMs,
+                                                 @Value("${webservice.database.pool.idle-timeout-ms}") long idleTimeoutMs,
+                                                 @Value("${webservice.database.pool.max-lifetime-ms}") long maxLifetimeMs,
+                                                 @Value("${webservice.database.statements.prepare-threshold}") int prepareThreshold,
+                                                 @Value("${webservice.database.statements.cache-size}") int statementCacheSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("webservice");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setValidationTimeout(validationTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        // the driver caches prepared statements per connection and prepares them on the server after a few executions
+        config.addDataSourceProperty("prepareThreshold", String.valueOf(prepareThreshold));
+        config.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+        // do not fail startup if the database is not reachable yet, connections are established on demand
+        config.setInitializationFailTimeout(-1);
+
+        return new DatabaseConnection(new HikariDataSource(config));
+    }
+
+    /**
+     * Migrates the schema before the DAOs run their first statement, and refuses to start if the indexes their
+     * statements rely on are missing.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "database", matchIfMissing = true)
+    public DatabaseSchema databaseSchema(@Autowired DatabaseConnection databaseConnection,
+                                         @Value("${webservice.database.schema.migrate}") boolean migrate,
+                                         @Value("${webservice.database.schema.verify-indexes}") boolean verifyIndexes) {
+        DatabaseSchema databaseSchema = new DatabaseSchema(databaseConnection);
+        if (migrate) {
+            databaseSchema.migrate();
+        }
+        if (verifyIndexes) {
+            databaseSchema.verifyIndexes();
+        }
+        return databaseSchema;
+    }
+
+    /**
+     * Replaces the Tomcat worker pool, requests blocked on JDBC then no longer hold one of its platform threads.
+     * At most {@code webservice.database.pool.maximum-size} requests talk to the database at a time, the others
+     * wait for a connection and fail with 503 after the connection timeout.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "webservice.execution.virtual-threads", havingValue = "true")
+    public VirtualThreadExecutorCustomizer virtualThreadProtocolHandlerCustomizer() {
+        return new VirtualThreadExecutorCustomizer();
+    }
+
+    /**
+     * Hands the handler methods of the cart and burger controllers to a pool of {@code threads} threads, requests
+     * waiting for the database then no longer hold a Tomcat worker. Works on Java 17.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "webservice.execution.bounded.enabled", havingValue = "true")
+    public BoundedRequestExecution boundedRequestExecution(@Value("${webservice.execution.bounded.threads}") int threads,
+                                                           @Value("${webservice.execution.bounded.timeout-ms}") long timeoutMs) {
+        return new BoundedRequestExecution(Set.of(CartController.class, BurgerController.class), threads,
+                Duration.ofMillis(timeoutMs));
+    }
+
+    @Bean
+    public StatementRegistry statementRegistry() {
+        return new StatementRegistry();
+    }
+
+    @Bean
+    public EndpointMetrics endpointMetrics(@Value("${webservice.metrics.repeated-statement-threshold}") int repeatedStatementThreshold) {
+        return new EndpointMetrics(repeatedStatementThreshold);
+    }
+
+    @Bean
+    public CartCache cartCache(@Value("${webservice.cache.carts.maximum-size}") long maximumSize,
+                               @Value("${webservice.cache.carts.time-to-live-ms}") long timeToLiveMs) {
+        return new CartCache(maximumSize, Duration.ofMillis(timeToLiveMs));
+    }
+
+    /**
+     * Serialized bodies of the read endpoints. Pages of carts are dropped whenever a cart on them is written.
+     */
+    @Bean
+    public ResponseCache responseCache(@Autowired CartCache cartCache,
+                                       @Value("${webservice.cache.responses.maximum-bytes}") long maximumBytes,
+                                       @Value("${webservice.cache.responses.page-maximum-bytes}") long pageMaximumBytes,
+                                       @Value("${webservice.cache.responses.time-to-live-ms}") long timeToLiveMs) {
+        ResponseCache responseCache = new ResponseCache(maximumBytes, pageMaximumBytes, Duration.ofMillis(timeToLiveMs));
+        cartCache.addWriteListener(responseCache::invalidatePagesContaining);
+        return responseCache;
+    }
+
+    @Bean
+    public SerializedResponses serializedResponses(@Autowired ResponseCache responseCache, @Autowired ObjectMapper objectMapper,
+                                                   @Value("${webservice.cache.responses.gzip-min-bytes}") int gzipMinBytes) {
+        return new SerializedResponses(responseCache, objectMapper, gzipMinBytes);
+    }
+
+    @Bean
+    public ActiveCartRegistry activeCartRegistry() {
+        return new ActiveCartRegistry();
+    }
+
+    /**
+     * Acknowledges added burgers once they are in a local journal and writes them to the database in the background.
+     * Burgers in the journal that were not written before a crash are written on the next start.
+     */
+    @Bean(destroyMethod = "close")
+    @DependsOn("databaseSchema")
+    @ConditionalOnProperty(name = "webservice.write-behind.enabled", havingValue = "true")
+    public BurgerWriteBehind burgerWriteBehind(@Autowired DatabaseConnection databaseConnection,
+                                               @Autowired StatementRegistry statementRegistry,
+                                               @Autowired CartCache cartCache,
+                                               @Autowired ActiveCartRegistry activeCartRegistry,
+                                               @Value("${webservice.write-behind.journal-path}") String journalPath,
+                                               @Value("${webservice.write-behind.journal-id}") String journalId,
+                                               @Value("${webservice.write-behind.flush-interval-ms}") long flushIntervalMs,
+                                               @Value("${webservice.write-behind.max-batch-size}") int maxBatchSize) {
+        BurgerWriteBehind writeBehind = new BurgerWriteBehind(databaseConnection, statementRegistry, cartCache,
+                activeCartRegistry, Path.of(journalPath), journalId, Duration.ofMillis(flushIntervalMs), maxBatchSize);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    /**
+     * Moves carts that were checked out long enough ago out of the cart and burger tables, reads of them fall through
+     * to the archive.
+     */
+    @Bean(destroyMethod = "close")
+    @DependsOn("databaseSchema")
+    @ConditionalOnProperty(name = "webservice.archive.enabled", havingValue = "true")
+    public CartArchiver cartArchiver(@Autowired DatabaseConnection databaseConnection,
+                                     @Autowired StatementRegistry statementRegistry,
+                                     @Autowired CartCache cartCache,
+                                     @Value("${webservice.archive.min-age-ms}") long minAgeMs,
+                                     @Value("${webservice.archive.interval-ms}") long intervalMs,
+                                     @Value("${webservice.archive.batch-size}") int batchSize) {
+        CartArchiver cartArchiver = new CartArchiver(databaseConnection, statementRegistry, cartCache,
+                Duration.ofMillis(minAgeMs), Duration.ofMillis(intervalMs), batchSize);
+        cartArchiver.start();
+        return cartArchiver;
     }
 
     @Bean
-    public CartDAO cartDAO(@Autowired DatabaseConnection databaseConnection) {
-        return new CartDAO(databaseConnection);
+    @DependsOn("databaseSchema")
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "database", matchIfMissing = true)
+    public CartStorage cartDAO(@Autowired DatabaseConnection databaseConnection, @Autowired StatementRegistry statementRegistry,
+                           @Autowired CartCache cartCache, @Autowired ActiveCartRegistry activeCartRegistry,
+                           @Autowired ObjectProvider<BurgerWriteBehind> writeBehind) {
+        BurgerWriteBehind burgerWriteBehind = writeBehind.getIfAvailable();
+        if (burgerWriteBehind != null) {
+            return new WriteBehindCartDAO(databaseConnection, statementRegistry, cartCache, activeCartRegistry, burgerWriteBehind);
+        }
+        return new CartDAO(databaseConnection, statementRegistry, cartCache, activeCartRegistry);
+    }
+
+    /**
+     * Keeps carts and burgers in memory instead of the database, optionally across restarts in a local snapshot.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "memory")
+    public InMemoryStore inMemoryStore(@Value("${webservice.storage.memory.snapshot-path}") String snapshotPath,
+                                       @Value("${webservice.storage.memory.snapshot-interval-ms}") long snapshotIntervalMs) {
+        InMemoryStore store = new InMemoryStore(snapshotPath.isEmpty() ? null : Path.of(snapshotPath),
+                Duration.ofMillis(snapshotIntervalMs));
+        store.start();
+        return store;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "memory")
+    public CartStorage inMemoryCartDAO(@Autowired InMemoryStore store, @Autowired StatementRegistry statementRegistry,
+                                       @Autowired CartCache cartCache) {
+        return new InMemoryCartDAO(store, statementRegistry, cartCache);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "memory")
+    public BurgerStorage inMemoryBurgerDAO(@Autowired InMemoryStore store, @Autowired StatementRegistry statementRegistry,
+                                           @Autowired CartCache cartCache) {
+        return new InMemoryBurgerDAO(store, statementRegistry, cartCache);
+    }
+
+    /**
+     * Loads the active carts on startup. If the database is not reachable yet, they are loaded on first use.
+     */
+    @Bean
+    public ApplicationRunner activeCartLoader(@Autowired CartStorage cartDAO) {
+        return arguments -> {
+            try {
+                cartDAO.loadActiveCarts();
+            } catch (ConnectionUnavailableException | IllegalStateException e) {
+                // the registry stays unloaded
+            }
+        };
     }
 
     @Bean
@@ -28,12 +263,47 @@ public class AppConfiguration {
     }
 
     @Bean
-    public BurgerDAO burgerDAO(@Autowired DatabaseConnection databaseConnection) {
-        return new BurgerDAO(databaseConnection);
+    @DependsOn("databaseSchema")
+    @ConditionalOnProperty(name = "webservice.storage.engine", havingValue = "database", matchIfMissing = true)
+    public BurgerStorage burgerDAO(@Autowired DatabaseConnection databaseConnection, @Autowired StatementRegistry statementRegistry,
+                               @Autowired CartCache cartCache, @Autowired ActiveCartRegistry activeCartRegistry,
+                               @Autowired ObjectProvider<BurgerWriteBehind> writeBehind) {
+        BurgerWriteBehind burgerWriteBehind = writeBehind.getIfAvailable();
+        if (burgerWriteBehind != null) {
+            return new WriteBehindBurgerDAO(databaseConnection, statementRegistry, cartCache, activeCartRegistry, burgerWriteBehind);
+        }
+        return new BurgerDAO(databaseConnection, statementRegistry, cartCache, activeCartRegistry);
     }
 
     @Bean
     public BurgerMapper burgerMapper() {
         return new BurgerMapper();
     }
+
+    @Bean
+    public PriceTableMapper priceTableMapper() {
+        return new PriceTableMapper();
+    }
+
+    @Bean
+    public PriceTable priceTable(@Autowired PriceTableMapper priceTableMapper,
+                                 @Value("${webservice.pricing.base}") BigDecimal base,
+                                 @Value("${webservice.pricing.patty.meat}") BigDecimal meat,
+                                 @Value("${webservice.pricing.patty.veggie}") BigDecimal veggie,
+                                 @Value("${webservice.pricing.ingredient.cheese}") BigDecimal cheese,
+                                 @Value("${webservice.pricing.ingredient.salad}") BigDecimal salad,
+                                 @Value("${webservice.pricing.ingredient.tomato}") BigDecimal tomato) {
+        Map<PattyTypeDto, BigDecimal> patties = new EnumMap<>(PattyTypeDto.class);
+        patties.put(PattyTypeDto.MEAT, meat);
+        patties.put(PattyTypeDto.VEGGIE, veggie);
+
+        Map<IngredientDto, BigDecimal> ingredients = new EnumMap<>(IngredientDto.class);
+        ingredients.put(IngredientDto.CHEESE, cheese);
+        ingredients.put(IngredientDto.SALAD, salad);
+        ingredients.put(IngredientDto.TOMATO, tomato);
+
+        PriceTable priceTable = priceTableMapper.fromPricesDto(new PricesDto(base, patties, ingredients));
+        PriceTable.install(priceTable);
+        return priceTable;
+    }
 }
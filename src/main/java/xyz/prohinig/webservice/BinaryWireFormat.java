@@ -0,0 +1,27 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import xyz.prohinig.webservice.mapper.CompactDtoModule;
+
+/**
+ * Smile representation of the cart and burger resources, served to clients that accept it. Field names repeated in
+ * a listing are written once and referenced after that, burgers are written with {@link CompactDtoModule}. The JSON
+ * converter comes first, so JSON stays the default.
+ */
+final class BinaryWireFormat {
+
+    static final String MEDIA_TYPE_VALUE = "application/x-jackson-smile";
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private BinaryWireFormat() {
+    }
+
+    static ObjectMapper createObjectMapper() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .modules(new ParameterNamesModule(), new CompactDtoModule())
+                .build();
+    }
+}
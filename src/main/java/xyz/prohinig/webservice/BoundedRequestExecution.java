@@ -0,0 +1,131 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import xyz.prohinig.webservice.metrics.RequestMetricsInterceptor;
+import xyz.prohinig.webservice.metrics.RequestTrace;
+
+import javax.servlet.ServletRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the handler methods of the given controllers on a fixed pool of threads instead of the Tomcat worker that
+ * received the request. The request is handled asynchronously, the worker is released as soon as the method is handed
+ * over. At most {@code threads} handler methods run at a time, so no more requests than that talk to the database at
+ * once. The others wait for a thread without holding a worker, and are answered with 503 after the timeout.
+ * <p>
+ * Handler methods that return an asynchronous result themselves, such as streamed responses, stay on the worker.
+ * Not an {@link ExecutorService} bean itself, that would replace the executor Spring Boot configures for asynchronous
+ * requests.
+ */
+public class BoundedRequestExecution implements WebMvcRegistrations, AutoCloseable {
+
+    private static final List<Class<?>> ASYNC_RETURN_TYPES = List.of(Callable.class, WebAsyncTask.class,
+            DeferredResult.class, CompletionStage.class, StreamingResponseBody.class, ResponseBodyEmitter.class);
+
+    private final Set<Class<?>> controllerTypes;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final AsyncTaskExecutor taskExecutor;
+
+    public BoundedRequestExecution(Set<Class<?>> controllerTypes, int threads, Duration timeout) {
+        this.controllerTypes = controllerTypes;
+        this.timeoutMillis = timeout.toMillis();
+        this.executor = newExecutor(threads);
+        this.taskExecutor = new TaskExecutorAdapter(executor);
+    }
+
+    /**
+     * A pool of daemon threads that runs at most {@code threads} tasks at a time, the others wait in an unbounded
+     * queue.
+     */
+    public static ThreadPoolExecutor newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "request-executor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+        return new RequestMappingHandlerAdapter() {
+            @Override
+            protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+                return runsOnExecutor(handlerMethod)
+                        ? new ExecutorHandlerMethod(handlerMethod)
+                        : super.createInvocableHandlerMethod(handlerMethod);
+            }
+        };
+    }
+
+    /**
+     * Lets running handler methods finish, requests still waiting for a thread are answered once they time out.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private boolean runsOnExecutor(HandlerMethod handlerMethod) {
+        if (!controllerTypes.contains(handlerMethod.getBeanType())) {
+            return false;
+        }
+        Class<?> returnType = handlerMethod.getReturnType().getParameterType();
+        return ASYNC_RETURN_TYPES.stream().noneMatch(asyncType -> asyncType.isAssignableFrom(returnType));
+    }
+
+    /**
+     * Resolves the arguments on the worker and hands the invocation to the executor. Spring starts the asynchronous
+     * request before the task is submitted, so the method may still write headers to the response.
+     */
+    private class ExecutorHandlerMethod extends ServletInvocableHandlerMethod {
+
+        ExecutorHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer,
+                                       Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            // the request attributes of Spring refuse writes once the worker is released
+            ServletRequest servletRequest = request.getNativeRequest(ServletRequest.class);
+            // the statements of the request are counted on the thread that runs it, and recorded after the dispatch back
+            RequestTrace trace = RequestTrace.detach();
+            return new WebAsyncTask<>(timeoutMillis, taskExecutor, () -> {
+                if (trace != null) {
+                    RequestTrace.attach(trace);
+                }
+                try {
+                    return doInvoke(args);
+                } finally {
+                    RequestTrace continuedTrace = RequestTrace.detach();
+                    if (continuedTrace != null) {
+                        servletRequest.setAttribute(RequestMetricsInterceptor.DETACHED_TRACE_ATTRIBUTE, continuedTrace);
+                    }
+                }
+            });
+        }
+    }
+}
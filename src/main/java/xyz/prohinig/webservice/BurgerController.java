@@ -1,11 +1,16 @@
 package xyz.prohinig.webservice;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
-import xyz.prohinig.webservice.database.BurgerDAO;
-import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.BurgerStorage;
+import xyz.prohinig.webservice.database.CartVersionConflictException;
+import xyz.prohinig.webservice.database.CartStorage;
 import xyz.prohinig.webservice.dto.BurgerDto;
 import xyz.prohinig.webservice.dto.BurgersDto;
 import xyz.prohinig.webservice.mapper.BurgerMapper;
@@ -13,46 +18,79 @@ import xyz.prohinig.webservice.model.Burger;
 import xyz.prohinig.webservice.model.Cart;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BurgerController {
 
-    private final BurgerDAO burgerDAO;
+    // a cart changed by another request in between is read again, up to this many times in all
+    static final int MAX_WRITE_ATTEMPTS = 3;
 
-    private final CartDAO cartDAO;
+    private final BurgerStorage burgerDAO;
+
+    private final CartStorage cartDAO;
     private final BurgerMapper burgerMapper;
+    private final SerializedResponses serializedResponses;
 
     @Autowired
-    public BurgerController(BurgerDAO burgerDAO, BurgerMapper burgerMapper, CartDAO cartDAO) {
+    public BurgerController(BurgerStorage burgerDAO, BurgerMapper burgerMapper, CartStorage cartDAO,
+                            SerializedResponses serializedResponses) {
         this.burgerDAO = burgerDAO;
         this.burgerMapper = burgerMapper;
         this.cartDAO = cartDAO;
+        this.serializedResponses = serializedResponses;
     }
 
 
     @GetMapping("/carts/{cartId}/burgers")
-    public BurgersDto getBurgersOfCart(@PathVariable(value = "cartId") int cartId) {
+    public ResponseEntity<byte[]> getBurgersOfCart(@PathVariable(value = "cartId") int cartId, WebRequest request) {
+
+        if (CartETags.isHeldByClient(request, () -> cartDAO.getCachedVersion(cartId), CartETags::ofBurgers)) {
+            return null;
+        }
+
+        SerializedResponses.Variant variant = serializedResponses.selectVariant(request, false);
+        Integer cachedVersion = cartDAO.getCachedVersion(cartId);
+        if (cachedVersion != null) {
+            ResponseEntity<byte[]> cachedResponse =
+                    serializedResponses.getCached(ResponseCache.Key.ofBurgers(cartId, cachedVersion, variant.getKey()));
+            if (cachedResponse != null) {
+                return request.checkNotModified(CartETags.ofBurgers(cachedVersion)) ? null : cachedResponse;
+            }
+        }
 
         Cart cart = getCartAndVerifyExists(cartId);
 
-        List<Burger> burgerList = burgerDAO.getBurgersOfCart(cart);
+        if (request.checkNotModified(CartETags.ofBurgers(cart))) {
+            return null;
+        }
 
-        List<BurgerDto> burgerDtoList = burgerList.stream()
+        List<BurgerDto> burgerDtoList = cart.getBurgers().stream()
                 .map(burgerMapper::toBurgerDto)
                 .collect(Collectors.toList());
 
-        return new BurgersDto(burgerDtoList.size(), burgerDtoList);
+        ResponseCache.Key key = SerializedResponses.isCacheable(cart)
+                ? ResponseCache.Key.ofBurgers(cartId, cart.getVersion(), variant.getKey())
+                : null;
+        return serializedResponses.respond(key, variant, new BurgersDto(burgerDtoList.size(), burgerDtoList));
 
     }
 
     @GetMapping("/carts/{cartId}/burgers/{burgerId}")
-    public BurgerDto getSpecificBurgerOfCart(@PathVariable(value = "cartId") int cartId, @PathVariable(value = "burgerId") int burgerId ) {
+    public BurgerDto getSpecificBurgerOfCart(@PathVariable(value = "cartId") int cartId, @PathVariable(value = "burgerId") int burgerId,
+                                             WebRequest request) {
+
+        if (CartETags.isHeldByClient(request, () -> cartDAO.getCachedVersion(cartId), CartETags::ofBurgers)) {
+            return null;
+        }
 
         Cart cart = getCartAndVerifyExists(cartId);
 
         BurgerDto burgerDto = cart.getBurgers().stream()
-                .filter(burger -> burger.getId().equals(burgerId))
+                .filter(burger -> Objects.equals(burger.getId(), burgerId))
                 .map(burgerMapper::toBurgerDto)
                 .findFirst()
                 .orElse(null);
@@ -60,6 +98,10 @@ public class BurgerController {
         if(burgerDto == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
+
+        if (request.checkNotModified(CartETags.ofBurgers(cart))) {
+            return null;
+        }
         return burgerDto;
 
     }
@@ -68,16 +110,68 @@ public class BurgerController {
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
     public void addBurger(@PathVariable(value = "cartId") int cartId, @RequestBody BurgerDto burgerDto) {
 
-        Cart cart = getCartAndVerifyExists(cartId);
-
         Burger burger = burgerMapper.fromBurgerDto(burgerDto);
 
-        if (!burgerDAO.persistBurger(burger, cart)) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
+        writeWithRetry(cartId, cart -> {
+            verifyBurgersFit(cart, List.of(burgerDto));
+            return burgerDAO.persistBurger(burger, cart);
+        });
+
+    }
+
+
+    /**
+     * Adds a whole order to the cart in one transaction and returns the burgers with their generated ids.
+     */
+    @PostMapping("/carts/{cartId}/burgers/bulk")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public BurgersDto addBurgers(@PathVariable(value = "cartId") int cartId, @RequestBody List<BurgerDto> burgerDtos) {
+
+        List<Burger> burgers = burgerDtos.stream()
+                .map(burgerMapper::fromBurgerDto)
+                .collect(Collectors.toList());
+
+        writeWithRetry(cartId, cart -> {
+            verifyBurgersFit(cart, burgerDtos);
+            return burgerDAO.persistBurgers(burgers, cart);
+        });
+
+        List<BurgerDto> burgerDtoList = burgers.stream()
+                .map(burgerMapper::toBurgerDto)
+                .collect(Collectors.toList());
+
+        return new BurgersDto(burgerDtoList.size(), burgerDtoList);
+    }
+
+    static void verifyBurgersFit(Cart cart, List<BurgerDto> burgerDtos) {
+        if (cart.isCheckedOut()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
 
+        if (burgerDtos.isEmpty() || !cart.hasRoomFor(burgerDtos.size())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
     }
 
+    /**
+     * Reads the cart and runs the checks and the write on it. If the cart changed in between, it is read and checked
+     * again, the last conflict is answered with 409.
+     */
+    private void writeWithRetry(int cartId, Predicate<Cart> write) {
+        for (int attempt = 1; ; attempt++) {
+            Cart cart = getCartAndVerifyExists(cartId);
+            try {
+                if (!write.test(cart)) {
+                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+                return;
+            } catch (CartVersionConflictException e) {
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
 
     private Cart getCartAndVerifyExists(int cartId) {
 
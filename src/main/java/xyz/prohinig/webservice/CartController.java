@@ -1,48 +1,125 @@
 package xyz.prohinig.webservice;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
-import xyz.prohinig.webservice.database.CartDAO;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.CartStorage;
 import xyz.prohinig.webservice.dto.CartDto;
 import xyz.prohinig.webservice.dto.CartsDto;
 import xyz.prohinig.webservice.mapper.CartMapper;
 import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CartController {
 
-    private final CartDAO cartDAO;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final CartStorage cartDAO;
     private final CartMapper cartMapper;
+    private final ObjectWriter cartDtoWriter;
+    private final SerializedResponses serializedResponses;
 
     @Autowired
-    public CartController(CartDAO cartDAO, CartMapper cartMapper) {
+    public CartController(CartStorage cartDAO, CartMapper cartMapper, ObjectMapper objectMapper,
+                          SerializedResponses serializedResponses) {
         this.cartDAO = cartDAO;
         this.cartMapper = cartMapper;
+        this.serializedResponses = serializedResponses;
+        this.cartDtoWriter = objectMapper.writerFor(CartDto.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
 
-    @GetMapping("/carts")
-    public CartsDto getAllCarts() {
-        List<Cart> cartList = cartDAO.getAllCarts();
-        List<CartDto> cartDtoList = cartList.stream()
+    @GetMapping(value = "/carts", produces = {MediaType.APPLICATION_JSON_VALUE, BinaryWireFormat.MEDIA_TYPE_VALUE})
+    public ResponseEntity<byte[]> getAllCarts(@RequestParam(value = "limit", defaultValue = "100") int limit,
+                                              @RequestParam(value = "after", defaultValue = "0") int after,
+                                              WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+
+        SerializedResponses.Variant variant = serializedResponses.selectVariant(request, true);
+        ResponseCache.Key key = ResponseCache.Key.ofCartPage(after, limit, variant.getKey());
+        ResponseEntity<byte[]> cachedResponse = serializedResponses.getCached(key);
+        if (cachedResponse != null) {
+            return cachedResponse;
+        }
+        long generation = serializedResponses.getPageGeneration();
+
+        // one extra cart tells us whether there is a next page
+        List<CartSummary> cartSummaries = cartDAO.getCartSummaries(after, limit + 1);
+        boolean hasNextPage = cartSummaries.size() > limit;
+        if (hasNextPage) {
+            cartSummaries = cartSummaries.subList(0, limit);
+        }
+
+        List<CartDto> cartDtoList = cartSummaries.stream()
                 .map(cartMapper::toCartDto)
                 .collect(Collectors.toList());
-        return new CartsDto(cartDtoList.size(), cartDtoList);
+        Integer nextCursor = hasNextPage ? cartSummaries.get(limit - 1).getId() : null;
+
+        CartsDto cartsDto = new CartsDto(cartDtoList.size(), cartDtoList, nextCursor);
+        return serializedResponses.respondWithPage(key, variant, cartsDto, nextCursor, generation);
+    }
+
+    @GetMapping(value = "/carts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllCarts(@RequestParam(value = "after", defaultValue = "0") int after) {
+        return outputStream -> cartDAO.streamCartSummaries(after, STREAM_FETCH_SIZE, cartSummary -> {
+            try {
+                cartDtoWriter.writeValue(outputStream, cartMapper.toCartDto(cartSummary));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     @GetMapping("/carts/{cartId}")
-    public CartDto getCart(@PathVariable(value = "cartId") int cartId) {
+    public ResponseEntity<byte[]> getCart(@PathVariable(value = "cartId") int cartId, WebRequest request) {
+        if (CartETags.isHeldByClient(request, () -> cartDAO.getCachedVersion(cartId), CartETags::ofCart)) {
+            return null;
+        }
+
+        SerializedResponses.Variant variant = serializedResponses.selectVariant(request, true);
+        Integer cachedVersion = cartDAO.getCachedVersion(cartId);
+        if (cachedVersion != null) {
+            ResponseEntity<byte[]> cachedResponse =
+                    serializedResponses.getCached(ResponseCache.Key.ofCart(cartId, cachedVersion, variant.getKey()));
+            if (cachedResponse != null) {
+                return request.checkNotModified(CartETags.ofCart(cachedVersion)) ? null : cachedResponse;
+            }
+        }
+
         Cart cart = cartDAO.getCartByID(cartId);
         if (cart == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
 
-        return cartMapper.toCartDto(cart);
+        if (request.checkNotModified(CartETags.ofCart(cart))) {
+            return null;
+        }
+
+        ResponseCache.Key key = SerializedResponses.isCacheable(cart)
+                ? ResponseCache.Key.ofCart(cartId, cart.getVersion(), variant.getKey())
+                : null;
+        return serializedResponses.respond(key, variant, cartMapper.toCartDto(cart));
     }
 
     @DeleteMapping("/carts/{cartId}")
@@ -59,4 +136,4 @@ public class CartController {
         }
 
     }
-}
\ No newline at end of file
+}
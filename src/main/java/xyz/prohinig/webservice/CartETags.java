@@ -0,0 +1,106 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ServerWebExchange;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Strong entity tags of the cart and burger resources, derived from the version of the cart.
+ */
+final class CartETags {
+
+    private CartETags() {
+    }
+
+    /**
+     * The cart representation contains its total, so its tag changes with the prices as well.
+     */
+    static String ofCart(int version) {
+        return version + "-" + Integer.toHexString(PriceTable.current().getFingerprint());
+    }
+
+    static String ofBurgers(int version) {
+        return String.valueOf(version);
+    }
+
+    /**
+     * Burgers that are not written to the database yet are not covered by the version, the tag counts them.
+     */
+    static String ofCart(Cart cart) {
+        int unsavedBurgers = countUnsavedBurgers(cart);
+        return unsavedBurgers == 0 ? ofCart(cart.getVersion()) : ofCart(cart.getVersion()) + "+" + unsavedBurgers;
+    }
+
+    static String ofBurgers(Cart cart) {
+        int unsavedBurgers = countUnsavedBurgers(cart);
+        return unsavedBurgers == 0 ? ofBurgers(cart.getVersion()) : ofBurgers(cart.getVersion()) + "+" + unsavedBurgers;
+    }
+
+    static boolean isHeldByClient(WebRequest request, String etag) {
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch != null && isListed(Arrays.asList(ifNoneMatch), etag);
+    }
+
+    static boolean isHeldByClient(ServerWebExchange exchange, String etag) {
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch != null && isListed(ifNoneMatch, etag);
+    }
+
+    /**
+     * Answers with 304 if the client holds the latest known version of the cart, without reading the cart.
+     *
+     * @param cachedVersion the version of the cart if it is cached, otherwise {@code null}
+     * @param etagOfVersion {@link #ofCart(int)} or {@link #ofBurgers(int)}
+     */
+    static boolean isHeldByClient(WebRequest request, Supplier<Integer> cachedVersion, IntFunction<String> etagOfVersion) {
+        Integer version = cachedVersion.get();
+        if (version == null) {
+            return false;
+        }
+
+        String etag = etagOfVersion.apply(version);
+        return isHeldByClient(request, etag) && request.checkNotModified(etag);
+    }
+
+    static boolean isHeldByClient(ServerWebExchange exchange, Supplier<Integer> cachedVersion, IntFunction<String> etagOfVersion) {
+        Integer version = cachedVersion.get();
+        if (version == null) {
+            return false;
+        }
+
+        String etag = etagOfVersion.apply(version);
+        return isHeldByClient(exchange, etag) && exchange.checkNotModified(etag);
+    }
+
+    private static int countUnsavedBurgers(Cart cart) {
+        int unsavedBurgers = 0;
+        for (Burger burger : cart.getBurgers()) {
+            if (burger.getId() == null) {
+                unsavedBurgers++;
+            }
+        }
+        return unsavedBurgers;
+    }
+
+    // If-None-Match compares weakly, a W/ prefix does not matter
+    private static boolean isListed(List<String> headerValues, String etag) {
+        String quotedETag = "\"" + etag + "\"";
+        for (String headerValue : headerValues) {
+            for (String listedETag : headerValue.split(",")) {
+                String trimmedETag = listedETag.trim();
+                if (trimmedETag.equals("*") || trimmedETag.equals(quotedETag) || trimmedETag.equals("W/" + quotedETag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.BurgerWriteBehind;
+import xyz.prohinig.webservice.database.CartArchiver;
+import xyz.prohinig.webservice.database.DatabaseConnection;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.dto.ArchiveStatsDto;
+import xyz.prohinig.webservice.dto.CacheStatsDto;
+import xyz.prohinig.webservice.dto.ConnectionPoolStatsDto;
+import xyz.prohinig.webservice.dto.DaoMethodStatsDto;
+import xyz.prohinig.webservice.dto.EndpointStatsDto;
+import xyz.prohinig.webservice.dto.LoadCoalescingStatsDto;
+import xyz.prohinig.webservice.dto.ResponseCacheStatsDto;
+import xyz.prohinig.webservice.dto.StatementStatsDto;
+import xyz.prohinig.webservice.dto.WriteBehindStatsDto;
+import xyz.prohinig.webservice.metrics.EndpointMetrics;
+
+import java.util.List;
+
+@RestController
+public class MetricsController {
+
+    private final ObjectProvider<DatabaseConnection> databaseConnection;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+    private final ResponseCache responseCache;
+    private final EndpointMetrics endpointMetrics;
+    private final ObjectProvider<BurgerWriteBehind> writeBehind;
+    private final ObjectProvider<CartArchiver> cartArchiver;
+
+    @Autowired
+    public MetricsController(ObjectProvider<DatabaseConnection> databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                             ResponseCache responseCache, EndpointMetrics endpointMetrics,
+                             ObjectProvider<BurgerWriteBehind> writeBehind, ObjectProvider<CartArchiver> cartArchiver) {
+        this.databaseConnection = databaseConnection;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+        this.responseCache = responseCache;
+        this.endpointMetrics = endpointMetrics;
+        this.writeBehind = writeBehind;
+        this.cartArchiver = cartArchiver;
+    }
+
+    @GetMapping("/metrics/endpoints")
+    public List<EndpointStatsDto> getEndpointStats() {
+        return endpointMetrics.getStatistics();
+    }
+
+    @GetMapping("/metrics/dao-methods")
+    public List<DaoMethodStatsDto> getDaoMethodStats() {
+        return statementRegistry.getMethodStatistics();
+    }
+
+    @GetMapping("/metrics/connection-pool")
+    public ConnectionPoolStatsDto getConnectionPoolStats() {
+        DatabaseConnection connection = databaseConnection.getIfAvailable();
+        if (connection == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return connection.getStatistics();
+    }
+
+    @GetMapping("/metrics/statements")
+    public List<StatementStatsDto> getStatementStats() {
+        return statementRegistry.getStatistics();
+    }
+
+    @GetMapping("/metrics/cart-cache")
+    public CacheStatsDto getCartCacheStats() {
+        return cartCache.getStatistics();
+    }
+
+    @GetMapping("/metrics/cart-loads")
+    public LoadCoalescingStatsDto getCartLoadStats() {
+        return cartCache.getLoadCoalescingStatistics();
+    }
+
+    @GetMapping("/metrics/response-cache")
+    public ResponseCacheStatsDto getResponseCacheStats() {
+        return responseCache.getStatistics();
+    }
+
+    @GetMapping("/metrics/write-behind")
+    public WriteBehindStatsDto getWriteBehindStats() {
+        BurgerWriteBehind burgerWriteBehind = writeBehind.getIfAvailable();
+        if (burgerWriteBehind == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return burgerWriteBehind.getStatistics();
+    }
+
+    @GetMapping("/metrics/archive")
+    public ArchiveStatsDto getArchiveStats() {
+        CartArchiver archiver = cartArchiver.getIfAvailable();
+        if (archiver == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return archiver.getStatistics();
+    }
+}
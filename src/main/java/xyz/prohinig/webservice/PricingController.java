@@ -0,0 +1,51 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import xyz.prohinig.webservice.dto.PricesDto;
+import xyz.prohinig.webservice.mapper.PriceTableMapper;
+import xyz.prohinig.webservice.model.PriceTable;
+
+@RestController
+public class PricingController {
+
+    private final PriceTableMapper priceTableMapper;
+    private final boolean updatesEnabled;
+
+    @Autowired
+    public PricingController(PriceTableMapper priceTableMapper,
+                             @Value("${webservice.pricing.updates-enabled}") boolean updatesEnabled) {
+        this.priceTableMapper = priceTableMapper;
+        this.updatesEnabled = updatesEnabled;
+    }
+
+    @GetMapping("/prices")
+    public PricesDto getPrices() {
+        return priceTableMapper.toPricesDto(PriceTable.current());
+    }
+
+    /**
+     * Internal admin endpoint without authentication, answered with 403 unless price updates are enabled. Only the
+     * price table of this instance is replaced, in memory. Other instances keep their prices, and a restart loads the
+     * configured prices again.
+     */
+    @PutMapping("/prices")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public void updatePrices(@RequestBody PricesDto pricesDto) {
+        if (!updatesEnabled) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "price updates are disabled");
+        }
+
+        PriceTable priceTable;
+        try {
+            priceTable = priceTableMapper.fromPricesDto(pricesDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        PriceTable.install(priceTable);
+    }
+}
@@ -0,0 +1,116 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import xyz.prohinig.webservice.database.CartVersionConflictException;
+import xyz.prohinig.webservice.database.ReactiveBurgerDAO;
+import xyz.prohinig.webservice.database.ReactiveCartDAO;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.BurgersDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the contract of {@link BurgerController} on the reactive stack.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBurgerController {
+
+    // the cart is read again on a retry, the last conflict is answered with 409
+    private static final Retry RETRY_ON_CONFLICT = Retry.max(BurgerController.MAX_WRITE_ATTEMPTS - 1)
+            .filter(CartVersionConflictException.class::isInstance)
+            .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure());
+
+    private final ReactiveBurgerDAO burgerDAO;
+    private final ReactiveCartDAO cartDAO;
+    private final BurgerMapper burgerMapper;
+
+    @Autowired
+    public ReactiveBurgerController(ReactiveBurgerDAO burgerDAO, BurgerMapper burgerMapper, ReactiveCartDAO cartDAO) {
+        this.burgerDAO = burgerDAO;
+        this.burgerMapper = burgerMapper;
+        this.cartDAO = cartDAO;
+    }
+
+    @GetMapping("/carts/{cartId}/burgers")
+    public Mono<BurgersDto> getBurgersOfCart(@PathVariable(value = "cartId") int cartId, ServerWebExchange exchange) {
+        if (CartETags.isHeldByClient(exchange, () -> cartDAO.getCachedVersion(cartId), CartETags::ofBurgers)) {
+            return Mono.empty();
+        }
+
+        return getCartAndVerifyExists(cartId)
+                .filter(cart -> !exchange.checkNotModified(CartETags.ofBurgers(cart.getVersion())))
+                .map(cart -> {
+                    List<BurgerDto> burgerDtoList = cart.getBurgers().stream()
+                            .map(burgerMapper::toBurgerDto)
+                            .collect(Collectors.toList());
+
+                    return new BurgersDto(burgerDtoList.size(), burgerDtoList);
+                });
+    }
+
+    @GetMapping("/carts/{cartId}/burgers/{burgerId}")
+    public Mono<BurgerDto> getSpecificBurgerOfCart(@PathVariable(value = "cartId") int cartId, @PathVariable(value = "burgerId") int burgerId,
+                                                   ServerWebExchange exchange) {
+        if (CartETags.isHeldByClient(exchange, () -> cartDAO.getCachedVersion(cartId), CartETags::ofBurgers)) {
+            return Mono.empty();
+        }
+
+        return getCartAndVerifyExists(cartId)
+                .flatMap(cart -> Mono.justOrEmpty(cart.getBurgers().stream()
+                                .filter(burger -> burger.getId().equals(burgerId))
+                                .map(burgerMapper::toBurgerDto)
+                                .findFirst())
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                        .filter(burgerDto -> !exchange.checkNotModified(CartETags.ofBurgers(cart.getVersion()))));
+    }
+
+    @PostMapping("/carts/{cartId}/burgers")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public Mono<Void> addBurger(@PathVariable(value = "cartId") int cartId, @RequestBody BurgerDto burgerDto) {
+        Burger burger = burgerMapper.fromBurgerDto(burgerDto);
+
+        return getCartAndVerifyExists(cartId)
+                .doOnNext(cart -> BurgerController.verifyBurgersFit(cart, List.of(burgerDto)))
+                .flatMap(cart -> burgerDAO.persistBurger(burger, cart))
+                .retryWhen(RETRY_ON_CONFLICT)
+                .flatMap(persisted -> persisted ? Mono.empty() : Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+
+    @PostMapping("/carts/{cartId}/burgers/bulk")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public Mono<BurgersDto> addBurgers(@PathVariable(value = "cartId") int cartId, @RequestBody List<BurgerDto> burgerDtos) {
+        List<Burger> burgers = burgerDtos.stream()
+                .map(burgerMapper::fromBurgerDto)
+                .collect(Collectors.toList());
+
+        return getCartAndVerifyExists(cartId)
+                .doOnNext(cart -> BurgerController.verifyBurgersFit(cart, burgerDtos))
+                .flatMap(cart -> burgerDAO.persistBurgers(burgers, cart))
+                .retryWhen(RETRY_ON_CONFLICT)
+                .flatMap(persisted -> persisted ? Mono.just(burgers) : Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR)))
+                .map(persistedBurgers -> {
+                    List<BurgerDto> burgerDtoList = persistedBurgers.stream()
+                            .map(burgerMapper::toBurgerDto)
+                            .collect(Collectors.toList());
+
+                    return new BurgersDto(burgerDtoList.size(), burgerDtoList);
+                });
+    }
+
+    private Mono<Cart> getCartAndVerifyExists(int cartId) {
+        return cartDAO.getCartByID(cartId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
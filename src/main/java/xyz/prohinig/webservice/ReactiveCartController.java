@@ -0,0 +1,86 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import xyz.prohinig.webservice.database.ReactiveCartDAO;
+import xyz.prohinig.webservice.dto.CartDto;
+import xyz.prohinig.webservice.dto.CartsDto;
+import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.model.CartSummary;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the contract of {@link CartController} on the reactive stack.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCartController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final ReactiveCartDAO cartDAO;
+    private final CartMapper cartMapper;
+
+    @Autowired
+    public ReactiveCartController(ReactiveCartDAO cartDAO, CartMapper cartMapper) {
+        this.cartDAO = cartDAO;
+        this.cartMapper = cartMapper;
+    }
+
+    @GetMapping(value = "/carts", produces = {MediaType.APPLICATION_JSON_VALUE, BinaryWireFormat.MEDIA_TYPE_VALUE})
+    public Mono<CartsDto> getAllCarts(@RequestParam(value = "limit", defaultValue = "100") int limit,
+                                      @RequestParam(value = "after", defaultValue = "0") int after) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+
+        // one extra cart tells us whether there is a next page
+        return cartDAO.getCartSummaries(after, limit + 1).collectList().map(cartSummaries -> {
+            boolean hasNextPage = cartSummaries.size() > limit;
+            List<CartSummary> page = hasNextPage ? cartSummaries.subList(0, limit) : cartSummaries;
+
+            List<CartDto> cartDtoList = page.stream()
+                    .map(cartMapper::toCartDto)
+                    .collect(Collectors.toList());
+            Integer nextCursor = hasNextPage ? page.get(limit - 1).getId() : null;
+
+            return new CartsDto(cartDtoList.size(), cartDtoList, nextCursor);
+        });
+    }
+
+    @GetMapping(value = "/carts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CartDto> streamAllCarts(@RequestParam(value = "after", defaultValue = "0") int after) {
+        return cartDAO.streamCartSummaries(after, STREAM_FETCH_SIZE).map(cartMapper::toCartDto);
+    }
+
+    @GetMapping("/carts/{cartId}")
+    public Mono<CartDto> getCart(@PathVariable(value = "cartId") int cartId, ServerWebExchange exchange) {
+        if (CartETags.isHeldByClient(exchange, () -> cartDAO.getCachedVersion(cartId), CartETags::ofCart)) {
+            return Mono.empty();
+        }
+
+        return cartDAO.getCartByID(cartId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .filter(cart -> !exchange.checkNotModified(CartETags.ofCart(cart.getVersion())))
+                .map(cartMapper::toCartDto);
+    }
+
+    @DeleteMapping("/carts/{cartId}")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteCart(@PathVariable(value = "cartId") int cartId) {
+        return cartDAO.getCartByID(cartId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(cartDAO::deleteCart)
+                .flatMap(deleted -> deleted ? Mono.empty() : Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+}
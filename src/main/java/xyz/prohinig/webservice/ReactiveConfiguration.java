@@ -0,0 +1,85 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.database.ReactiveBurgerDAO;
+import xyz.prohinig.webservice.database.ReactiveCartDAO;
+import xyz.prohinig.webservice.database.ReactiveDatabaseConnection;
+
+import java.time.Duration;
+
+/**
+ * Beans of the reactive stack, active when started with {@code spring.main.web-application-type=reactive}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+
+    /**
+     * Netty instead of Tomcat, which would otherwise be picked because both are on the classpath.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Replaces the default Smile codecs, which come after the JSON codecs.
+     */
+    @Bean
+    public CodecCustomizer binaryWireFormatCodecCustomizer() {
+        ObjectMapper objectMapper = BinaryWireFormat.createObjectMapper();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(objectMapper, BinaryWireFormat.MEDIA_TYPE));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(objectMapper, BinaryWireFormat.MEDIA_TYPE));
+        };
+    }
+
+    @Bean
+    public ReactiveDatabaseConnection reactiveDatabaseConnection(@Value("${webservice.r2dbc.url}") String url,
+                                                                 @Value("${webservice.database.username}") String username,
+                                                                 @Value("${webservice.database.password}") String password,
+                                                                 @Value("${webservice.r2dbc.pool.maximum-size}") int maximumPoolSize,
+                                                                 @Value("${webservice.r2dbc.pool.initial-size}") int initialSize,
+                                                                 @Value("${webservice.r2dbc.pool.acquire-timeout-ms}") long acquireTimeoutMs) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        ConnectionPoolConfiguration poolConfiguration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("webservice-r2dbc")
+                .maxSize(maximumPoolSize)
+                .initialSize(initialSize)
+                .maxAcquireTime(Duration.ofMillis(acquireTimeoutMs))
+                .build();
+
+        return new ReactiveDatabaseConnection(new ConnectionPool(poolConfiguration));
+    }
+
+    @Bean
+    public ReactiveCartDAO reactiveCartDAO(@Autowired ReactiveDatabaseConnection reactiveDatabaseConnection, @Autowired CartCache cartCache,
+                                           @Autowired ActiveCartRegistry activeCartRegistry) {
+        return new ReactiveCartDAO(reactiveDatabaseConnection, cartCache, activeCartRegistry);
+    }
+
+    @Bean
+    public ReactiveBurgerDAO reactiveBurgerDAO(@Autowired ReactiveDatabaseConnection reactiveDatabaseConnection, @Autowired CartCache cartCache,
+                                               @Autowired ActiveCartRegistry activeCartRegistry) {
+        return new ReactiveBurgerDAO(reactiveDatabaseConnection, cartCache, activeCartRegistry);
+    }
+}
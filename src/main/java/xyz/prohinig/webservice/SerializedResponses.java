@@ -0,0 +1,216 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes the bodies of the read endpoints to bytes, with the same mappers as the message converters, and serves
+ * them from the {@link ResponseCache}. Bodies are compressed with gzip for clients that accept it.
+ */
+public class SerializedResponses {
+
+    private static final String GZIP = "gzip";
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    private final ResponseCache responseCache;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper = BinaryWireFormat.createObjectMapper();
+    private final int gzipMinBytes;
+
+    public SerializedResponses(ResponseCache responseCache, ObjectMapper jsonMapper, int gzipMinBytes) {
+        this.responseCache = responseCache;
+        this.jsonMapper = jsonMapper;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * The representation the client asks for, JSON unless it prefers the binary wire format.
+     *
+     * @param dependsOnPrices whether the body contains prices, which makes the current price table part of the variant
+     */
+    Variant selectVariant(WebRequest request, boolean dependsOnPrices) {
+        boolean smile = prefersSmile(request.getHeader(HttpHeaders.ACCEPT));
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        StringBuilder key = new StringBuilder(smile ? BinaryWireFormat.MEDIA_TYPE_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) {
+            key.append(';').append(GZIP);
+        }
+        if (dependsOnPrices) {
+            key.append(';').append(Integer.toHexString(PriceTable.current().getFingerprint()));
+        }
+        return new Variant(smile, gzip, key.toString());
+    }
+
+    /**
+     * @return {@code null} if the response is not cached
+     */
+    ResponseEntity<byte[]> getCached(ResponseCache.Key key) {
+        ResponseCache.CachedResponse cachedResponse = responseCache.get(key);
+        return cachedResponse == null ? null : toResponseEntity(cachedResponse);
+    }
+
+    long getPageGeneration() {
+        return responseCache.getPageGeneration();
+    }
+
+    /**
+     * @param key {@code null} if the response must not be cached
+     */
+    ResponseEntity<byte[]> respond(ResponseCache.Key key, Variant variant, Object body) {
+        ResponseCache.CachedResponse response = serialize(variant, body, null);
+        if (key != null) {
+            responseCache.put(key, response);
+        }
+        return toResponseEntity(response);
+    }
+
+    /**
+     * @param lastCartId id of the last cart on the page if there is a next page, otherwise {@code null}
+     * @param generation the page generation from before the carts were read
+     */
+    ResponseEntity<byte[]> respondWithPage(ResponseCache.Key key, Variant variant, Object body, Integer lastCartId,
+                                           long generation) {
+        ResponseCache.CachedResponse response = serialize(variant, body, lastCartId);
+        responseCache.putPage(key, response, generation);
+        return toResponseEntity(response);
+    }
+
+    /**
+     * Burgers that are not written to the database yet are not covered by the version of the cart.
+     */
+    static boolean isCacheable(Cart cart) {
+        for (Burger burger : cart.getBurgers()) {
+            if (burger.getId() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ResponseCache.CachedResponse serialize(Variant variant, Object body, Integer lastCartId) {
+        byte[] bytes;
+        try {
+            bytes = (variant.smile ? smileMapper : jsonMapper).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize " + body.getClass().getSimpleName(), e);
+        }
+
+        String contentType = variant.smile ? BinaryWireFormat.MEDIA_TYPE_VALUE : MediaType.APPLICATION_JSON_VALUE;
+        if (variant.gzip && bytes.length >= gzipMinBytes) {
+            return new ResponseCache.CachedResponse(gzip(bytes), contentType, GZIP, lastCartId);
+        }
+        return new ResponseCache.CachedResponse(bytes, contentType, null, lastCartId);
+    }
+
+    private static ResponseEntity<byte[]> toResponseEntity(ResponseCache.CachedResponse response) {
+        ResponseEntity.BodyBuilder responseEntity = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, response.getContentType())
+                .header(HttpHeaders.VARY, VARY);
+        if (response.getContentEncoding() != null) {
+            responseEntity.header(HttpHeaders.CONTENT_ENCODING, response.getContentEncoding());
+        }
+        return responseEntity.body(response.getBody());
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    // the most specific and preferred media type of the Accept header decides, */* means JSON
+    private static boolean prefersSmile(String accept) {
+        if (accept == null) {
+            return false;
+        }
+
+        List<MediaType> acceptedMediaTypes;
+        try {
+            acceptedMediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+
+        for (MediaType acceptedMediaType : acceptedMediaTypes) {
+            if (acceptedMediaType.includes(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (acceptedMediaType.includes(BinaryWireFormat.MEDIA_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // gzip itself decides before *, a quality of 0 refuses the coding
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        boolean wildcardAccepted = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                return quality(parameters) > 0;
+            }
+            if (name.equals("*")) {
+                wildcardAccepted = quality(parameters) > 0;
+            }
+        }
+        return wildcardAccepted;
+    }
+
+    // a malformed quality refuses the coding, like a malformed Accept header falls back to JSON
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String[] parameter = parameters[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static final class Variant {
+        private final boolean smile;
+        private final boolean gzip;
+        private final String key;
+
+        private Variant(boolean smile, boolean gzip, String key) {
+            this.smile = smile;
+            this.gzip = gzip;
+            this.key = key;
+        }
+
+        String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package xyz.prohinig.webservice;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs every request of Tomcat on a new virtual thread. Tomcat does not shut down an executor it was given, so the
+ * executor is shut down when the customizer is closed.
+ * <p>
+ * Not an {@link ExecutorService} bean itself, that would replace the executor Spring Boot configures for
+ * asynchronous requests.
+ */
+public class VirtualThreadExecutorCustomizer implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, AutoCloseable {
+
+    private final ExecutorService executor = VirtualThreads.newExecutor();
+
+    @Override
+    public void customize(ProtocolHandler protocolHandler) {
+        protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+package xyz.prohinig.webservice;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, which are only available from Java 21 while the project builds against Java 17.
+ */
+public final class VirtualThreads {
+
+    private static final MethodHandle NEW_EXECUTOR = lookupNewExecutor();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for every task.
+     */
+    public static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new IllegalStateException("virtual threads need Java 21, running on Java " + Runtime.version().feature());
+        }
+
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not create virtual thread executor", e);
+        }
+    }
+
+    private static MethodHandle lookupNewExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package xyz.prohinig.webservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import xyz.prohinig.webservice.metrics.EndpointMetrics;
+import xyz.prohinig.webservice.metrics.RequestMetricsInterceptor;
+
+import java.util.List;
+
+/**
+ * Records latency and statements of every request served by the servlet stack, and serves the binary wire format.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private final EndpointMetrics endpointMetrics;
+
+    @Autowired
+    public WebMvcConfiguration(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(endpointMetrics));
+    }
+
+    /**
+     * Replaces the default Smile converter, or adds one behind the JSON converter so JSON stays the default.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2SmileHttpMessageConverter smileConverter =
+                new MappingJackson2SmileHttpMessageConverter(BinaryWireFormat.createObjectMapper());
+
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2SmileHttpMessageConverter) {
+                converters.set(i, smileConverter);
+                return;
+            }
+        }
+        converters.add(smileConverter);
+    }
+}
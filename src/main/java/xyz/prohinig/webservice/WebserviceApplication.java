@@ -2,8 +2,10 @@ package xyz.prohinig.webservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// the R2DBC connection pool is configured in ReactiveConfiguration
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class WebserviceApplication {
 
 	public static void main(String[] args) {
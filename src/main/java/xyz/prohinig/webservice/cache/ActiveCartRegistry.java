@@ -0,0 +1,119 @@
+package xyz.prohinig.webservice.cache;
+
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Every cart that is not checked out, held in memory and kept up to date by the DAOs after each committed write.
+ * Carts are copied on the way in and out. Reads do not lock, writes are serialized.
+ * <p>
+ * The registry is loaded from the database on startup. A write it cannot apply, such as burgers added to a version
+ * it has not seen, marks it as not loaded, so it is loaded again before its next use.
+ */
+public class ActiveCartRegistry {
+
+    private final ConcurrentNavigableMap<Integer, Cart> activeCartsById = new ConcurrentSkipListMap<>();
+    // carts removed while a load is running, the load must not bring them back
+    private final Set<Integer> removedWhileLoading = new HashSet<>();
+    private boolean loading = false;
+    private volatile boolean loaded = false;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Must be called before the active carts are read from the database for {@link #completeLoad(List)}.
+     */
+    public synchronized void beginLoad() {
+        removedWhileLoading.clear();
+        loading = true;
+    }
+
+    /**
+     * Takes over the active carts read from the database, without going back on changes applied since the load began.
+     */
+    public synchronized void completeLoad(List<Cart> activeCarts) {
+        for (Cart cart : activeCarts) {
+            if (!removedWhileLoading.contains(cart.getId())) {
+                putIfNewer(cart);
+            }
+        }
+        removedWhileLoading.clear();
+        loading = false;
+        loaded = true;
+    }
+
+    public synchronized void abortLoad() {
+        removedWhileLoading.clear();
+        loading = false;
+    }
+
+    /**
+     * The most recently created active cart, {@code null} if there is none.
+     */
+    public Cart getLatest() {
+        Map.Entry<Integer, Cart> latest = activeCartsById.lastEntry();
+        return latest == null ? null : latest.getValue().copy();
+    }
+
+    public int size() {
+        return activeCartsById.size();
+    }
+
+    /**
+     * Takes over the stored state of the cart, a checked out cart is removed.
+     */
+    public synchronized void put(Cart cart) {
+        if (cart.isCheckedOut()) {
+            remove(cart.getId());
+        } else {
+            putIfNewer(cart);
+        }
+    }
+
+    /**
+     * Adds burgers that were inserted together with the increment of the cart to {@code version}.
+     */
+    public synchronized void addBurgers(int cartId, List<Burger> burgers, int version) {
+        Cart cart = activeCartsById.get(cartId);
+        if (cart == null || cart.getVersion() >= version) {
+            return;
+        }
+
+        // a version in between was not applied, or the burgers do not fit into the cart we know
+        if (cart.getVersion() != version - 1 || !cart.hasRoomFor(burgers.size())) {
+            loaded = false;
+            return;
+        }
+
+        Cart updatedCart = cart.copy();
+        burgers.forEach(updatedCart::addBurger);
+        updatedCart.setVersion(version);
+        activeCartsById.put(cartId, updatedCart);
+    }
+
+    public synchronized void remove(Integer cartId) {
+        if (cartId == null) {
+            return;
+        }
+        if (loading) {
+            removedWhileLoading.add(cartId);
+        }
+        activeCartsById.remove(cartId);
+    }
+
+    private void putIfNewer(Cart cart) {
+        Cart registeredCart = activeCartsById.get(cart.getId());
+        if (registeredCart == null || registeredCart.getVersion() < cart.getVersion()) {
+            activeCartsById.put(cart.getId(), cart.copy());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package xyz.prohinig.webservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import xyz.prohinig.webservice.dto.CacheStatsDto;
+import xyz.prohinig.webservice.dto.LoadCoalescingStatsDto;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through cache for carts keyed by cart id. Entries are evicted by size and by age since they were written.
+ * Carts are copied on the way in and out, so callers may modify the returned cart without affecting the cache.
+ * <p>
+ * Next to the carts, the cache keeps an index of the latest known version of every cart. Versions only move
+ * forward, and a cached cart older than its indexed version is not handed out. A deleted cart stays in the index as a
+ * version no cart reaches, so a load that read it before the delete cannot bring it back.
+ * <p>
+ * The write paths of the DAOs report every cart they may have changed, to the listeners added with
+ * {@link #addWriteListener(IntConsumer)}.
+ * <p>
+ * Concurrent misses for the same cart share one load, see {@link #getOrLoad(int, IntFunction)}. This works with a
+ * cache of size 0 as well.
+ */
+public class CartCache {
+
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    private final Cache<Integer, Cart> cartsById;
+    private final Cache<Integer, Integer> versionsById;
+    private final List<IntConsumer> writeListeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Integer, CompletableFuture<Cart>> inFlightLoads = new ConcurrentHashMap<>();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    public CartCache(long maximumSize, Duration timeToLive) {
+        this.cartsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        this.versionsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    public Cart get(int cartId) {
+        Cart cart = cartsById.getIfPresent(cartId);
+        if (cart == null) {
+            return null;
+        }
+
+        Integer version = versionsById.getIfPresent(cartId);
+        if (version != null && cart.getVersion() < version) {
+            return null;
+        }
+        return cart.copy();
+    }
+
+    public void put(Cart cart) {
+        cartsById.put(cart.getId(), cart.copy());
+        putVersion(cart.getId(), cart.getVersion());
+    }
+
+    /**
+     * @return the latest known version of the cart, {@code null} if it is not known
+     */
+    public Integer getVersion(int cartId) {
+        Integer version = versionsById.getIfPresent(cartId);
+        return version == null || version == DELETED ? null : version;
+    }
+
+    public void putVersion(int cartId, int version) {
+        versionsById.asMap().merge(cartId, version, Math::max);
+    }
+
+    /**
+     * Drops the cached cart after a write, its version stays known.
+     */
+    public void invalidate(Integer cartId) {
+        if (cartId != null) {
+            // detached first, a running load that has not put its cart yet no longer can
+            inFlightLoads.remove(cartId);
+            cartsById.invalidate(cartId);
+            notifyWritten(cartId);
+        }
+    }
+
+    /**
+     * Drops the cached cart and marks it deleted in the version index, for carts that no longer exist.
+     */
+    public void remove(Integer cartId) {
+        if (cartId != null) {
+            inFlightLoads.remove(cartId);
+            cartsById.invalidate(cartId);
+            versionsById.put(cartId, DELETED);
+            notifyWritten(cartId);
+        }
+    }
+
+    /**
+     * Loads the cart, unless a load of the same cart is already running, then waits for that one. Every caller gets
+     * its own copy of the loaded cart. The loaded cart is cached unless a write to the cart detached the load while
+     * it ran, callers coming after the write start a new one.
+     *
+     * @param loader runs in the calling thread, an exception it throws is thrown to all callers sharing the load
+     */
+    public Cart getOrLoad(int cartId, IntFunction<Cart> loader) {
+        CompletableFuture<Cart> load = new CompletableFuture<>();
+        CompletableFuture<Cart> inFlightLoad = inFlightLoads.putIfAbsent(cartId, load);
+        if (inFlightLoad != null) {
+            coalescedCount.increment();
+            return copyOf(await(inFlightLoad));
+        }
+
+        loadCount.increment();
+        Cart cart;
+        try {
+            cart = loader.apply(cartId);
+        } catch (RuntimeException | Error e) {
+            completeLoad(cartId, load, null, e);
+            throw e;
+        }
+        completeLoad(cartId, load, cart, null);
+        return cart;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #getOrLoad(int, IntFunction)}, for loaders that emit the cart later.
+     *
+     * @param loader runs in the calling thread and starts the load
+     */
+    public CompletableFuture<Cart> getOrLoadAsync(int cartId, IntFunction<CompletionStage<Cart>> loader) {
+        CompletableFuture<Cart> load = new CompletableFuture<>();
+        CompletableFuture<Cart> inFlightLoad = inFlightLoads.putIfAbsent(cartId, load);
+        if (inFlightLoad != null) {
+            coalescedCount.increment();
+            return inFlightLoad.thenApply(CartCache::copyOf);
+        }
+
+        loadCount.increment();
+        try {
+            loader.apply(cartId).whenComplete((cart, failure) -> completeLoad(cartId, load, cart, failure));
+        } catch (RuntimeException | Error e) {
+            completeLoad(cartId, load, null, e);
+        }
+        return load.thenApply(CartCache::copyOf);
+    }
+
+    public void addWriteListener(IntConsumer writeListener) {
+        writeListeners.add(writeListener);
+    }
+
+    /**
+     * Must be called after every write that may have changed the cart, {@link #invalidate(Integer)} and
+     * {@link #remove(Integer)} call it themselves.
+     */
+    public void notifyWritten(int cartId) {
+        inFlightLoads.remove(cartId);
+        for (IntConsumer writeListener : writeListeners) {
+            writeListener.accept(cartId);
+        }
+    }
+
+    /**
+     * Caches the loaded cart only if the load is still registered. The put and the removal happen atomically
+     * against the detaching of {@link #notifyWritten(int)}, a write either drops the cart afterwards or prevents it.
+     */
+    private void completeLoad(int cartId, CompletableFuture<Cart> load, Cart cart, Throwable failure) {
+        inFlightLoads.computeIfPresent(cartId, (id, inFlightLoad) -> {
+            if (inFlightLoad != load) {
+                return inFlightLoad;
+            }
+            if (cart != null) {
+                put(cart);
+            }
+            return null;
+        });
+
+        if (failure != null) {
+            load.completeExceptionally(failure);
+        } else {
+            // the waiting callers copy from a cart that the caller of the load cannot modify
+            load.complete(copyOf(cart));
+        }
+    }
+
+    public CacheStatsDto getStatistics() {
+        CacheStats stats = cartsById.stats();
+        return new CacheStatsDto(cartsById.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+
+    public LoadCoalescingStatsDto getLoadCoalescingStatistics() {
+        long loads = loadCount.sum();
+        long coalesced = coalescedCount.sum();
+        long requests = loads + coalesced;
+        return new LoadCoalescingStatsDto(loads, coalesced, inFlightLoads.size(),
+                requests == 0 ? 0 : (double) coalesced / requests);
+    }
+
+    private static Cart copyOf(Cart cart) {
+        return cart == null ? null : cart.copy();
+    }
+
+    private static Cart await(CompletableFuture<Cart> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package xyz.prohinig.webservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import xyz.prohinig.webservice.dto.ResponseCacheStatsDto;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized, possibly compressed response bodies of the read endpoints, so a hit is written without building or
+ * serializing the DTOs. Both caches are bounded by the bytes of the bodies they hold.
+ * <p>
+ * Bodies of a single cart are keyed by its version and never go stale. A page of carts has no version, it is dropped
+ * when a cart that may be on it is written, see {@link #invalidatePagesContaining(int)}.
+ */
+public class ResponseCache {
+
+    // keys, headers and the entry itself, roughly
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    public enum Resource {
+        CART,
+        BURGERS,
+        CART_PAGE
+    }
+
+    private final Cache<Key, CachedResponse> cartResponses;
+    private final Cache<Key, CachedResponse> pageResponses;
+    // incremented before pages are dropped, a page read while a cart was written is not cached
+    private final AtomicLong pageGeneration = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    public ResponseCache(long maximumBytes, long pageMaximumBytes, Duration timeToLive) {
+        this.cartResponses = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher(ResponseCache::weigh)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        this.pageResponses = Caffeine.newBuilder()
+                .maximumWeight(pageMaximumBytes)
+                .weigher(ResponseCache::weigh)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    public CachedResponse get(Key key) {
+        return key.resource == Resource.CART_PAGE ? pageResponses.getIfPresent(key) : cartResponses.getIfPresent(key);
+    }
+
+    /**
+     * For the bodies of a single cart, keyed by the version they were built from.
+     */
+    public void put(Key key, CachedResponse response) {
+        if (key.resource == Resource.CART_PAGE) {
+            throw new IllegalArgumentException("pages are cached with putPage");
+        }
+        cartResponses.put(key, response);
+    }
+
+    /**
+     * Must be taken before the carts of a page are read, and handed to {@link #putPage(Key, CachedResponse, long)}.
+     */
+    public long getPageGeneration() {
+        return pageGeneration.get();
+    }
+
+    public void putPage(Key key, CachedResponse response, long generation) {
+        pageResponses.put(key, response);
+        // a cart was written after the page was read, its invalidation may have missed the page
+        if (pageGeneration.get() != generation) {
+            pageResponses.invalidate(key);
+        }
+    }
+
+    /**
+     * Drops every page the cart is or may end up on. Pages start after a cart id and end with the id of their last
+     * cart, the last page has no end.
+     */
+    public void invalidatePagesContaining(int cartId) {
+        pageGeneration.incrementAndGet();
+        for (Map.Entry<Key, CachedResponse> page : pageResponses.asMap().entrySet()) {
+            Integer lastCartId = page.getValue().lastCartId;
+            if (page.getKey().first < cartId && (lastCartId == null || cartId <= lastCartId)) {
+                if (pageResponses.asMap().remove(page.getKey(), page.getValue())) {
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public ResponseCacheStatsDto getStatistics() {
+        CacheStats stats = cartResponses.stats().plus(pageResponses.stats());
+        long bytes = weightedSize(cartResponses) + weightedSize(pageResponses);
+        return new ResponseCacheStatsDto(cartResponses.estimatedSize() + pageResponses.estimatedSize(), bytes,
+                stats.hitCount(), stats.missCount(), stats.evictionCount(), invalidationCount.get(), stats.hitRate());
+    }
+
+    private static long weightedSize(Cache<Key, CachedResponse> cache) {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private static int weigh(Key key, CachedResponse response) {
+        return response.body.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * A resource in one representation. The variant names the media type, the content encoding and anything else the
+     * body depends on, such as the prices.
+     */
+    public static final class Key {
+        private final Resource resource;
+        // cart id, or the cart id a page starts after
+        private final int first;
+        // version of the cart, or the size of a page
+        private final int second;
+        private final String variant;
+
+        private Key(Resource resource, int first, int second, String variant) {
+            this.resource = resource;
+            this.first = first;
+            this.second = second;
+            this.variant = variant;
+        }
+
+        public static Key ofCart(int cartId, int version, String variant) {
+            return new Key(Resource.CART, cartId, version, variant);
+        }
+
+        public static Key ofBurgers(int cartId, int version, String variant) {
+            return new Key(Resource.BURGERS, cartId, version, variant);
+        }
+
+        public static Key ofCartPage(int afterId, int limit, String variant) {
+            return new Key(Resource.CART_PAGE, afterId, limit, variant);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return first == key.first && second == key.second && resource == key.resource && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, first, second, variant);
+        }
+    }
+
+    public static final class CachedResponse {
+        private final byte[] body;
+        private final String contentType;
+        private final String contentEncoding;
+        // id of the last cart of a page that has a next page, null for every other response
+        private final Integer lastCartId;
+
+        public CachedResponse(byte[] body, String contentType, String contentEncoding, Integer lastCartId) {
+            this.body = body;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.lastCartId = lastCartId;
+        }
+
+        /**
+         * Shared with the cache, must not be modified.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return {@code null} if the body is not compressed
+         */
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        public Integer getLastCartId() {
+            return lastCartId;
+        }
+    }
+}
@@ -1,96 +1,114 @@
 package xyz.prohinig.webservice.database;
 
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
 import xyz.prohinig.webservice.model.*;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
-public class BurgerDAO {
-
-    private static final String BURGER_ID_COLUMN = "id";
-    private static final String BURGER_PATTY_TYPE_COLUMN = "patty_type";
-    private static final String BURGER_CHEESE_COLUMN = "cheese";
-    private static final String BURGER_SALAD_COLUMN = "salad";
-    private static final String BURGER_TOMATO_COLUMN = "tomato";
+public class BurgerDAO implements BurgerStorage {
 
     private final DatabaseConnection databaseConnection;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+    private final ActiveCartRegistry activeCartRegistry;
 
-    public BurgerDAO(DatabaseConnection databaseConnection) {
+    public BurgerDAO(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                     ActiveCartRegistry activeCartRegistry) {
         this.databaseConnection = databaseConnection;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+        this.activeCartRegistry = activeCartRegistry;
     }
 
-    public List<Burger> getBurgersOfCart(Cart cart) {
-        try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
-            }
-
-            String getBurgersOfCartQuery = "SELECT burger.id, burger.patty_type, burger.cheese, burger.salad, burger.tomato"
-                    + " FROM burger INNER JOIN cart ON burger.cart_id = cart.id WHERE cart.id = ?;";
-
-            try (PreparedStatement preparedStatement = connection.prepareStatement(getBurgersOfCartQuery)) {
-                preparedStatement.setInt(1, cart.getId());
-                try (ResultSet resultSet = preparedStatement.executeQuery()) {
-
-                    List<Burger> burgerList = new ArrayList<>();
-
-                    while (resultSet.next()) {
-                        Burger burger = createBurgerFromResultSet(resultSet);
-                        burgerList.add(burger);
-                    }
+    @Override
+    public boolean persistBurger(Burger burger, Cart cart) {
+        return persistBurgers(List.of(burger), cart);
+    }
 
-                    return burgerList;
-                }
+    /**
+     * Writes all burgers to the cart with one multi-row insert and increments the version of the cart in the same
+     * transaction, so either all of them are persisted or none. The generated ids are set on the burgers.
+     *
+     * @throws CartVersionConflictException if the cart is no longer at the version it was read at
+     */
+    @Override
+    public boolean persistBurgers(List<Burger> burgers, Cart cart) {
+        long start = System.nanoTime();
+        Integer version = null;
+        try {
+            version = insertBurgersAndBumpVersion(burgers, cart);
+            return version != null;
+        } finally {
+            cartCache.invalidate(cart.getId());
+            if (version != null) {
+                cartCache.putVersion(cart.getId(), version);
+                activeCartRegistry.addBurgers(cart.getId(), burgers, version);
             }
-        } catch (SQLException e) {
-            throw new IllegalStateException();
+            statementRegistry.recordMethod(DaoMethod.BURGER_PERSIST, System.nanoTime() - start,
+                    version != null ? burgers.size() : 0);
         }
     }
 
-    public boolean persistBurger(Burger burger, Cart cart) {
-
+    private Integer insertBurgersAndBumpVersion(List<Burger> burgers, Cart cart) {
         try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
-            }
-            String insertBurgerStatement = "insert into burger(patty_type, cheese, salad, tomato, cart_id)" + " values(?, ?, ?, ?, ?);";
-
-            try (PreparedStatement preparedStatement = connection.prepareStatement(insertBurgerStatement, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                preparedStatement.setString(1, burger.getPattyType().name());
-                preparedStatement.setBoolean(2, burger.getCheese() != null);
-                preparedStatement.setBoolean(3, burger.getSalad() != null);
-                preparedStatement.setBoolean(4, burger.getTomato() != null);
-                preparedStatement.setInt(5, cart.getId());
-
-                preparedStatement.execute();
-                ResultSet resultSet = preparedStatement.getGeneratedKeys();
+            connection.setAutoCommit(false);
+            try {
+                // first, so the row lock keeps other writes to the cart out until the burgers are written
+                Integer version = CartDAO.bumpVersion(statementRegistry, connection, SqlStatement.BUMP_CART_VERSION_IF_UNCHANGED, cart);
+                if (!insertBurgers(statementRegistry, connection, burgers, cart.getId())) {
+                    version = null;
+                }
 
-                if (resultSet.next()) {
-                    burger.setId(resultSet.getInt(1));
-                    return true;
+                if (version != null) {
+                    connection.commit();
                 } else {
-                    return false;
+                    connection.rollback();
+                    burgers.forEach(burger -> burger.setId(null));
                 }
+                return version;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                burgers.forEach(burger -> burger.setId(null));
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            return null;
         }
     }
 
-    private Burger createBurgerFromResultSet(ResultSet burgerResultSet) throws SQLException {
-        int burgerId = burgerResultSet.getInt(BURGER_ID_COLUMN);
-        String pattyTypeString = burgerResultSet.getString(BURGER_PATTY_TYPE_COLUMN);
-        PattyType pattyType = PattyType.valueOf(pattyTypeString);
+    static boolean insertBurgers(StatementRegistry statementRegistry, Connection connection, List<Burger> burgers,
+                                 int cartId) throws SQLException {
+        SqlStatement insertBurgers = SqlStatement.insertBurgers(burgers.size());
+
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, insertBurgers)) {
+            int parameterIndex = 1;
+            for (Burger burger : burgers) {
+                preparedStatement.setInt(parameterIndex++, burger.getPattyType().getCode());
+                preparedStatement.setBoolean(parameterIndex++, burger.hasIngredient(Burger.CHEESE));
+                preparedStatement.setBoolean(parameterIndex++, burger.hasIngredient(Burger.SALAD));
+                preparedStatement.setBoolean(parameterIndex++, burger.hasIngredient(Burger.TOMATO));
+                preparedStatement.setInt(parameterIndex++, cartId);
+            }
 
-        boolean hasCheese = burgerResultSet.getBoolean(BURGER_CHEESE_COLUMN);
-        boolean hasTomato = burgerResultSet.getBoolean(BURGER_TOMATO_COLUMN);
-        boolean hasSalad = burgerResultSet.getBoolean(BURGER_SALAD_COLUMN);
+            statementRegistry.executeUpdate(insertBurgers, preparedStatement);
 
-        return new Burger(burgerId, pattyType, hasCheese ? new Cheese() : null, hasSalad ? new Salad() : null, hasTomato ? new Tomato() : null);
+            // generated keys are returned in the order of the value rows
+            try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                for (Burger burger : burgers) {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    burger.setId(resultSet.getInt(1));
+                }
+            }
+            return true;
+        }
     }
-
 }
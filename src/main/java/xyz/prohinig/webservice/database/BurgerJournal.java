@@ -0,0 +1,266 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of burgers accepted by the {@link BurgerWriteBehind} but not yet written to the database.
+ * <p>
+ * Every record is numbered and protected by a checksum. An append returns once the record is on disk. Threads
+ * appending at the same time share one {@link FileChannel#force(boolean)}. On open, records after the first
+ * incomplete or corrupt one are cut off. The records after the last sequence written to the database are
+ * recovered.
+ * <p>
+ * A failed append leaves nothing behind, its record is cut off again and its sequence is handed out to the next
+ * record. Once a force fails, whether the records written since the last force are on disk is unknown: they are cut
+ * off, their appends fail and the journal accepts no more records until it is opened again.
+ */
+public class BurgerJournal implements AutoCloseable {
+
+    // sequence, cart id, patty type code, ingredients, checksum
+    static final int RECORD_SIZE = Long.BYTES + Integer.BYTES + 2 + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 checksum = new CRC32();
+    private final List<Entry> recoveredEntries;
+    private final Object syncLock = new Object();
+
+    // guarded by this
+    private long nextSequence;
+    private long endPosition;
+    private long durableEndPosition;
+    private IOException failure;
+    private volatile long writtenSequence;
+    // guarded by syncLock
+    private long durableSequence;
+
+    /**
+     * @param lastFlushedSequence the last sequence that is already written to the database
+     */
+    public BurgerJournal(Path path, long lastFlushedSequence) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                lastFlushedSequence);
+    }
+
+    BurgerJournal(FileChannel channel, long lastFlushedSequence) throws IOException {
+        this.channel = channel;
+
+        List<Entry> entries = new ArrayList<>();
+        long lastSequence = recover(entries, lastFlushedSequence);
+        recoveredEntries = Collections.unmodifiableList(entries);
+
+        nextSequence = Math.max(lastSequence, lastFlushedSequence) + 1;
+        endPosition = channel.size();
+        durableEndPosition = endPosition;
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+    }
+
+    /**
+     * The records that were in the journal on open but not yet written to the database, in sequence order.
+     */
+    public List<Entry> getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * Appends the burger and returns once it is on disk.
+     *
+     * @return the sequence of the record
+     * @throws UncheckedIOException if the record could not be written or forced to disk, it is not in the journal
+     */
+    public long append(int cartId, Burger burger) {
+        long sequence;
+        synchronized (this) {
+            verifyNotFailed();
+            sequence = nextSequence;
+            recordBuffer.clear();
+            writeRecord(recordBuffer, sequence, cartId, burger.getPattyType().getCode(), burger.getIngredients());
+            recordBuffer.flip();
+            try {
+                while (recordBuffer.hasRemaining()) {
+                    channel.write(recordBuffer, endPosition + recordBuffer.position());
+                }
+            } catch (IOException e) {
+                // a torn record would cut off the records appended after it on the next open
+                cutOff(endPosition, e);
+                throw new UncheckedIOException("could not append to the journal", e);
+            }
+            nextSequence++;
+            endPosition += RECORD_SIZE;
+            writtenSequence = sequence;
+        }
+
+        sync(sequence);
+        return sequence;
+    }
+
+    /**
+     * Empties the journal if {@code sequence} is the last appended record, once every record is in the database.
+     */
+    public synchronized void truncateThrough(long sequence) {
+        if (writtenSequence != sequence) {
+            return;
+        }
+        try {
+            // records that come back after a crash are skipped on open, they are not after the flushed sequence
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not truncate the journal", e);
+        }
+        // every record is flushed, so none is waiting for a force
+        endPosition = 0;
+        durableEndPosition = 0;
+    }
+
+    public long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // whoever gets the lock first forces every record written so far, the threads behind it find theirs on disk
+    private void sync(long sequence) {
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+
+            long written;
+            long writtenEndPosition;
+            synchronized (this) {
+                verifyNotFailed();
+                written = writtenSequence;
+                writtenEndPosition = endPosition;
+            }
+
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    cutOff(durableEndPosition, e);
+                    failure = e;
+                }
+                throw new UncheckedIOException("could not force the journal to disk", e);
+            }
+
+            durableSequence = written;
+            synchronized (this) {
+                durableEndPosition = writtenEndPosition;
+            }
+        }
+    }
+
+    // must hold this
+    private void cutOff(long position, IOException cause) {
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            // the records after the position may come back on the next open, no record is appended after them
+            cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    // must hold this
+    private void verifyNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("the journal failed, it accepts no records until it is opened again", failure);
+        }
+    }
+
+    private long recover(List<Entry> entries, long lastFlushedSequence) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long position = 0;
+        long lastSequence = 0;
+
+        while (true) {
+            record.clear();
+            while (record.hasRemaining() && channel.read(record, position + record.position()) > 0) {
+                // keep reading until the record is complete or the file ends
+            }
+            if (record.hasRemaining()) {
+                break;
+            }
+
+            record.flip();
+            long sequence = record.getLong();
+            int cartId = record.getInt();
+            byte pattyTypeCode = record.get();
+            byte ingredients = record.get();
+            int storedChecksum = record.getInt();
+
+            if (storedChecksum != checksum(record) || sequence <= lastSequence) {
+                break;
+            }
+
+            if (sequence > lastFlushedSequence) {
+                entries.add(new Entry(sequence, cartId, new Burger(PattyType.fromCode(pattyTypeCode), ingredients)));
+            }
+            lastSequence = sequence;
+            position += RECORD_SIZE;
+        }
+
+        // cut off a record that was only partially written before a crash
+        channel.truncate(position);
+        return lastSequence;
+    }
+
+    private void writeRecord(ByteBuffer record, long sequence, int cartId, int pattyTypeCode, int ingredients) {
+        record.putLong(sequence)
+                .putInt(cartId)
+                .put((byte) pattyTypeCode)
+                .put((byte) ingredients);
+        record.putInt(checksum(record));
+    }
+
+    // covers every field of the record but the checksum itself
+    private int checksum(ByteBuffer record) {
+        checksum.reset();
+        checksum.update(record.array(), 0, RECORD_SIZE - Integer.BYTES);
+        return (int) checksum.getValue();
+    }
+
+    public static class Entry {
+        private final long sequence;
+        private final int cartId;
+        private final Burger burger;
+
+        Entry(long sequence, int cartId, Burger burger) {
+            this.sequence = sequence;
+            this.cartId = cartId;
+            this.burger = burger;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getCartId() {
+            return cartId;
+        }
+
+        public Burger getBurger() {
+            return burger;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.List;
+
+/**
+ * Where burgers are added to carts, {@link BurgerDAO} adds them in the database and {@link InMemoryBurgerDAO} in memory.
+ */
+public interface BurgerStorage {
+
+    boolean persistBurger(Burger burger, Cart cart);
+
+    /**
+     * Adds all burgers to the cart and increments its version, either all of them or none. The new ids are set on the
+     * burgers.
+     *
+     * @throws CartVersionConflictException if the cart is no longer at the version it was read at
+     */
+    boolean persistBurgers(List<Burger> burgers, Cart cart);
+}
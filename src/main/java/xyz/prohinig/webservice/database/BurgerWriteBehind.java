@@ -0,0 +1,648 @@
+package xyz.prohinig.webservice.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.dto.WriteBehindStatsDto;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts burgers into a {@link BurgerJournal} and writes them to the database in the background.
+ * <p>
+ * Every batch is one transaction that inserts the burgers, increments the version of each of their carts and moves
+ * the checkpoint of the journal forward, so a burger replayed from the journal after a crash is written exactly once.
+ * Batches are taken in sequence order and stop at a sequence that is still being appended. Until a burger is
+ * written, {@link #merge(Cart, List)} adds it to the carts read from the database.
+ * <p>
+ * A burger is only accepted for a cart that is still as it was read, so no two requests add a burger to the same
+ * state of a cart. The cart is checked against the version the {@link CartCache} knows of, the database is only read
+ * if it knows none. A batch that would take a cart over {@link Cart#MAX_BURGERS}, because the cart was written to
+ * around the write-behind, drops the burgers that do not fit. Every drop is logged and its cart shows up in the
+ * {@link #getStatistics() statistics}.
+ */
+public class BurgerWriteBehind implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BurgerWriteBehind.class);
+
+    // SQLSTATE class of integrity constraint violations, such as burgers of a deleted cart
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+    private static final String CHECK_VIOLATION = "23514";
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_DROPPED_CART_IDS = 100;
+
+    private final DatabaseConnection databaseConnection;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+    private final ActiveCartRegistry activeCartRegistry;
+    private final Path journalPath;
+    private final String journalId;
+    private final Duration flushInterval;
+    private final int maxBatchSize;
+
+    private final ConcurrentNavigableMap<Long, PendingBurger> pendingBySequence = new ConcurrentSkipListMap<>();
+    // replaced, never modified, so readers can hold on to a list
+    private final ConcurrentMap<Integer, List<PendingBurger>> pendingByCart = new ConcurrentHashMap<>();
+    // burgers of the same cart are checked and appended one at a time
+    private final Object[] appendLocks = new Object[LOCK_STRIPES];
+
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    // the carts of the latest drops, each once, oldest first
+    private final Deque<Integer> droppedCartIds = new ArrayDeque<>();
+
+    private BurgerJournal journal;
+    private ScheduledExecutorService flusher;
+    // guarded by this
+    private long lastFlushedSequence;
+
+    public BurgerWriteBehind(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                             ActiveCartRegistry activeCartRegistry, Path journalPath, String journalId,
+                             Duration flushInterval, int maxBatchSize) {
+        this.databaseConnection = databaseConnection;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+        this.activeCartRegistry = activeCartRegistry;
+        this.journalPath = journalPath;
+        this.journalId = journalId;
+        this.flushInterval = flushInterval;
+        this.maxBatchSize = maxBatchSize;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            appendLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Opens the journal, takes over the burgers it holds that are not written yet and starts flushing.
+     *
+     * @throws IllegalStateException if the checkpoint cannot be read or the journal cannot be opened
+     */
+    public synchronized void start() {
+        lastFlushedSequence = readCheckpoint();
+        try {
+            journal = openJournal(lastFlushedSequence);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not open the journal " + journalPath, e);
+        }
+        journal.getRecoveredEntries().forEach(this::addPending);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "burger-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    BurgerJournal openJournal(long lastFlushedSequence) throws IOException {
+        return new BurgerJournal(journalPath, lastFlushedSequence);
+    }
+
+    /**
+     * Appends the burger to the journal and returns once it is on disk. The burger gets its id once it is written to
+     * the database.
+     *
+     * @param cart the cart as it was read, with its pending burgers
+     * @throws CartVersionConflictException if the cart was written to or got another burger since it was read
+     * @throws SQLException                 if the version of the cart is not known and it could not be read, the
+     *                                      burger is not written
+     * @throws UncheckedIOException         if the burger could not be appended, it is not written
+     */
+    public void add(Burger burger, Cart cart) throws SQLException {
+        int cartId = cart.getId();
+        synchronized (appendLocks[Math.floorMod(cartId, LOCK_STRIPES)]) {
+            verifyUnchanged(cart);
+            long sequence = journal.append(cartId, burger);
+            addPending(new BurgerJournal.Entry(sequence, cartId, burger));
+        }
+        cartCache.notifyWritten(cartId);
+        appendedCount.incrementAndGet();
+    }
+
+    public boolean hasPending(int cartId) {
+        return pendingByCart.containsKey(cartId);
+    }
+
+    /**
+     * The burgers of the cart that are not known to be written yet, in the order they were added. Must be taken
+     * before the cart is read from the database and handed to {@link #merge(Cart, List)} with it.
+     */
+    public List<PendingBurger> getPending(int cartId) {
+        return pendingByCart.getOrDefault(cartId, List.of());
+    }
+
+    /**
+     * Adds the pending burgers the cart read from the database does not contain yet. Every cart gets copies of them,
+     * which {@link #flushInto(Cart)} recognizes.
+     */
+    public Cart merge(Cart cart, List<PendingBurger> pending) {
+        for (PendingBurger pendingBurger : pending) {
+            if (!pendingBurger.isWrittenIn(cart.getVersion())) {
+                cart.addBurger(pendingBurger.copyBurger(pending));
+            }
+        }
+        return cart;
+    }
+
+    /**
+     * Writes the pending burgers of a cart that was read with them, and moves the cart onto the version that holds
+     * them. The copies of the pending burgers in the cart get their ids, burgers the caller added stay new and those
+     * it removed stay removed, so the cart can be written right away.
+     *
+     * @return {@code false} if the pending burgers could not be written
+     * @throws CartVersionConflictException if the cart was written to or got another burger since it was read, or
+     *                                      no longer holds any of its pending burgers
+     * @throws SQLException                 if the version of the cart could not be read
+     */
+    public boolean flushInto(Cart cart) throws SQLException {
+        int cartId = cart.getId();
+        // no burger is accepted for the cart until the pending ones are written
+        synchronized (appendLocks[Math.floorMod(cartId, LOCK_STRIPES)]) {
+            List<PendingBurger> pending = getPending(cartId);
+            if (pending.isEmpty()) {
+                return true;
+            }
+
+            List<PendingBurgerCopy> copies = new ArrayList<>(pending.size());
+            for (Burger burger : cart.getBurgers()) {
+                if (burger instanceof PendingBurgerCopy && burger.getId() == null) {
+                    copies.add((PendingBurgerCopy) burger);
+                }
+            }
+            // at the same version nothing was written since the read, the burgers pending then are still pending
+            List<PendingBurger> pendingAtRead = copies.isEmpty() ? List.of() : copies.get(0).pendingAtRead;
+            if (!pendingAtRead.containsAll(pending) || !isUnchanged(cart)) {
+                throw new CartVersionConflictException(cartId, cart.getVersion());
+            }
+
+            flush();
+            if (hasPending(cartId)) {
+                return false;
+            }
+            // a dropped burger is not part of the cart, written again it would bypass the check that dropped it
+            if (pending.stream().anyMatch(pendingBurger -> pendingBurger.id == null)) {
+                throw new CartVersionConflictException(cartId, cart.getVersion());
+            }
+
+            // only the batches of these burgers may have moved the version since the cart was read
+            long flushedVersions = pending.stream().mapToInt(pendingBurger -> pendingBurger.flushedInVersion).distinct().count();
+            int latestFlushedVersion = pending.get(pending.size() - 1).flushedInVersion;
+            int[] versionAndBurgerCount;
+            try (Connection connection = databaseConnection.getConnection()) {
+                versionAndBurgerCount = readVersionAndBurgerCount(connection, cartId);
+            }
+            if (versionAndBurgerCount == null || versionAndBurgerCount[0] != latestFlushedVersion
+                    || latestFlushedVersion - cart.getVersion() != flushedVersions) {
+                throw new CartVersionConflictException(cartId, cart.getVersion());
+            }
+
+            copies.forEach(copy -> copy.setId(copy.pendingBurger.id));
+            cart.setVersion(latestFlushedVersion);
+            return true;
+        }
+    }
+
+    /**
+     * Adds the burgers that are not written yet to a summary read from the database. A burger whose transaction
+     * commits while the summary is read may be missing from it, it is never counted twice.
+     */
+    public CartSummary merge(CartSummary summary) {
+        List<PendingBurger> pending = pendingByCart.get(summary.getId());
+        if (pending == null) {
+            return summary;
+        }
+
+        int burgerCount = summary.getBurgerCount();
+        long totalInCents = summary.getTotalInCents();
+        for (PendingBurger pendingBurger : pending) {
+            if (pendingBurger.flushedInVersion == 0) {
+                burgerCount++;
+                totalInCents += pendingBurger.burger.getPriceInCents();
+            }
+        }
+        return new CartSummary(summary.getId(), summary.isCheckedOut(), burgerCount, totalInCents);
+    }
+
+    /**
+     * Writes every pending burger that can be written. Burgers that can never be written, because their cart is gone,
+     * are dropped. If the database is not available, the rest is left for the next flush.
+     */
+    public synchronized void flush() {
+        while (true) {
+            List<PendingBurger> batch = nextBatch();
+            if (batch.isEmpty() || !writeBatch(batch)) {
+                return;
+            }
+        }
+    }
+
+    public WriteBehindStatsDto getStatistics() {
+        List<Integer> droppedCartIds;
+        synchronized (this.droppedCartIds) {
+            droppedCartIds = List.copyOf(this.droppedCartIds);
+        }
+        return new WriteBehindStatsDto(appendedCount.get(), flushedCount.get(), droppedCount.get(), droppedCartIds,
+                pendingBySequence.size(), journal == null ? 0 : journal.size());
+    }
+
+    /**
+     * Writes what is pending and stops flushing. Burgers that could not be written stay in the journal.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flush();
+        journal.close();
+        flusher = null;
+    }
+
+    /**
+     * Stops flushing and closes the journal without writing what is pending, as if the process died.
+     */
+    synchronized void halt() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        journal.close();
+        flusher = null;
+    }
+
+    // whether the cart is still at the version it was read at, called with the append lock of the cart held
+    private boolean isUnchanged(Cart cart) throws SQLException {
+        Integer knownVersion = cartCache.getVersion(cart.getId());
+        if (knownVersion == null || knownVersion < cart.getVersion()) {
+            int[] versionAndBurgerCount;
+            try (Connection connection = databaseConnection.getConnection()) {
+                versionAndBurgerCount = readVersionAndBurgerCount(connection, cart.getId());
+            }
+            return versionAndBurgerCount != null && versionAndBurgerCount[0] == cart.getVersion();
+        }
+        return knownVersion == cart.getVersion();
+    }
+
+    // called with the append lock of the cart held
+    private void verifyUnchanged(Cart cart) throws SQLException {
+        Integer knownVersion = cartCache.getVersion(cart.getId());
+        if (knownVersion == null || knownVersion < cart.getVersion()) {
+            verifyUnchangedInDatabase(cart);
+            return;
+        }
+
+        // every write moves the known version, at the same version only the pending burgers can differ, a burger read
+        // before its id was set is counted as added since the read
+        long unwrittenCount = getPending(cart.getId()).stream().filter(pendingBurger -> pendingBurger.id == null).count();
+        long readUnwrittenCount = cart.getBurgers().stream().filter(burger -> burger.getId() == null).count();
+        if (knownVersion != cart.getVersion() || unwrittenCount != readUnwrittenCount) {
+            throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+        }
+    }
+
+    // reads the cart the way it was read for the request
+    private void verifyUnchangedInDatabase(Cart cart) throws SQLException {
+        List<PendingBurger> pending = getPending(cart.getId());
+        int[] versionAndBurgerCount;
+        try (Connection connection = databaseConnection.getConnection()) {
+            versionAndBurgerCount = readVersionAndBurgerCount(connection, cart.getId());
+        }
+        if (versionAndBurgerCount == null) {
+            throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+        }
+
+        int version = versionAndBurgerCount[0];
+        int burgerCount = versionAndBurgerCount[1];
+        for (PendingBurger pendingBurger : pending) {
+            if (!pendingBurger.isWrittenIn(version)) {
+                burgerCount++;
+            }
+        }
+        if (version != cart.getVersion() || burgerCount != cart.getBurgers().size()) {
+            throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+        }
+    }
+
+    /**
+     * @return the version of the cart and the number of its burgers in the database, {@code null} if it is gone
+     */
+    private int[] readVersionAndBurgerCount(Connection connection, int cartId) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.CART_VERSION_AND_BURGER_COUNT)) {
+            preparedStatement.setInt(1, cartId);
+            try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.CART_VERSION_AND_BURGER_COUNT, preparedStatement)) {
+                return resultSet.next() ? new int[]{resultSet.getInt(1), resultSet.getInt(2)} : null;
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // an exception would cancel every later run, the burgers stay pending until the next one
+        }
+    }
+
+    // sequences are consecutive, a gap is a burger that is still being appended and has to be written first
+    private List<PendingBurger> nextBatch() {
+        List<PendingBurger> batch = new ArrayList<>();
+        long expectedSequence = lastFlushedSequence + 1;
+        for (PendingBurger pendingBurger : pendingBySequence.values()) {
+            if (batch.size() == maxBatchSize || pendingBurger.sequence != expectedSequence) {
+                break;
+            }
+            batch.add(pendingBurger);
+            expectedSequence++;
+        }
+        return batch;
+    }
+
+    /**
+     * @return {@code false} if the database is not available
+     */
+    private boolean writeBatch(List<PendingBurger> batch) {
+        try {
+            completeFlush(batch, writeInTransaction(batch));
+            return true;
+        } catch (SQLException e) {
+            // one of the burgers cannot be written, find it by writing them one at a time
+            for (PendingBurger pendingBurger : batch) {
+                if (!writeSingle(pendingBurger)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (ConnectionUnavailableException e) {
+            return false;
+        }
+    }
+
+    private boolean writeSingle(PendingBurger pendingBurger) {
+        SQLException failure;
+        try {
+            completeFlush(List.of(pendingBurger), writeInTransaction(List.of(pendingBurger)));
+            return true;
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                return false;
+            }
+            failure = e;
+        } catch (ConnectionUnavailableException e) {
+            return false;
+        }
+
+        try {
+            skip(pendingBurger);
+        } catch (SQLException | ConnectionUnavailableException e) {
+            return false;
+        }
+        completeFlush(List.of(pendingBurger), Map.of());
+        recordDrop(pendingBurger, failure);
+        return true;
+    }
+
+    // the burger was acknowledged to the client, losing it must not go unnoticed
+    private void recordDrop(PendingBurger pendingBurger, SQLException failure) {
+        LOGGER.warn("Dropped burger {} of cart {}, it cannot be written: {}", pendingBurger.sequence,
+                pendingBurger.cartId, failure.getMessage());
+        droppedCount.incrementAndGet();
+        synchronized (droppedCartIds) {
+            droppedCartIds.removeFirstOccurrence(pendingBurger.cartId);
+            droppedCartIds.addLast(pendingBurger.cartId);
+            if (droppedCartIds.size() > MAX_DROPPED_CART_IDS) {
+                droppedCartIds.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return the new version of every cart of the batch
+     */
+    private Map<Integer, Integer> writeInTransaction(List<PendingBurger> batch) throws SQLException {
+        Map<Integer, List<PendingBurger>> batchByCart = new LinkedHashMap<>();
+        for (PendingBurger pendingBurger : batch) {
+            batchByCart.computeIfAbsent(pendingBurger.cartId, cartId -> new ArrayList<>()).add(pendingBurger);
+        }
+
+        try (Connection connection = databaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Map<Integer, Integer> versionsByCart = new LinkedHashMap<>();
+                for (Map.Entry<Integer, List<PendingBurger>> cartBatch : batchByCart.entrySet()) {
+                    int cartId = cartBatch.getKey();
+                    insertBurgers(connection, cartBatch.getValue(), cartId);
+
+                    Integer version = CartDAO.bumpVersion(statementRegistry, connection, SqlStatement.BUMP_CART_VERSION, cartId);
+                    if (version == null) {
+                        throw new SQLException("cart " + cartId + " does not exist", "23503");
+                    }
+                    // counted with the row lock of the cart held, the burgers that do not fit are dropped one at a time
+                    int[] versionAndBurgerCount = readVersionAndBurgerCount(connection, cartId);
+                    if (versionAndBurgerCount[1] > Cart.MAX_BURGERS) {
+                        throw new SQLException("cart " + cartId + " would hold more than " + Cart.MAX_BURGERS + " burgers",
+                                CHECK_VIOLATION);
+                    }
+                    versionsByCart.put(cartId, version);
+                    // readers that see the new version must not add the burgers again, before the commit makes it visible
+                    cartBatch.getValue().forEach(pendingBurger -> pendingBurger.flushedInVersion = version);
+                }
+
+                writeCheckpoint(connection, batch.get(batch.size() - 1).sequence);
+                connection.commit();
+                return versionsByCart;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                batch.forEach(pendingBurger -> {
+                    pendingBurger.flushedInVersion = 0;
+                    pendingBurger.insertedBurger = null;
+                });
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // the pending burgers may be read concurrently, the ids are set on copies until the transaction commits
+    private void insertBurgers(Connection connection, List<PendingBurger> cartBatch, int cartId) throws SQLException {
+        for (int from = 0; from < cartBatch.size(); from += Cart.MAX_BURGERS) {
+            List<PendingBurger> chunk = cartBatch.subList(from, Math.min(from + Cart.MAX_BURGERS, cartBatch.size()));
+            List<Burger> burgers = new ArrayList<>(chunk.size());
+            for (PendingBurger pendingBurger : chunk) {
+                pendingBurger.insertedBurger = new Burger(pendingBurger.burger.getPattyType(), pendingBurger.burger.getIngredients());
+                burgers.add(pendingBurger.insertedBurger);
+            }
+
+            if (!BurgerDAO.insertBurgers(statementRegistry, connection, burgers, cartId)) {
+                throw new SQLException("no ids were generated for the burgers of cart " + cartId);
+            }
+        }
+    }
+
+    // moves the checkpoint past a burger that is not written
+    private void skip(PendingBurger pendingBurger) throws SQLException {
+        try (Connection connection = databaseConnection.getConnection()) {
+            writeCheckpoint(connection, pendingBurger.sequence);
+        }
+    }
+
+    private void writeCheckpoint(Connection connection, long sequence) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.UPDATE_WRITE_BEHIND_CHECKPOINT)) {
+            preparedStatement.setLong(1, sequence);
+            preparedStatement.setString(2, journalId);
+            if (statementRegistry.executeUpdate(SqlStatement.UPDATE_WRITE_BEHIND_CHECKPOINT, preparedStatement) > 0) {
+                return;
+            }
+        }
+
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.INSERT_WRITE_BEHIND_CHECKPOINT)) {
+            preparedStatement.setString(1, journalId);
+            preparedStatement.setLong(2, sequence);
+            statementRegistry.executeUpdate(SqlStatement.INSERT_WRITE_BEHIND_CHECKPOINT, preparedStatement);
+        }
+    }
+
+    private long readCheckpoint() {
+        try (Connection connection = databaseConnection.getConnection();
+             PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.WRITE_BEHIND_CHECKPOINT)) {
+            preparedStatement.setString(1, journalId);
+            try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.WRITE_BEHIND_CHECKPOINT, preparedStatement)) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not read the checkpoint of the journal " + journalId, e);
+        }
+    }
+
+    private void completeFlush(List<PendingBurger> batch, Map<Integer, Integer> versionsByCart) {
+        for (Map.Entry<Integer, Integer> cartVersion : versionsByCart.entrySet()) {
+            int cartId = cartVersion.getKey();
+            List<Burger> insertedBurgers = new ArrayList<>();
+            for (PendingBurger pendingBurger : batch) {
+                if (pendingBurger.cartId == cartId) {
+                    // carts merged from now until the burger is no longer pending get the id
+                    pendingBurger.id = pendingBurger.insertedBurger.getId();
+                    insertedBurgers.add(pendingBurger.insertedBurger);
+                }
+            }
+
+            cartCache.invalidate(cartId);
+            cartCache.putVersion(cartId, cartVersion.getValue());
+            activeCartRegistry.addBurgers(cartId, insertedBurgers, cartVersion.getValue());
+        }
+
+        for (PendingBurger pendingBurger : batch) {
+            removePending(pendingBurger);
+        }
+        lastFlushedSequence = batch.get(batch.size() - 1).sequence;
+        flushedCount.addAndGet(versionsByCart.isEmpty() ? 0 : batch.size());
+
+        try {
+            journal.truncateThrough(lastFlushedSequence);
+        } catch (UncheckedIOException e) {
+            // the records are skipped on the next start, they are before the checkpoint
+        }
+    }
+
+    private void addPending(BurgerJournal.Entry entry) {
+        PendingBurger pendingBurger = new PendingBurger(entry.getSequence(), entry.getCartId(), entry.getBurger());
+        pendingBySequence.put(pendingBurger.sequence, pendingBurger);
+        pendingByCart.compute(pendingBurger.cartId, (cartId, pending) -> {
+            List<PendingBurger> updatedPending = pending == null ? new ArrayList<>(1) : new ArrayList<>(pending);
+            updatedPending.add(pendingBurger);
+            // burgers appended at the same time may arrive out of order
+            updatedPending.sort(Comparator.comparingLong(PendingBurger::getSequence));
+            return List.copyOf(updatedPending);
+        });
+    }
+
+    private void removePending(PendingBurger pendingBurger) {
+        pendingBySequence.remove(pendingBurger.sequence);
+        pendingByCart.computeIfPresent(pendingBurger.cartId, (cartId, pending) -> {
+            List<PendingBurger> updatedPending = new ArrayList<>(pending);
+            updatedPending.remove(pendingBurger);
+            return updatedPending.isEmpty() ? null : List.copyOf(updatedPending);
+        });
+    }
+
+    /**
+     * A burger accepted into the journal that is not known to be written yet.
+     */
+    public static class PendingBurger {
+        private final long sequence;
+        private final int cartId;
+        private final Burger burger;
+        // the version of the cart the burger is part of, 0 until its transaction is about to commit
+        private volatile int flushedInVersion;
+        // null until its transaction committed
+        private volatile Integer id;
+        // guarded by the BurgerWriteBehind
+        private Burger insertedBurger;
+
+        PendingBurger(long sequence, int cartId, Burger burger) {
+            this.sequence = sequence;
+            this.cartId = cartId;
+            this.burger = burger;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        // a burger is part of every version from the one its transaction produced on
+        private boolean isWrittenIn(int version) {
+            int flushedInVersion = this.flushedInVersion;
+            return flushedInVersion != 0 && version >= flushedInVersion;
+        }
+
+        // the burger handed to the writer is never modified, it is shared by the flusher and the readers
+        private Burger copyBurger(List<PendingBurger> pendingAtRead) {
+            Burger copy = new PendingBurgerCopy(this, pendingAtRead);
+            copy.setId(id);
+            return copy;
+        }
+    }
+
+    /**
+     * A pending burger as it was merged into a cart, with all burgers that were pending for the cart at the time.
+     */
+    private static final class PendingBurgerCopy extends Burger {
+        private final PendingBurger pendingBurger;
+        private final List<PendingBurger> pendingAtRead;
+
+        PendingBurgerCopy(PendingBurger pendingBurger, List<PendingBurger> pendingAtRead) {
+            super(pendingBurger.burger.getPattyType(), pendingBurger.burger.getIngredients());
+            this.pendingBurger = pendingBurger;
+            this.pendingAtRead = pendingAtRead;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.dto.ArchiveStatsDto;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves checked out carts from the cart and burger tables to {@code cart_archive} once they were checked out for
+ * long enough, so the hot tables and their indexes only hold carts that are still in use. Every archived cart is one
+ * row, its burgers packed into {@value #BYTES_PER_BURGER} bytes each.
+ * <p>
+ * {@link CartDAO#getCartByID(int)} and {@link CartDAO#deleteCart(Cart)} fall through to the archive for carts that are
+ * not in the hot tables.
+ */
+public class CartArchiver implements AutoCloseable {
+
+    // the id of the burger and its patty type and ingredients in one byte
+    static final int BYTES_PER_BURGER = Integer.BYTES + 1;
+
+    private static final String CART_ID_COLUMN = "cart_id";
+    private static final String CART_VERSION_COLUMN = "version";
+    private static final String CART_CHECKED_OUT_AT_COLUMN = "checked_out_at";
+    private static final String BURGER_ID_COLUMN = "id";
+
+    private final DatabaseConnection databaseConnection;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+    private final Duration minAge;
+    private final Duration interval;
+    private final int batchSize;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong archivedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    private ScheduledExecutorService archiver;
+
+    public CartArchiver(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                        Duration minAge, Duration interval, int batchSize) {
+        this.databaseConnection = databaseConnection;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+        this.minAge = minAge;
+        this.interval = interval;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void start() {
+        archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(this::archiveInBackground, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archives every cart that was checked out at least the minimum age ago, one transaction per batch.
+     *
+     * @return the number of archived carts
+     */
+    public synchronized int archive() {
+        runCount.incrementAndGet();
+        OffsetDateTime checkedOutBefore = OffsetDateTime.now(ZoneOffset.UTC).minus(minAge);
+
+        int archived = 0;
+        while (true) {
+            long start = System.nanoTime();
+            List<Integer> archivedCartIds = List.of();
+            try {
+                archivedCartIds = archiveBatch(checkedOutBefore);
+            } finally {
+                statementRegistry.recordMethod(DaoMethod.CART_ARCHIVE, System.nanoTime() - start, archivedCartIds.size());
+            }
+
+            // the carts are the same as before, but pages listing them are not
+            archivedCartIds.forEach(cartCache::notifyWritten);
+            archived += archivedCartIds.size();
+            archivedCount.addAndGet(archivedCartIds.size());
+            if (archivedCartIds.isEmpty()) {
+                return archived;
+            }
+        }
+    }
+
+    public ArchiveStatsDto getStatistics() {
+        return new ArchiveStatsDto(runCount.get(), archivedCount.get(), skippedCount.get());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (archiver != null) {
+            archiver.shutdownNow();
+            archiver = null;
+        }
+    }
+
+    static byte[] packBurgers(List<Burger> burgers) {
+        ByteBuffer packed = ByteBuffer.allocate(burgers.size() * BYTES_PER_BURGER);
+        for (Burger burger : burgers) {
+            packed.putInt(burger.getId());
+            packed.put((byte) (burger.getPattyType().getCode() * Burger.INGREDIENT_MASK_COUNT + burger.getIngredients()));
+        }
+        return packed.array();
+    }
+
+    static Cart unpackCart(int cartId, int version, byte[] burgers) {
+        Cart cart = new Cart(cartId, true);
+        cart.setVersion(version);
+
+        ByteBuffer packed = ByteBuffer.wrap(burgers);
+        while (packed.remaining() >= BYTES_PER_BURGER) {
+            int burgerId = packed.getInt();
+            int code = packed.get();
+            cart.addBurger(new Burger(burgerId, PattyType.fromCode(code / Burger.INGREDIENT_MASK_COUNT),
+                    code % Burger.INGREDIENT_MASK_COUNT));
+        }
+        return cart;
+    }
+
+    private void archiveInBackground() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            // an exception would cancel every later run, the carts are archived by the next one
+        }
+    }
+
+    /**
+     * @return the ids of the archived carts, empty if there were no more carts to archive
+     */
+    private List<Integer> archiveBatch(OffsetDateTime checkedOutBefore) {
+        try (Connection connection = databaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Map<Integer, ArchivableCart> carts = readArchivableCarts(connection, checkedOutBefore);
+                if (carts.isEmpty()) {
+                    connection.rollback();
+                    return List.of();
+                }
+
+                insertArchivedCarts(connection, carts.values());
+                List<Integer> archivedCartIds = deleteUnchangedCarts(connection, carts);
+                connection.commit();
+
+                skippedCount.addAndGet(carts.size() - archivedCartIds.size());
+                return archivedCartIds;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not archive carts", e);
+        }
+    }
+
+    private Map<Integer, ArchivableCart> readArchivableCarts(Connection connection, OffsetDateTime checkedOutBefore)
+            throws SQLException {
+        Map<Integer, ArchivableCart> carts = new LinkedHashMap<>();
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.ARCHIVABLE_CARTS_WITH_BURGERS)) {
+            preparedStatement.setObject(1, checkedOutBefore);
+            preparedStatement.setInt(2, batchSize);
+            try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.ARCHIVABLE_CARTS_WITH_BURGERS, preparedStatement)) {
+                while (resultSet.next()) {
+                    int cartId = resultSet.getInt(CART_ID_COLUMN);
+                    ArchivableCart cart = carts.get(cartId);
+                    if (cart == null) {
+                        cart = new ArchivableCart(cartId, resultSet.getInt(CART_VERSION_COLUMN),
+                                resultSet.getObject(CART_CHECKED_OUT_AT_COLUMN, OffsetDateTime.class));
+                        carts.put(cartId, cart);
+                    }
+
+                    if (resultSet.getObject(BURGER_ID_COLUMN) != null) {
+                        cart.burgers.add(CartDAO.createBurgerFromResultSet(resultSet));
+                    }
+                }
+            }
+        }
+        return carts;
+    }
+
+    private void insertArchivedCarts(Connection connection, Iterable<ArchivableCart> carts) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.INSERT_ARCHIVED_CART)) {
+            for (ArchivableCart cart : carts) {
+                preparedStatement.setInt(1, cart.id);
+                preparedStatement.setInt(2, cart.version);
+                preparedStatement.setObject(3, cart.checkedOutAt);
+                preparedStatement.setBytes(4, packBurgers(cart.burgers));
+                preparedStatement.addBatch();
+            }
+            statementRegistry.executeBatch(SqlStatement.INSERT_ARCHIVED_CART, preparedStatement);
+        }
+    }
+
+    // carts written since they were read are taken out of the archive again, within the same transaction
+    private List<Integer> deleteUnchangedCarts(Connection connection, Map<Integer, ArchivableCart> carts) throws SQLException {
+        List<ArchivableCart> batch = new ArrayList<>(carts.values());
+        int[] deletedRows;
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.DELETE_CART_IF_UNCHANGED)) {
+            for (ArchivableCart cart : batch) {
+                preparedStatement.setInt(1, cart.id);
+                preparedStatement.setInt(2, cart.version);
+                preparedStatement.addBatch();
+            }
+            deletedRows = statementRegistry.executeBatch(SqlStatement.DELETE_CART_IF_UNCHANGED, preparedStatement);
+        }
+
+        List<Integer> archivedCartIds = new ArrayList<>(batch.size());
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.DELETE_ARCHIVED_CART)) {
+            boolean changedCarts = false;
+            for (int i = 0; i < batch.size(); i++) {
+                if (deletedRows[i] > 0) {
+                    archivedCartIds.add(batch.get(i).id);
+                } else {
+                    preparedStatement.setInt(1, batch.get(i).id);
+                    preparedStatement.addBatch();
+                    changedCarts = true;
+                }
+            }
+            if (changedCarts) {
+                statementRegistry.executeBatch(SqlStatement.DELETE_ARCHIVED_CART, preparedStatement);
+            }
+        }
+        return archivedCartIds;
+    }
+
+    private static final class ArchivableCart {
+        private final int id;
+        private final int version;
+        private final OffsetDateTime checkedOutAt;
+        private final List<Burger> burgers = new ArrayList<>(Cart.MAX_BURGERS);
+
+        private ArchivableCart(int id, int version, OffsetDateTime checkedOutAt) {
+            this.id = id;
+            this.version = version;
+            this.checkedOutAt = checkedOutAt;
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package xyz.prohinig.webservice.database;
 
 
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
 import xyz.prohinig.webservice.model.*;
 
-import java.sql.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-public class CartDAO {
+public class CartDAO implements CartStorage {
 
     private static final String BURGER_ID_COLUMN = "id";
     private static final String BURGER_PATTY_TYPE_COLUMN = "patty_type";
@@ -18,93 +22,191 @@ public class CartDAO {
     private static final String BURGER_SALAD_COLUMN = "salad";
     private static final String BURGER_TOMATO_COLUMN = "tomato";
     private static final String BURGER_CART_ID_COLUMN = "cart_id";
-    private static final String CART_ID_COLUMN = "id";
     private static final String CART_ACTIVE_COLUMN = "active";
+    private static final String CART_VERSION_COLUMN = "version";
+    private static final String SUMMARY_BURGER_COUNT_COLUMN = "burger_count";
+    private static final String SUMMARY_CHEESE_COUNT_COLUMN = "cheese_count";
+    private static final String SUMMARY_SALAD_COUNT_COLUMN = "salad_count";
+    private static final String SUMMARY_TOMATO_COUNT_COLUMN = "tomato_count";
+    private static final String ARCHIVE_BURGERS_COLUMN = "burgers";
 
     private final DatabaseConnection databaseConnection;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+    private final ActiveCartRegistry activeCartRegistry;
 
-    public CartDAO(DatabaseConnection databaseConnection) {
+    public CartDAO(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                   ActiveCartRegistry activeCartRegistry) {
         this.databaseConnection = databaseConnection;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+        this.activeCartRegistry = activeCartRegistry;
     }
 
+    @Override
     public boolean update(Cart cart) {
-        try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
+        long start = System.nanoTime();
+        List<Burger> newBurgers = cart.getBurgers().stream()
+                .filter(burger -> burger.getId() == null)
+                .collect(Collectors.toList());
+        int insertedRows = cart.isCheckedOut() ? 0 : (cart.getId() == null ? 1 : 0) + newBurgers.size();
+
+        boolean updated = false;
+        try {
+            updated = updateCart(cart, newBurgers);
+
+            // the cart now reflects the stored state, anything else means we do not know what was written
+            if (updated) {
+                cartCache.put(cart);
+                cartCache.notifyWritten(cart.getId());
+                activeCartRegistry.put(cart);
+            } else {
+                cartCache.invalidate(cart.getId());
             }
 
-            if (cart.isCheckedOut()) {
-                return checkoutCart(cart, connection);
-            }
+            return updated;
+        } catch (CartVersionConflictException e) {
+            // a cached cart is older than the stored one
+            cartCache.invalidate(cart.getId());
+            throw e;
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_UPDATE, System.nanoTime() - start, updated ? insertedRows : 0);
+        }
+    }
+
+    private boolean updateCart(Cart cart, List<Burger> newBurgers) {
+        boolean newCart = cart.getId() == null;
+        int previousVersion = cart.getVersion();
 
-            // if cart has no id, we have to write it to the database
-            if (cart.getId() == null) {
-                if (!persistCart(cart, connection)) {
-                    return false;
+        boolean committed = false;
+        try (Connection connection = databaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (writeCart(cart, newBurgers, connection)) {
+                    connection.commit();
+                    committed = true;
+                } else {
+                    connection.rollback();
                 }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-
-            // foreach burger
-            for (Burger burger : cart.getBurgers()) {
-                // if burger has no id, we have to write it to the database
-                if (burger.getId() == null) {
-                    if (!persistBurger(burger, cart, connection)) {
-                        return false;
-                    }
+        } catch (SQLException e) {
+            // rolled back, nothing was written
+        } finally {
+            // ids handed out inside a rolled back transaction do not exist
+            if (!committed) {
+                if (newCart) {
+                    cart.setId(null);
                 }
+                cart.setVersion(previousVersion);
+                newBurgers.forEach(burger -> burger.setId(null));
             }
+        }
 
-            // delete burgers that have an id but are not part of the cart anymore
-            return retainBurgers(cart, connection);
-        } catch (SQLException e) {
+        return committed;
+    }
+
+    private boolean writeCart(Cart cart, List<Burger> newBurgers, Connection connection) throws SQLException {
+        if (cart.isCheckedOut()) {
+            return checkoutCart(cart, connection);
+        }
+
+        // if cart has no id, we have to write it to the database
+        if (cart.getId() == null) {
+            if (!persistCart(cart, connection)) {
+                return false;
+            }
+        }
+
+        // first, so the row lock keeps other writes to the cart out until the burgers are written
+        int version = bumpVersion(statementRegistry, connection, SqlStatement.BUMP_CART_VERSION_IF_UNCHANGED, cart);
+
+        // burgers without an id are written in one batch
+        if (!newBurgers.isEmpty()) {
+            if (!persistBurgers(newBurgers, cart, connection)) {
+                return false;
+            }
+        }
+
+        // delete burgers that have an id but are not part of the cart anymore
+        if (!retainBurgers(cart, connection)) {
             return false;
         }
+
+        cart.setVersion(version);
+        return true;
     }
 
     private boolean checkoutCart(Cart cart, Connection connection) throws SQLException {
-        String checkoutCartStatement = "update cart set active = false where id = ?;";
+        cart.setVersion(bumpVersion(statementRegistry, connection, SqlStatement.CHECKOUT_CART, cart));
+        return true;
+    }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(checkoutCartStatement)) {
-            preparedStatement.setInt(1, cart.getId());
-            preparedStatement.execute();
+    /**
+     * Runs a statement that increments the version of the cart and returns the new version, {@code null} if
+     * there is no such cart.
+     */
+    static Integer bumpVersion(StatementRegistry statementRegistry, Connection connection, SqlStatement statement,
+                               int cartId) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, statement)) {
+            preparedStatement.setInt(1, cartId);
+            statementRegistry.executeUpdate(statement, preparedStatement);
+
+            try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                return resultSet.next() ? resultSet.getInt(1) : null;
+            }
         }
-
-        return true;
     }
 
-    private boolean retainBurgers(Cart cart, Connection connection) throws SQLException {
-        String deleteBurgerStatement;
-        if (cart.getBurgers().isEmpty()) {
-            deleteBurgerStatement = "delete from burger where cart_id = ?;";
-        } else {
-            String burgerIdsString = cart.getBurgers().stream().map(Burger::getId).map(String::valueOf).collect(Collectors.joining(","));
+    /**
+     * Runs a statement that increments the version of the cart if it is still at the version of the cart, and
+     * returns the new version.
+     *
+     * @throws CartVersionConflictException if the cart is at another version or gone
+     */
+    static int bumpVersion(StatementRegistry statementRegistry, Connection connection, SqlStatement statement,
+                           Cart cart) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, statement)) {
+            preparedStatement.setInt(1, cart.getId());
+            preparedStatement.setInt(2, cart.getVersion());
+            statementRegistry.executeUpdate(statement, preparedStatement);
 
-            deleteBurgerStatement = "delete from burger where cart_id = ? and id not in (" + burgerIdsString + ");";
+            try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                if (!resultSet.next()) {
+                    throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+                }
+                return resultSet.getInt(1);
+            }
         }
+    }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(deleteBurgerStatement)) {
+    private boolean retainBurgers(Cart cart, Connection connection) throws SQLException {
+        Object[] burgerIds = cart.getBurgers().stream().map(Burger::getId).toArray();
+
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.DELETE_BURGERS_NOT_IN)) {
             preparedStatement.setInt(1, cart.getId());
-            preparedStatement.executeUpdate();
+            preparedStatement.setArray(2, connection.createArrayOf("integer", burgerIds));
+            statementRegistry.executeUpdate(SqlStatement.DELETE_BURGERS_NOT_IN, preparedStatement);
         }
 
         return true;
     }
 
-    private boolean persistBurger(Burger burger, Cart cart, Connection connection) throws SQLException {
-        String insertBurgerStatement = "insert into burger(patty_type, cheese, salad, tomato, cart_id)" + " values(?, ?, ?, ?, ?);";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(insertBurgerStatement, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            preparedStatement.setString(1, burger.getPattyType().name());
-            preparedStatement.setBoolean(2, burger.getCheese() != null);
-            preparedStatement.setBoolean(3, burger.getSalad() != null);
-            preparedStatement.setBoolean(4, burger.getTomato() != null);
-            preparedStatement.setInt(5, cart.getId());
+    private boolean persistBurgers(List<Burger> burgers, Cart cart, Connection connection) throws SQLException {
+        return BurgerDAO.insertBurgers(statementRegistry, connection, burgers, cart.getId());
+    }
 
-            preparedStatement.execute();
+    private boolean persistCart(Cart cart, Connection connection) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.INSERT_CART)) {
+            statementRegistry.executeUpdate(SqlStatement.INSERT_CART, preparedStatement);
             ResultSet resultSet = preparedStatement.getGeneratedKeys();
 
             if (resultSet.next()) {
-                burger.setId(resultSet.getInt(1));
+                cart.setId(resultSet.getInt(1));
                 return true;
             } else {
                 return false;
@@ -112,158 +214,278 @@ public class CartDAO {
         }
     }
 
-    private boolean persistCart(Cart cart, Connection connection) throws SQLException {
-        String insertCartStatement = "insert into cart default values returning id;";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(insertCartStatement, Statement.RETURN_GENERATED_KEYS);
-            ResultSet resultSet = statement.getGeneratedKeys();
+    /**
+     * The latest known version of the cart from the cache, without going to the database.
+     *
+     * @return {@code null} if the version of the cart is not known
+     */
+    @Override
+    public Integer getCachedVersion(int cartId) {
+        return cartCache.getVersion(cartId);
+    }
 
-            if (resultSet.next()) {
-                cart.setId(resultSet.getInt(1));
-                return true;
-            } else {
-                return false;
+    /**
+     * The most recently created cart that is not checked out, served from the {@link ActiveCartRegistry}.
+     *
+     * @return {@code null} if every cart is checked out
+     */
+    @Override
+    public Cart getActiveCart() {
+        long start = System.nanoTime();
+        try {
+            if (!activeCartRegistry.isLoaded()) {
+                loadActiveCarts();
             }
+            return activeCartRegistry.getLatest();
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_ACTIVE, System.nanoTime() - start, 0);
         }
     }
 
-    public Cart getActiveCart() {
+    /**
+     * Loads every cart that is not checked out into the {@link ActiveCartRegistry}.
+     */
+    @Override
+    public synchronized void loadActiveCarts() {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean loaded = false;
+        activeCartRegistry.beginLoad();
         try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
-            }
-            String burgersOfActiveCartQuery = "SELECT burger.* FROM burger INNER JOIN cart ON burger.cart_id = cart.id WHERE cart.active = true;";
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.ACTIVE_CARTS_WITH_BURGERS);
+                 ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.ACTIVE_CARTS_WITH_BURGERS, preparedStatement)) {
 
-            try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(burgersOfActiveCartQuery)) {
-
-                Cart cart = new Cart();
+                List<Cart> activeCarts = new ArrayList<>();
+                Cart cart = null;
 
+                // rows of the same cart are consecutive, a cart without burgers yields a single row of nulls
                 while (resultSet.next()) {
-                    if (cart.getId() == null) {
-                        cart.setId(resultSet.getInt(BURGER_CART_ID_COLUMN));
+                    rows++;
+                    int cartId = resultSet.getInt(BURGER_CART_ID_COLUMN);
+                    if (cart == null || cart.getId() != cartId) {
+                        cart = new Cart(cartId);
+                        cart.setVersion(resultSet.getInt(CART_VERSION_COLUMN));
+                        activeCarts.add(cart);
                     }
 
-                    Burger burger = createBurgerFromResultSet(resultSet);
-                    cart.addBurger(burger);
+                    if (resultSet.getObject(BURGER_ID_COLUMN) != null) {
+                        cart.addBurger(createBurgerFromResultSet(resultSet));
+                    }
                 }
 
-                return cart;
+                activeCartRegistry.completeLoad(activeCarts);
+                loaded = true;
             }
         } catch (SQLException e) {
             throw new IllegalStateException();
+        } finally {
+            if (!loaded) {
+                activeCartRegistry.abortLoad();
+            }
+            statementRegistry.recordMethod(DaoMethod.CART_LOAD_ACTIVE, System.nanoTime() - start, rows);
         }
     }
 
+    @Override
     public Cart getCartByID(int id) {
-        try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
+        long start = System.nanoTime();
+        // rows read by the query, stays 0 for a cart from the cache or from a load of another request
+        int[] rows = new int[1];
+        try {
+            Cart cachedCart = cartCache.get(id);
+            if (cachedCart != null) {
+                return cachedCart;
             }
 
-            Cart cart = getCartByID(connection, id);
-
-            if (cart == null) {
-                return null;
-            }
+            // concurrent misses of the same cart wait for one query
+            return cartCache.getOrLoad(id, cartId -> loadCart(cartId, rows));
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_BY_ID, System.nanoTime() - start, rows[0]);
+        }
+    }
 
-            getBurgersForCartAndAdd(connection, cart);
+    private Cart loadCart(int id, int[] rows) {
+        try (Connection connection = databaseConnection.getConnection()) {
+            // one round trip for the cart and its burgers, a cart without burgers yields a single row of nulls
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.CART_WITH_BURGERS_BY_ID)) {
+                preparedStatement.setInt(1, id);
+                try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.CART_WITH_BURGERS_BY_ID, preparedStatement)) {
+                    Cart cart = null;
+
+                    while (resultSet.next()) {
+                        rows[0]++;
+                        if (cart == null) {
+                            cart = new Cart(resultSet.getInt(BURGER_CART_ID_COLUMN), !resultSet.getBoolean(CART_ACTIVE_COLUMN));
+                            cart.setVersion(resultSet.getInt(CART_VERSION_COLUMN));
+                        }
+
+                        if (resultSet.getObject(BURGER_ID_COLUMN) != null) {
+                            cart.addBurger(createBurgerFromResultSet(resultSet));
+                        }
+                    }
 
-            return cart;
+                    if (cart == null) {
+                        cart = loadArchivedCart(connection, id);
+                    }
+                    // cached by getOrLoad, unless a write detached the load in the meantime
+                    return cart;
+                }
+            }
         } catch (SQLException e) {
             throw new IllegalStateException();
         }
     }
 
-    private void getBurgersForCartAndAdd(Connection connection, Cart cart) throws SQLException {
-        String burgersOfCartByIdQuery = "SELECT burger.id, burger.patty_type, burger.cheese, burger.salad, burger.tomato" + " FROM burger INNER JOIN cart ON burger.cart_id = cart.id WHERE cart.id = ?;";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(burgersOfCartByIdQuery)) {
-            preparedStatement.setInt(1, cart.getId());
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                while (resultSet.next()) {
-                    Burger burger = createBurgerFromResultSet(resultSet);
-                    cart.addBurger(burger);
+    // checked out carts are moved to the archive by the CartArchiver once they are old enough
+    private Cart loadArchivedCart(Connection connection, int id) throws SQLException {
+        try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.ARCHIVED_CART_BY_ID)) {
+            preparedStatement.setInt(1, id);
+            try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.ARCHIVED_CART_BY_ID, preparedStatement)) {
+                if (!resultSet.next()) {
+                    return null;
                 }
+                return CartArchiver.unpackCart(id, resultSet.getInt(CART_VERSION_COLUMN), resultSet.getBytes(ARCHIVE_BURGERS_COLUMN));
             }
         }
     }
 
-    public List<Cart> getAllCarts() {
+    /**
+     * Returns the summaries of up to {@code limit} carts with an id greater than {@code afterId}, ordered by id.
+     */
+    @Override
+    public List<CartSummary> getCartSummaries(int afterId, int limit) {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.CART_SUMMARIES_PAGE)) {
+                preparedStatement.setInt(1, afterId);
+                preparedStatement.setInt(2, limit);
+                try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.CART_SUMMARIES_PAGE, preparedStatement)) {
+                    List<CartSummary> cartSummaries = new ArrayList<>();
+                    rows = readCartSummaries(resultSet, cartSummaries::add);
+                    return cartSummaries;
+                }
             }
+        } catch (SQLException e) {
+            throw new IllegalStateException();
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_SUMMARIES, System.nanoTime() - start, rows);
+        }
+    }
 
-            String getAllCartsQuery = "SELECT burger.*, cart.active FROM burger INNER JOIN cart ON burger.cart_id = cart.id;";
-            try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(getAllCartsQuery)) {
-
-
-                Map<Integer, Cart> cartById = new HashMap<>();
-
-                while (resultSet.next()) {
-                    int cartId = resultSet.getInt(BURGER_CART_ID_COLUMN);
-                    boolean cartActive = !resultSet.getBoolean(CART_ACTIVE_COLUMN);
-
-                    Cart cart = cartById.computeIfAbsent(cartId, newCartId -> new Cart(newCartId, cartActive));
-//                    if(cartById.get(cartId) == null)  {
-//                            cart = new Cart(cartId, cartActive);
-//                            cartById.put(cart.getId(), cart);
-//                    } else {
-//                        cart = cartById.get(cartId);
-//                    }
-
-                    Burger burger = createBurgerFromResultSet(resultSet);
-                    cart.addBurger(burger);
+    /**
+     * Hands the summary of every cart with an id greater than {@code afterId} to the consumer, ordered by id.
+     * Rows are fetched through a cursor {@code fetchSize} rows at a time.
+     */
+    @Override
+    public void streamCartSummaries(int afterId, int fetchSize, Consumer<CartSummary> consumer) {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection connection = databaseConnection.getConnection()) {
+            // the driver only fetches through a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.CART_SUMMARIES_AFTER_ID)) {
+                preparedStatement.setFetchSize(fetchSize);
+                preparedStatement.setInt(1, afterId);
+                try (ResultSet resultSet = statementRegistry.executeQuery(SqlStatement.CART_SUMMARIES_AFTER_ID, preparedStatement)) {
+                    rows = readCartSummaries(resultSet, consumer);
                 }
-
-
-                return new ArrayList<>(cartById.values());
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
             throw new IllegalStateException();
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_STREAM_SUMMARIES, System.nanoTime() - start, rows);
         }
     }
 
-    private Cart getCartByID(Connection connection, int id) throws SQLException {
-        String getCartByIDQuery = "SELECT * from cart where id = ?";
+    /**
+     * The database counts burgers and ingredients per cart and patty type, the counts are priced with the
+     * current price table. Rows of the same cart are consecutive.
+     *
+     * @return the number of rows read
+     */
+    private int readCartSummaries(ResultSet resultSet, Consumer<CartSummary> consumer) throws SQLException {
+        PriceTable priceTable = PriceTable.current();
+
+        int cartId = 0;
+        boolean checkedOut = false;
+        int burgerCount = 0;
+        long totalInCents = 0;
+        boolean hasCart = false;
+        int rows = 0;
+
+        while (resultSet.next()) {
+            rows++;
+            int rowCartId = resultSet.getInt(BURGER_CART_ID_COLUMN);
+
+            if (!hasCart || rowCartId != cartId) {
+                if (hasCart) {
+                    consumer.accept(new CartSummary(cartId, checkedOut, burgerCount, totalInCents));
+                }
+                hasCart = true;
+                cartId = rowCartId;
+                checkedOut = !resultSet.getBoolean(CART_ACTIVE_COLUMN);
+                burgerCount = 0;
+                totalInCents = 0;
+            }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(getCartByIDQuery)) {
-            preparedStatement.setInt(1, id);
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            // carts without burgers come with a single row without patty type
+            int pattyBurgerCount = resultSet.getInt(SUMMARY_BURGER_COUNT_COLUMN);
+            if (pattyBurgerCount > 0) {
+                PattyType pattyType = PattyType.fromCode(resultSet.getInt(BURGER_PATTY_TYPE_COLUMN));
 
-                if (resultSet.next()) {
-                    return new Cart(resultSet.getInt(CART_ID_COLUMN), !resultSet.getBoolean(CART_ACTIVE_COLUMN));
-                }
-                return null;
+                burgerCount += pattyBurgerCount;
+                totalInCents += priceTable.getBurgersPriceInCents(pattyType, pattyBurgerCount,
+                        resultSet.getLong(SUMMARY_CHEESE_COUNT_COLUMN), resultSet.getLong(SUMMARY_SALAD_COUNT_COLUMN),
+                        resultSet.getLong(SUMMARY_TOMATO_COUNT_COLUMN));
             }
         }
+
+        if (hasCart) {
+            consumer.accept(new CartSummary(cartId, checkedOut, burgerCount, totalInCents));
+        }
+        return rows;
     }
 
-    private Burger createBurgerFromResultSet(ResultSet burgerResultSet) throws SQLException {
+    static Burger createBurgerFromResultSet(ResultSet burgerResultSet) throws SQLException {
         int burgerId = burgerResultSet.getInt(BURGER_ID_COLUMN);
-        String pattyTypeString = burgerResultSet.getString(BURGER_PATTY_TYPE_COLUMN);
-        PattyType pattyType = PattyType.valueOf(pattyTypeString);
+        PattyType pattyType = PattyType.fromCode(burgerResultSet.getInt(BURGER_PATTY_TYPE_COLUMN));
 
-        boolean hasCheese = burgerResultSet.getBoolean(BURGER_CHEESE_COLUMN);
-        boolean hasTomato = burgerResultSet.getBoolean(BURGER_TOMATO_COLUMN);
-        boolean hasSalad = burgerResultSet.getBoolean(BURGER_SALAD_COLUMN);
+        int ingredients = (burgerResultSet.getBoolean(BURGER_CHEESE_COLUMN) ? Burger.CHEESE : 0)
+                | (burgerResultSet.getBoolean(BURGER_SALAD_COLUMN) ? Burger.SALAD : 0)
+                | (burgerResultSet.getBoolean(BURGER_TOMATO_COLUMN) ? Burger.TOMATO : 0);
 
-        return new Burger(burgerId, pattyType, hasCheese ? new Cheese() : null, hasSalad ? new Salad() : null, hasTomato ? new Tomato() : null);
+        return new Burger(burgerId, pattyType, ingredients);
     }
 
+    @Override
     public boolean deleteCart(Cart cart) {
+        long start = System.nanoTime();
+        boolean deleted = false;
+        try {
+            deleted = deleteCartRow(cart);
+            return deleted;
+        } finally {
+            cartCache.remove(cart.getId());
+            activeCartRegistry.remove(cart.getId());
+            statementRegistry.recordMethod(DaoMethod.CART_DELETE, System.nanoTime() - start, deleted ? 1 : 0);
+        }
+    }
+
+    private boolean deleteCartRow(Cart cart) {
         try (Connection connection = databaseConnection.getConnection()) {
-            if (connection == null) {
-                throw new IllegalStateException();
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.DELETE_CART)) {
+                preparedStatement.setInt(1, cart.getId());
+                if (statementRegistry.executeUpdate(SqlStatement.DELETE_CART, preparedStatement) > 0) {
+                    return true;
+                }
             }
-
-            String deleteCartByIdStatement = "DELETE from cart WHERE id = ?;";
-
-            try (PreparedStatement preparedStatement = connection.prepareStatement(deleteCartByIdStatement)) {
+            try (PreparedStatement preparedStatement = statementRegistry.prepare(connection, SqlStatement.DELETE_ARCHIVED_CART)) {
                 preparedStatement.setInt(1, cart.getId());
-                preparedStatement.executeUpdate();
-                return preparedStatement.getUpdateCount() > 0;
-
+                return statementRegistry.executeUpdate(SqlStatement.DELETE_ARCHIVED_CART, preparedStatement) > 0;
             }
 
 
@@ -0,0 +1,59 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where carts are kept, {@link CartDAO} keeps them in the database and {@link InMemoryCartDAO} in memory.
+ * <p>
+ * A successful write sets the new version on the cart, and the ids of a new cart and its new burgers. A write that
+ * fails leaves the cart as it was. Writes only apply to a cart that is still at the version it was read at, otherwise
+ * they throw a {@link CartVersionConflictException}.
+ */
+public interface CartStorage {
+
+    /**
+     * Creates a cart without id, checks out a checked out cart, and otherwise adds the burgers without id and removes
+     * the burgers that are no longer in the cart.
+     */
+    boolean update(Cart cart);
+
+    /**
+     * The latest known version of the cart, without reading the cart.
+     *
+     * @return {@code null} if the version of the cart is not known
+     */
+    Integer getCachedVersion(int cartId);
+
+    /**
+     * The most recently created cart that is not checked out.
+     *
+     * @return {@code null} if every cart is checked out
+     */
+    Cart getActiveCart();
+
+    /**
+     * Prepares {@link #getActiveCart()}, called once on startup.
+     */
+    void loadActiveCarts();
+
+    /**
+     * @return {@code null} if there is no such cart
+     */
+    Cart getCartByID(int id);
+
+    /**
+     * Returns the summaries of up to {@code limit} carts with an id greater than {@code afterId}, ordered by id.
+     */
+    List<CartSummary> getCartSummaries(int afterId, int limit);
+
+    /**
+     * Hands the summary of every cart with an id greater than {@code afterId} to the consumer, ordered by id.
+     */
+    void streamCartSummaries(int afterId, int fetchSize, Consumer<CartSummary> consumer);
+
+    boolean deleteCart(Cart cart);
+}
@@ -0,0 +1,16 @@
+package xyz.prohinig.webservice.database;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A write to a cart found it at another version than the one it was read at, or gone. Nothing was written, the cart
+ * has to be read again.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CartVersionConflictException extends RuntimeException {
+
+    public CartVersionConflictException(int cartId, int readVersion) {
+        super("cart " + cartId + " changed since version " + readVersion);
+    }
+}
@@ -0,0 +1,12 @@
+package xyz.prohinig.webservice.database;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ConnectionUnavailableException extends RuntimeException {
+
+    public ConnectionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package xyz.prohinig.webservice.database;
+
+/**
+ * The DAO methods that are timed by the {@link StatementRegistry}.
+ */
+public enum DaoMethod {
+    CART_UPDATE("CartDAO.update"),
+    CART_GET_ACTIVE("CartDAO.getActiveCart"),
+    CART_LOAD_ACTIVE("CartDAO.loadActiveCarts"),
+    CART_GET_BY_ID("CartDAO.getCartByID"),
+    CART_GET_SUMMARIES("CartDAO.getCartSummaries"),
+    CART_STREAM_SUMMARIES("CartDAO.streamCartSummaries"),
+    CART_DELETE("CartDAO.deleteCart"),
+    BURGER_PERSIST("BurgerDAO.persistBurgers"),
+    CART_ARCHIVE("CartArchiver.archive");
+
+    private final String name;
+
+    DaoMethod(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -1,22 +1,87 @@
 package xyz.prohinig.webservice.database;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import xyz.prohinig.webservice.dto.ConnectionPoolStatsDto;
+import xyz.prohinig.webservice.metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-public class DatabaseConnection {
-    private static final String DATABASE_URL = "jdbc:postgresql://localhost/test";
+public class DatabaseConnection implements AutoCloseable {
 
-    public Connection getConnection() {
-        Properties properties = new Properties();
-        properties.setProperty("user", "postgres");
-        properties.setProperty("password", "12345");
+    private final HikariDataSource dataSource;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowTimeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LatencyHistogram waitLatency = new LatencyHistogram();
+
+    public DatabaseConnection(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
+    /**
+     * Borrows a connection from the pool. The connection is validated by the pool before it is handed out and
+     * must be closed by the caller to return it.
+     *
+     * @throws ConnectionUnavailableException if no connection could be borrowed within the configured timeout
+     */
+    public Connection getConnection() {
+        long start = System.nanoTime();
         try {
-            return DriverManager.getConnection(DATABASE_URL, properties);
+            Connection connection = dataSource.getConnection();
+            recordWait(System.nanoTime() - start);
+            return connection;
+        } catch (SQLTransientConnectionException exception) {
+            borrowTimeoutCount.increment();
+            recordWait(System.nanoTime() - start);
+            throw new ConnectionUnavailableException("timed out waiting for a database connection", exception);
         } catch (SQLException exception) {
-            return null;
+            throw new ConnectionUnavailableException("could not obtain a database connection", exception);
         }
     }
+
+    /**
+     * The pooled data source, for tools that manage their own connections such as schema migrations.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public ConnectionPoolStatsDto getStatistics() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+
+        long borrows = borrowCount.sum();
+        long waitNanos = totalWaitNanos.sum();
+
+        return new ConnectionPoolStatsDto(
+                dataSource.getMaximumPoolSize(),
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                borrows,
+                borrowTimeoutCount.sum(),
+                borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos / borrows),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()),
+                waitLatency.toDto());
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        waitLatency.record(waitNanos);
+    }
 }
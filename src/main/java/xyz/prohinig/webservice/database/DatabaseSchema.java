@@ -0,0 +1,98 @@
+package xyz.prohinig.webservice.database;
+
+import org.flywaydb.core.Flyway;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Migrates the schema with the versioned scripts in {@code db/migration} and verifies that the indexes the
+ * statements of the DAOs rely on exist.
+ */
+public class DatabaseSchema {
+
+    private static final String MIGRATIONS_LOCATION = "classpath:db/migration";
+    // databases that existed before the migrations were introduced already have the tables of the first script
+    private static final String BASELINE_VERSION = "1";
+    private static final String H2_PRODUCT_NAME = "H2";
+
+    private static final Map<String, List<String>> REQUIRED_INDEXES_BY_TABLE = Map.of(
+            "burger", List.of("burger_cart_id_idx"),
+            "cart", List.of("cart_active_id_idx", "cart_checked_out_at_idx"));
+
+    private final DatabaseConnection databaseConnection;
+
+    public DatabaseSchema(DatabaseConnection databaseConnection) {
+        this.databaseConnection = databaseConnection;
+    }
+
+    public void migrate() {
+        Flyway.configure()
+                .dataSource(databaseConnection.getDataSource())
+                .locations(MIGRATIONS_LOCATION)
+                .javaMigrations(new V3_1__Cascade_burger_deletes())
+                .placeholders(getPartialIndexPredicates())
+                .baselineOnMigrate(true)
+                .baselineVersion(BASELINE_VERSION)
+                .load()
+                .migrate();
+    }
+
+    /**
+     * @throws IllegalStateException if one of the required indexes does not exist
+     */
+    public void verifyIndexes() {
+        List<String> missingIndexes = new ArrayList<>();
+
+        try (Connection connection = databaseConnection.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+
+            for (Map.Entry<String, List<String>> requiredIndexes : REQUIRED_INDEXES_BY_TABLE.entrySet()) {
+                Set<String> indexes = getIndexes(metaData, requiredIndexes.getKey());
+                for (String requiredIndex : requiredIndexes.getValue()) {
+                    if (!indexes.contains(requiredIndex)) {
+                        missingIndexes.add(requiredIndexes.getKey() + "." + requiredIndex);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not read the indexes of the database", e);
+        }
+
+        if (!missingIndexes.isEmpty()) {
+            throw new IllegalStateException("missing indexes " + missingIndexes + ", the schema is not migrated");
+        }
+    }
+
+    // H2 stands in for PostgreSQL in the tests and has no partial indexes, it indexes every row instead
+    private Map<String, String> getPartialIndexPredicates() {
+        try (Connection connection = databaseConnection.getConnection()) {
+            if (H2_PRODUCT_NAME.equals(connection.getMetaData().getDatabaseProductName())) {
+                return Map.of("active_carts_only", "", "checked_out_carts_only", "");
+            }
+            return Map.of("active_carts_only", "where active", "checked_out_carts_only", "where not active");
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not read the product name of the database", e);
+        }
+    }
+
+    private static Set<String> getIndexes(DatabaseMetaData metaData, String table) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (ResultSet resultSet = metaData.getIndexInfo(null, null, table, false, true)) {
+            while (resultSet.next()) {
+                String index = resultSet.getString("INDEX_NAME");
+                if (index != null) {
+                    indexes.add(index);
+                }
+            }
+        }
+        return indexes;
+    }
+}
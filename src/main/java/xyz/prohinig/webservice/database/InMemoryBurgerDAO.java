@@ -0,0 +1,44 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.List;
+
+/**
+ * Adds burgers to the carts of an {@link InMemoryStore} instead of the database.
+ */
+public class InMemoryBurgerDAO implements BurgerStorage {
+
+    private final InMemoryStore store;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+
+    public InMemoryBurgerDAO(InMemoryStore store, StatementRegistry statementRegistry, CartCache cartCache) {
+        this.store = store;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+    }
+
+    @Override
+    public boolean persistBurger(Burger burger, Cart cart) {
+        return persistBurgers(List.of(burger), cart);
+    }
+
+    @Override
+    public boolean persistBurgers(List<Burger> burgers, Cart cart) {
+        long start = System.nanoTime();
+        try {
+            InMemoryStore.StoredCart storedCart = store.write(cart.getId(),
+                    current -> InMemoryCartDAO.verifyVersion(current, cart).withAddedBurgers(burgers, store));
+            if (storedCart == null) {
+                throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+            }
+            cartCache.notifyWritten(cart.getId());
+            return true;
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.BURGER_PERSIST, System.nanoTime() - start, 0);
+        }
+    }
+}
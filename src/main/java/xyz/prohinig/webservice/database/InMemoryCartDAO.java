@@ -0,0 +1,147 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps carts in an {@link InMemoryStore} instead of the database. The store is the only copy of the carts, so they
+ * are not cached. Writes are reported to the {@link CartCache} listeners like those of {@link CartDAO}.
+ */
+public class InMemoryCartDAO implements CartStorage {
+
+    private final InMemoryStore store;
+    private final StatementRegistry statementRegistry;
+    private final CartCache cartCache;
+
+    public InMemoryCartDAO(InMemoryStore store, StatementRegistry statementRegistry, CartCache cartCache) {
+        this.store = store;
+        this.statementRegistry = statementRegistry;
+        this.cartCache = cartCache;
+    }
+
+    @Override
+    public boolean update(Cart cart) {
+        long start = System.nanoTime();
+        InMemoryStore.StoredCart storedCart = null;
+        try {
+            if (cart.getId() == null) {
+                storedCart = store.insert(cart.isCheckedOut(), cart.getBurgers());
+                cart.setId(storedCart.getId());
+            } else if (cart.isCheckedOut()) {
+                storedCart = store.write(cart.getId(), current -> verifyVersion(current, cart).withCheckout());
+            } else {
+                storedCart = store.write(cart.getId(), current -> verifyVersion(current, cart).withBurgersOf(cart, store));
+            }
+
+            if (storedCart == null) {
+                throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+            }
+
+            cart.setVersion(storedCart.getVersion());
+            cartCache.notifyWritten(cart.getId());
+            return true;
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_UPDATE, System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Called with the lock of the cart held, nothing is written if the cart changed.
+     */
+    static InMemoryStore.StoredCart verifyVersion(InMemoryStore.StoredCart storedCart, Cart cart) {
+        if (storedCart.getVersion() != cart.getVersion()) {
+            throw new CartVersionConflictException(cart.getId(), cart.getVersion());
+        }
+        return storedCart;
+    }
+
+    /**
+     * Always known from the store.
+     */
+    @Override
+    public Integer getCachedVersion(int cartId) {
+        InMemoryStore.StoredCart storedCart = store.get(cartId);
+        return storedCart == null ? null : storedCart.getVersion();
+    }
+
+    @Override
+    public Cart getActiveCart() {
+        long start = System.nanoTime();
+        try {
+            InMemoryStore.StoredCart storedCart = store.getLatestActive();
+            return storedCart == null ? null : storedCart.toCart();
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_ACTIVE, System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Nothing to load, the active cart is found in the store.
+     */
+    @Override
+    public void loadActiveCarts() {
+    }
+
+    @Override
+    public Cart getCartByID(int id) {
+        long start = System.nanoTime();
+        try {
+            InMemoryStore.StoredCart storedCart = store.get(id);
+            return storedCart == null ? null : storedCart.toCart();
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_BY_ID, System.nanoTime() - start, 0);
+        }
+    }
+
+    @Override
+    public List<CartSummary> getCartSummaries(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            PriceTable priceTable = PriceTable.current();
+            List<CartSummary> cartSummaries = new ArrayList<>(Math.min(limit, 1024));
+            for (InMemoryStore.StoredCart storedCart : store.getAfter(afterId)) {
+                if (cartSummaries.size() == limit) {
+                    break;
+                }
+                cartSummaries.add(storedCart.toCartSummary(priceTable));
+            }
+            return cartSummaries;
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_GET_SUMMARIES, System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Walks the store without copying it, the fetch size does not apply.
+     */
+    @Override
+    public void streamCartSummaries(int afterId, int fetchSize, Consumer<CartSummary> consumer) {
+        long start = System.nanoTime();
+        try {
+            PriceTable priceTable = PriceTable.current();
+            for (InMemoryStore.StoredCart storedCart : store.getAfter(afterId)) {
+                consumer.accept(storedCart.toCartSummary(priceTable));
+            }
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_STREAM_SUMMARIES, System.nanoTime() - start, 0);
+        }
+    }
+
+    @Override
+    public boolean deleteCart(Cart cart) {
+        long start = System.nanoTime();
+        try {
+            boolean deleted = store.remove(cart.getId());
+            cartCache.notifyWritten(cart.getId());
+            return deleted;
+        } finally {
+            statementRegistry.recordMethod(DaoMethod.CART_DELETE, System.nanoTime() - start, 0);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+import xyz.prohinig.webservice.model.PattyType;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Carts and their burgers of the {@link InMemoryCartDAO} and {@link InMemoryBurgerDAO}, for edge nodes and tests that
+ * run without a database.
+ * <p>
+ * Every cart is an immutable {@link StoredCart} in a lock-free map ordered by cart id, so reads never lock. Writes to
+ * the same cart are serialized by one of a fixed set of locks picked by the cart id. Ids are handed out by atomic
+ * counters, like the sequences of the database.
+ * <p>
+ * With a snapshot path, the store is read from the snapshot on {@link #start()} and written to it every snapshot
+ * interval and on {@link #close()}. Writes since the last snapshot are lost on a crash.
+ */
+public class InMemoryStore implements AutoCloseable {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int SNAPSHOT_MAGIC = 0x42555247;
+    private static final int SNAPSHOT_FORMAT = 1;
+
+    private final ConcurrentNavigableMap<Integer, StoredCart> cartsById = new ConcurrentSkipListMap<>();
+    private final Object[] writeLocks = new Object[LOCK_STRIPES];
+    private final AtomicInteger lastCartId = new AtomicInteger();
+    private final AtomicInteger lastBurgerId = new AtomicInteger();
+    private final Path snapshotPath;
+    private final Duration snapshotInterval;
+
+    private ScheduledExecutorService snapshotter;
+
+    /**
+     * @param snapshotPath     {@code null} to keep nothing across restarts
+     * @param snapshotInterval zero to only write the snapshot on close
+     */
+    public InMemoryStore(Path snapshotPath, Duration snapshotInterval) {
+        this.snapshotPath = snapshotPath;
+        this.snapshotInterval = snapshotInterval;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            writeLocks[i] = new Object();
+        }
+    }
+
+    public synchronized void start() {
+        if (snapshotPath == null) {
+            return;
+        }
+        if (Files.exists(snapshotPath)) {
+            try {
+                readSnapshot();
+            } catch (IOException e) {
+                // starting empty would drop the snapshot with the next one
+                throw new IllegalStateException("could not read snapshot " + snapshotPath, e);
+            }
+        }
+
+        if (!snapshotInterval.isZero()) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "in-memory-store-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotInBackground, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    StoredCart get(int cartId) {
+        return cartsById.get(cartId);
+    }
+
+    /**
+     * The carts with an id greater than {@code afterId}, ordered by id.
+     */
+    Collection<StoredCart> getAfter(int afterId) {
+        return cartsById.tailMap(afterId, false).values();
+    }
+
+    /**
+     * @return {@code null} if every cart is checked out
+     */
+    StoredCart getLatestActive() {
+        for (StoredCart cart : cartsById.descendingMap().values()) {
+            if (!cart.checkedOut) {
+                return cart;
+            }
+        }
+        return null;
+    }
+
+    StoredCart insert(boolean checkedOut, List<Burger> burgers) {
+        int cartId = lastCartId.incrementAndGet();
+        synchronized (lockFor(cartId)) {
+            StoredCart cart = new StoredCart(cartId, checkedOut, 0, new int[0], new byte[0]).withAddedBurgers(burgers, this);
+            cartsById.put(cartId, cart);
+            return cart;
+        }
+    }
+
+    /**
+     * Replaces the cart with what the writer makes of it, the writer is called once and holds the lock of the cart.
+     *
+     * @return the written cart, {@code null} if the writer wrote nothing
+     */
+    StoredCart write(int cartId, UnaryOperator<StoredCart> writer) {
+        synchronized (lockFor(cartId)) {
+            StoredCart cart = cartsById.get(cartId);
+            StoredCart writtenCart = cart == null ? null : writer.apply(cart);
+            if (writtenCart != null) {
+                cartsById.put(cartId, writtenCart);
+            }
+            return writtenCart;
+        }
+    }
+
+    boolean remove(int cartId) {
+        synchronized (lockFor(cartId)) {
+            return cartsById.remove(cartId) != null;
+        }
+    }
+
+    int nextBurgerId() {
+        return lastBurgerId.incrementAndGet();
+    }
+
+    /**
+     * Writes every cart to a new file that then replaces the snapshot, a crash never leaves a partial snapshot behind.
+     * Each cart is written as it was at one point in time, the carts together are not.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (snapshotPath == null) {
+            return;
+        }
+
+        Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temporaryPath.toFile());
+             DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), checksum))) {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_FORMAT);
+            output.writeInt(lastCartId.get());
+            output.writeInt(lastBurgerId.get());
+
+            for (StoredCart cart : cartsById.values()) {
+                output.writeBoolean(true);
+                output.writeInt(cart.id);
+                output.writeBoolean(cart.checkedOut);
+                output.writeInt(cart.version);
+                output.writeShort(cart.burgerIds.length);
+                for (int i = 0; i < cart.burgerIds.length; i++) {
+                    output.writeInt(cart.burgerIds[i]);
+                    output.writeByte(cart.burgerCodes[i]);
+                }
+            }
+            output.writeBoolean(false);
+            output.writeLong(checksum.getValue());
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+            snapshotter = null;
+        }
+        snapshot();
+    }
+
+    private void readSnapshot() throws IOException {
+        CRC32 checksum = new CRC32();
+        try (InputStream file = Files.newInputStream(snapshotPath);
+             DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(file), checksum))) {
+            if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException("not a snapshot of this format");
+            }
+            int snapshotLastCartId = input.readInt();
+            int snapshotLastBurgerId = input.readInt();
+
+            ConcurrentNavigableMap<Integer, StoredCart> carts = new ConcurrentSkipListMap<>();
+            int maxBurgerId = snapshotLastBurgerId;
+            while (input.readBoolean()) {
+                int cartId = input.readInt();
+                boolean checkedOut = input.readBoolean();
+                int version = input.readInt();
+                int burgerCount = input.readUnsignedShort();
+                int[] burgerIds = new int[burgerCount];
+                byte[] burgerCodes = new byte[burgerCount];
+                for (int i = 0; i < burgerCount; i++) {
+                    burgerIds[i] = input.readInt();
+                    burgerCodes[i] = input.readByte();
+                    maxBurgerId = Math.max(maxBurgerId, burgerIds[i]);
+                }
+                carts.put(cartId, new StoredCart(cartId, checkedOut, version, burgerIds, burgerCodes));
+            }
+
+            long expectedChecksum = checksum.getValue();
+            if (input.readLong() != expectedChecksum) {
+                throw new IOException("checksum mismatch");
+            }
+
+            cartsById.putAll(carts);
+            // carts created while the snapshot was written may be in it without being counted
+            lastCartId.set(carts.isEmpty() ? snapshotLastCartId : Math.max(snapshotLastCartId, carts.lastKey()));
+            lastBurgerId.set(maxBurgerId);
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // the next snapshot tries again
+        }
+    }
+
+    private Object lockFor(int cartId) {
+        return writeLocks[cartId & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * A cart as it was after one write. The burgers are held in id order as two primitive arrays, their ids and their
+     * codes, which are the patty type code and the ingredient mask in one byte.
+     */
+    static final class StoredCart {
+        private final int id;
+        private final boolean checkedOut;
+        private final int version;
+        private final int[] burgerIds;
+        private final byte[] burgerCodes;
+
+        private StoredCart(int id, boolean checkedOut, int version, int[] burgerIds, byte[] burgerCodes) {
+            this.id = id;
+            this.checkedOut = checkedOut;
+            this.version = version;
+            this.burgerIds = burgerIds;
+            this.burgerCodes = burgerCodes;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        int getVersion() {
+            return version;
+        }
+
+        int getBurgerCount() {
+            return burgerIds.length;
+        }
+
+        StoredCart withCheckout() {
+            return new StoredCart(id, true, version + 1, burgerIds, burgerCodes);
+        }
+
+        /**
+         * Keeps the burgers that are still in the cart and adds its burgers without id, which get their ids here.
+         */
+        StoredCart withBurgersOf(Cart cart, InMemoryStore store) {
+            int[] retainedIds = new int[burgerIds.length];
+            byte[] retainedCodes = new byte[burgerIds.length];
+            int retainedCount = 0;
+            for (int i = 0; i < burgerIds.length; i++) {
+                if (containsBurger(cart, burgerIds[i])) {
+                    retainedIds[retainedCount] = burgerIds[i];
+                    retainedCodes[retainedCount] = burgerCodes[i];
+                    retainedCount++;
+                }
+            }
+
+            List<Burger> newBurgers = cart.getBurgers().stream()
+                    .filter(burger -> burger.getId() == null)
+                    .collect(Collectors.toList());
+            StoredCart retained = new StoredCart(id, checkedOut, version,
+                    Arrays.copyOf(retainedIds, retainedCount), Arrays.copyOf(retainedCodes, retainedCount));
+            return retained.withAddedBurgers(newBurgers, store);
+        }
+
+        /**
+         * Adds the burgers, which get their ids here, and increments the version.
+         */
+        StoredCart withAddedBurgers(List<Burger> burgers, InMemoryStore store) {
+            int[] ids = Arrays.copyOf(burgerIds, burgerIds.length + burgers.size());
+            byte[] codes = Arrays.copyOf(burgerCodes, burgerCodes.length + burgers.size());
+            int i = burgerIds.length;
+            for (Burger burger : burgers) {
+                burger.setId(store.nextBurgerId());
+                ids[i] = burger.getId();
+                codes[i] = toCode(burger);
+                i++;
+            }
+            return new StoredCart(id, checkedOut, version + 1, ids, codes);
+        }
+
+        Cart toCart() {
+            Cart cart = new Cart(id, checkedOut);
+            cart.setVersion(version);
+            for (int i = 0; i < burgerIds.length; i++) {
+                cart.addBurger(new Burger(burgerIds[i], toPattyType(burgerCodes[i]), toIngredients(burgerCodes[i])));
+            }
+            return cart;
+        }
+
+        CartSummary toCartSummary(PriceTable priceTable) {
+            long totalInCents = 0;
+            for (byte burgerCode : burgerCodes) {
+                totalInCents += priceTable.getBurgerPriceInCents(toPattyType(burgerCode), toIngredients(burgerCode));
+            }
+            return new CartSummary(id, checkedOut, burgerIds.length, totalInCents);
+        }
+
+        private static boolean containsBurger(Cart cart, int burgerId) {
+            for (Burger burger : cart.getBurgers()) {
+                if (burger.getId() != null && burger.getId() == burgerId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte toCode(Burger burger) {
+            return (byte) (burger.getPattyType().getCode() * Burger.INGREDIENT_MASK_COUNT + burger.getIngredients());
+        }
+
+        private static PattyType toPattyType(byte burgerCode) {
+            return PattyType.fromCode(burgerCode / Burger.INGREDIENT_MASK_COUNT);
+        }
+
+        private static int toIngredients(byte burgerCode) {
+            return burgerCode % Burger.INGREDIENT_MASK_COUNT;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package xyz.prohinig.webservice.database;
+
+import reactor.core.publisher.Mono;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link BurgerDAO}.
+ */
+public class ReactiveBurgerDAO {
+
+    private final ReactiveDatabaseConnection databaseConnection;
+    private final CartCache cartCache;
+    private final ActiveCartRegistry activeCartRegistry;
+
+    public ReactiveBurgerDAO(ReactiveDatabaseConnection databaseConnection, CartCache cartCache,
+                             ActiveCartRegistry activeCartRegistry) {
+        this.databaseConnection = databaseConnection;
+        this.cartCache = cartCache;
+        this.activeCartRegistry = activeCartRegistry;
+    }
+
+    public Mono<Boolean> persistBurger(Burger burger, Cart cart) {
+        return persistBurgers(List.of(burger), cart);
+    }
+
+    /**
+     * Writes all burgers to the cart with one multi-row insert and increments the version of the cart in the same
+     * transaction. The generated ids are set on the burgers. Fails with a {@link CartVersionConflictException} if the
+     * cart is no longer at the version it was read at.
+     */
+    public Mono<Boolean> persistBurgers(List<Burger> burgers, Cart cart) {
+        Iterator<Burger> burgersInRowOrder = burgers.iterator();
+
+        // the version first, so the row lock keeps other writes to the cart out until the burgers are written
+        return databaseConnection.inTransaction(connection -> databaseConnection.executeForKeys(connection,
+                                SqlStatement.BUMP_CART_VERSION_IF_UNCHANGED,
+                                statement -> statement.bind(0, cart.getId()).bind(1, cart.getVersion()))
+                        .singleOrEmpty()
+                        .switchIfEmpty(Mono.error(() -> new CartVersionConflictException(cart.getId(), cart.getVersion())))
+                        .flatMap(version -> databaseConnection.executeForKeys(connection,
+                                        SqlStatement.insertBurgers(burgers.size()), statement -> {
+                                            int parameterIndex = 0;
+                                            for (Burger burger : burgers) {
+                                                statement.bind(parameterIndex++, burger.getPattyType().getCode())
+                                                        .bind(parameterIndex++, burger.hasIngredient(Burger.CHEESE))
+                                                        .bind(parameterIndex++, burger.hasIngredient(Burger.SALAD))
+                                                        .bind(parameterIndex++, burger.hasIngredient(Burger.TOMATO))
+                                                        .bind(parameterIndex++, cart.getId());
+                                            }
+                                        })
+                                // generated keys are returned in the order of the value rows
+                                .doOnNext(burgerId -> burgersInRowOrder.next().setId(burgerId))
+                                .then(Mono.just(version))))
+                // next() would cancel the transaction and roll it back
+                .singleOrEmpty()
+                .doOnNext(version -> {
+                    cartCache.putVersion(cart.getId(), version);
+                    activeCartRegistry.addBurgers(cart.getId(), burgers, version);
+                })
+                .map(version -> true)
+                .defaultIfEmpty(false)
+                .doOnError(error -> burgers.forEach(burger -> burger.setId(null)))
+                .doFinally(signal -> cartCache.invalidate(cart.getId()));
+    }
+}
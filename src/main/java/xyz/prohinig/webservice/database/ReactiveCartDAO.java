@@ -0,0 +1,170 @@
+package xyz.prohinig.webservice.database;
+
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.*;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reactive counterpart of {@link CartDAO}, running the same statements through R2DBC and sharing its cart cache. Like
+ * {@link CartDAO}, it falls through to the archive of the {@link CartArchiver} for carts that are not in the hot
+ * tables.
+ */
+public class ReactiveCartDAO {
+
+    private static final String BURGER_ID_COLUMN = "id";
+    private static final String BURGER_PATTY_TYPE_COLUMN = "patty_type";
+    private static final String BURGER_CHEESE_COLUMN = "cheese";
+    private static final String BURGER_SALAD_COLUMN = "salad";
+    private static final String BURGER_TOMATO_COLUMN = "tomato";
+    private static final String BURGER_CART_ID_COLUMN = "cart_id";
+    private static final String CART_ACTIVE_COLUMN = "active";
+    private static final String CART_VERSION_COLUMN = "version";
+    private static final String SUMMARY_BURGER_COUNT_COLUMN = "burger_count";
+    private static final String SUMMARY_CHEESE_COUNT_COLUMN = "cheese_count";
+    private static final String SUMMARY_SALAD_COUNT_COLUMN = "salad_count";
+    private static final String SUMMARY_TOMATO_COUNT_COLUMN = "tomato_count";
+    private static final String ARCHIVE_BURGERS_COLUMN = "burgers";
+
+    private final ReactiveDatabaseConnection databaseConnection;
+    private final CartCache cartCache;
+    private final ActiveCartRegistry activeCartRegistry;
+
+    public ReactiveCartDAO(ReactiveDatabaseConnection databaseConnection, CartCache cartCache,
+                           ActiveCartRegistry activeCartRegistry) {
+        this.databaseConnection = databaseConnection;
+        this.cartCache = cartCache;
+        this.activeCartRegistry = activeCartRegistry;
+    }
+
+    public Mono<Cart> getCartByID(int id) {
+        return Mono.defer(() -> {
+            Cart cachedCart = cartCache.get(id);
+            if (cachedCart != null) {
+                return Mono.just(cachedCart);
+            }
+
+            // concurrent misses of the same cart share one load, which is cached unless a write detached it
+            return Mono.fromFuture(cartCache.getOrLoadAsync(id, cartId -> loadCart(cartId).toFuture()));
+        });
+    }
+
+    private Mono<Cart> loadCart(int id) {
+        // every row holds the cart and at most one burger, a cart without burgers yields a single row of nulls
+        return databaseConnection.query(SqlStatement.CART_WITH_BURGERS_BY_ID, statement -> statement.bind(0, id),
+                        (row, metadata) -> createCartFromRow(row))
+                .reduce((cart, rowCart) -> {
+                    rowCart.getBurgers().forEach(cart::addBurger);
+                    return cart;
+                })
+                .switchIfEmpty(Mono.defer(() -> getArchivedCart(id)));
+    }
+
+    /**
+     * The latest known version of the cart from the cache, without going to the database.
+     *
+     * @return {@code null} if the version of the cart is not known
+     */
+    public Integer getCachedVersion(int cartId) {
+        return cartCache.getVersion(cartId);
+    }
+
+    /**
+     * Emits the summaries of up to {@code limit} carts with an id greater than {@code afterId}, ordered by id.
+     */
+    public Flux<CartSummary> getCartSummaries(int afterId, int limit) {
+        return readCartSummaries(SqlStatement.CART_SUMMARIES_PAGE, statement -> statement.bind(0, afterId).bind(1, limit));
+    }
+
+    /**
+     * Emits the summary of every cart with an id greater than {@code afterId}, ordered by id. Rows are fetched
+     * {@code fetchSize} at a time as they are requested downstream.
+     */
+    public Flux<CartSummary> streamCartSummaries(int afterId, int fetchSize) {
+        return readCartSummaries(SqlStatement.CART_SUMMARIES_AFTER_ID, statement -> statement.bind(0, afterId).fetchSize(fetchSize));
+    }
+
+    public Mono<Boolean> deleteCart(Cart cart) {
+        return databaseConnection.update(SqlStatement.DELETE_CART, statement -> statement.bind(0, cart.getId()))
+                .flatMap(deletedRows -> deletedRows > 0 ? Mono.just(deletedRows)
+                        : databaseConnection.update(SqlStatement.DELETE_ARCHIVED_CART, statement -> statement.bind(0, cart.getId())))
+                .map(deletedRows -> deletedRows > 0)
+                .onErrorReturn(R2dbcException.class, false)
+                .doFinally(signal -> {
+                    cartCache.remove(cart.getId());
+                    activeCartRegistry.remove(cart.getId());
+                });
+    }
+
+    // checked out carts are moved to the archive by the CartArchiver once they are old enough
+    private Mono<Cart> getArchivedCart(int id) {
+        return databaseConnection.query(SqlStatement.ARCHIVED_CART_BY_ID, statement -> statement.bind(0, id),
+                        (row, metadata) -> CartArchiver.unpackCart(id, row.get(CART_VERSION_COLUMN, Integer.class),
+                                row.get(ARCHIVE_BURGERS_COLUMN, byte[].class)))
+                .next();
+    }
+
+    /**
+     * The database counts burgers and ingredients per cart and patty type, the counts are priced with the
+     * current price table.
+     */
+    private Flux<CartSummary> readCartSummaries(SqlStatement statement, Consumer<Statement> binder) {
+        return Flux.defer(() -> {
+                    PriceTable priceTable = PriceTable.current();
+                    return databaseConnection.query(statement, binder, (row, metadata) -> createCartSummaryFromRow(row, priceTable));
+                })
+                // rows of the same cart are consecutive
+                .bufferUntilChanged(CartSummary::getId)
+                .map(ReactiveCartDAO::combine);
+    }
+
+    private static Cart createCartFromRow(Row row) {
+        Cart cart = new Cart(row.get(BURGER_CART_ID_COLUMN, Integer.class), !row.get(CART_ACTIVE_COLUMN, Boolean.class));
+        cart.setVersion(row.get(CART_VERSION_COLUMN, Integer.class));
+
+        Integer burgerId = row.get(BURGER_ID_COLUMN, Integer.class);
+        if (burgerId != null) {
+            PattyType pattyType = PattyType.fromCode(row.get(BURGER_PATTY_TYPE_COLUMN, Short.class));
+            int ingredients = (row.get(BURGER_CHEESE_COLUMN, Boolean.class) ? Burger.CHEESE : 0)
+                    | (row.get(BURGER_SALAD_COLUMN, Boolean.class) ? Burger.SALAD : 0)
+                    | (row.get(BURGER_TOMATO_COLUMN, Boolean.class) ? Burger.TOMATO : 0);
+            cart.addBurger(new Burger(burgerId, pattyType, ingredients));
+        }
+
+        return cart;
+    }
+
+    private static CartSummary createCartSummaryFromRow(Row row, PriceTable priceTable) {
+        int cartId = row.get(BURGER_CART_ID_COLUMN, Integer.class);
+        boolean checkedOut = !row.get(CART_ACTIVE_COLUMN, Boolean.class);
+
+        // carts without burgers come with a single row without patty type
+        long burgerCount = row.get(SUMMARY_BURGER_COUNT_COLUMN, Long.class);
+        if (burgerCount == 0) {
+            return new CartSummary(cartId, checkedOut, 0, 0);
+        }
+
+        PattyType pattyType = PattyType.fromCode(row.get(BURGER_PATTY_TYPE_COLUMN, Short.class));
+        long totalInCents = priceTable.getBurgersPriceInCents(pattyType, burgerCount, row.get(SUMMARY_CHEESE_COUNT_COLUMN, Long.class),
+                row.get(SUMMARY_SALAD_COUNT_COLUMN, Long.class), row.get(SUMMARY_TOMATO_COUNT_COLUMN, Long.class));
+        return new CartSummary(cartId, checkedOut, (int) burgerCount, totalInCents);
+    }
+
+    private static CartSummary combine(List<CartSummary> rowSummaries) {
+        CartSummary first = rowSummaries.get(0);
+        int burgerCount = 0;
+        long totalInCents = 0;
+        for (CartSummary rowSummary : rowSummaries) {
+            burgerCount += rowSummary.getBurgerCount();
+            totalInCents += rowSummary.getTotalInCents();
+        }
+        return new CartSummary(first.getId(), first.isCheckedOut(), burgerCount, totalInCents);
+    }
+}
@@ -0,0 +1,98 @@
+package xyz.prohinig.webservice.database;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link DatabaseConnection} on an R2DBC connection factory, usually a connection pool.
+ * Every statement borrows its own connection, which is returned once the results are consumed or the subscription
+ * is cancelled.
+ */
+public class ReactiveDatabaseConnection implements AutoCloseable {
+
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveDatabaseConnection(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Runs a query and maps its rows. Rows are only fetched as fast as they are requested downstream.
+     *
+     * @param binder binds the parameters, starting at index 0
+     */
+    public <T> Flux<T> query(SqlStatement statement, Consumer<Statement> binder, BiFunction<Row, RowMetadata, T> rowMapper) {
+        return Flux.usingWhen(borrowConnection(), connection -> query(connection, statement, binder, rowMapper), Connection::close);
+    }
+
+    /**
+     * Runs a query on a connection handed out by {@link #inTransaction(Function)}.
+     */
+    public <T> Flux<T> query(Connection connection, SqlStatement statement, Consumer<Statement> binder,
+                             BiFunction<Row, RowMetadata, T> rowMapper) {
+        return execute(connection, statement, binder).flatMap(result -> result.map(rowMapper));
+    }
+
+    /**
+     * Runs an update and emits the number of updated rows.
+     */
+    public Mono<Long> update(SqlStatement statement, Consumer<Statement> binder) {
+        return Flux.usingWhen(borrowConnection(),
+                        connection -> execute(connection, statement, binder).flatMap(Result::getRowsUpdated),
+                        Connection::close)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Runs an insert or update on a connection handed out by {@link #inTransaction(Function)} and emits the
+     * generated values of the affected rows in the order of the rows.
+     */
+    public Flux<Integer> executeForKeys(Connection connection, SqlStatement statement, Consumer<Statement> binder) {
+        return query(connection, statement, binder, (row, metadata) -> row.get(0, Integer.class));
+    }
+
+    /**
+     * Runs the work on one connection in one transaction. The transaction is committed when the work completes
+     * and rolled back when it fails or the subscription is cancelled.
+     */
+    public <T> Flux<T> inTransaction(Function<Connection, Publisher<T>> work) {
+        return Flux.usingWhen(borrowConnection(),
+                connection -> Mono.from(connection.beginTransaction()).thenMany(work.apply(connection)),
+                connection -> Flux.concatDelayError(connection.commitTransaction(), connection.close()),
+                (connection, error) -> Flux.concatDelayError(connection.rollbackTransaction(), connection.close()),
+                connection -> Flux.concatDelayError(connection.rollbackTransaction(), connection.close()));
+    }
+
+    @Override
+    public void close() {
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose();
+        }
+    }
+
+    private Mono<Connection> borrowConnection() {
+        return Mono.<Connection>from(connectionFactory.create())
+                .onErrorMap(exception -> new ConnectionUnavailableException("could not obtain a database connection", exception));
+    }
+
+    private static Flux<Result> execute(Connection connection, SqlStatement sqlStatement, Consumer<Statement> binder) {
+        Statement statement = connection.createStatement(sqlStatement.getNumberedSql());
+        if (sqlStatement.getGeneratedKeyColumn() != null) {
+            statement.returnGeneratedValues(sqlStatement.getGeneratedKeyColumn());
+        }
+        binder.accept(statement);
+        return Flux.from(statement.execute());
+    }
+}
@@ -0,0 +1,130 @@
+package xyz.prohinig.webservice.database;
+
+/**
+ * Every statement the DAOs run. Keeping the SQL text fixed per statement lets the driver cache the prepared
+ * statement per connection and switch to a server-side prepared plan after a few executions.
+ */
+public enum SqlStatement {
+
+    INSERT_CART("insert into cart default values;", "id"),
+    // writes of requests are conditional on the version the cart was read at, they update no row if it changed
+    CHECKOUT_CART("update cart set active = false, checked_out_at = current_timestamp, version = version + 1"
+            + " where id = ? and version = ?;", "version"),
+    BUMP_CART_VERSION_IF_UNCHANGED("update cart set version = version + 1 where id = ? and version = ?;", "version"),
+    // burgers accepted by the write-behind are written whatever version the cart is at
+    BUMP_CART_VERSION("update cart set version = version + 1 where id = ?;", "version"),
+    DELETE_CART("DELETE from cart WHERE id = ?;"),
+    DELETE_ARCHIVED_CART("DELETE from cart_archive WHERE id = ?;"),
+
+    CART_WITH_BURGERS_BY_ID("SELECT cart.id AS cart_id, cart.active, cart.version, burger.id, burger.patty_type, burger.cheese, burger.salad, burger.tomato"
+            + " FROM cart LEFT JOIN burger ON burger.cart_id = cart.id WHERE cart.id = ? ORDER BY burger.id;"),
+    // burger and ingredient counts per cart and patty type, the prices are applied by the caller
+    CART_SUMMARIES_PAGE("SELECT cart.id AS cart_id, cart.active, burger.patty_type, " + summaryCounts()
+            + " FROM (SELECT id, active FROM cart WHERE id > ? ORDER BY id LIMIT ?) AS cart"
+            + " LEFT JOIN burger ON burger.cart_id = cart.id"
+            + " GROUP BY cart.id, cart.active, burger.patty_type ORDER BY cart.id;"),
+    CART_SUMMARIES_AFTER_ID("SELECT cart.id AS cart_id, cart.active, burger.patty_type, " + summaryCounts()
+            + " FROM cart LEFT JOIN burger ON burger.cart_id = cart.id WHERE cart.id > ?"
+            + " GROUP BY cart.id, cart.active, burger.patty_type ORDER BY cart.id;"),
+    // served by the partial index on active carts, which stays small as checked out carts pile up
+    ACTIVE_CARTS_WITH_BURGERS("SELECT cart.id AS cart_id, cart.version, burger.id, burger.patty_type, burger.cheese, burger.salad, burger.tomato"
+            + " FROM cart LEFT JOIN burger ON burger.cart_id = cart.id WHERE cart.active = true ORDER BY cart.id, burger.id;"),
+
+    // the state a single burger accepted by the write-behind is checked against, and the limit of its flush
+    CART_VERSION_AND_BURGER_COUNT("SELECT cart.version, count(burger.id) FROM cart LEFT JOIN burger ON burger.cart_id = cart.id"
+            + " WHERE cart.id = ? GROUP BY cart.version;"),
+
+    // carts that are not in the hot tables anymore
+    ARCHIVED_CART_BY_ID("SELECT version, burgers FROM cart_archive WHERE id = ?;"),
+    // served by the partial index on checked out carts
+    ARCHIVABLE_CARTS_WITH_BURGERS("SELECT cart.id AS cart_id, cart.version, cart.checked_out_at, burger.id, burger.patty_type,"
+            + " burger.cheese, burger.salad, burger.tomato"
+            + " FROM (SELECT id, version, checked_out_at FROM cart WHERE NOT active AND checked_out_at < ? ORDER BY checked_out_at LIMIT ?) AS cart"
+            + " LEFT JOIN burger ON burger.cart_id = cart.id ORDER BY cart.id, burger.id;"),
+    INSERT_ARCHIVED_CART("insert into cart_archive (id, version, checked_out_at, burgers) values (?, ?, ?, ?);"),
+    // a cart written since it was read for archival stays in the hot tables until the next run
+    DELETE_CART_IF_UNCHANGED("delete from cart where id = ? and version = ?;"),
+
+    // a cart holds at most Cart.MAX_BURGERS burgers, so new burgers are inserted with one of three multi-row statements
+    INSERT_ONE_BURGER(multiRowBurgerInsert(1), "id"),
+    INSERT_TWO_BURGERS(multiRowBurgerInsert(2), "id"),
+    INSERT_THREE_BURGERS(multiRowBurgerInsert(3), "id"),
+    // an empty array matches every burger of the cart
+    DELETE_BURGERS_NOT_IN("delete from burger where cart_id = ? and not (id = ANY(?));"),
+
+    // the last journal sequence of the write-behind that was written to the database
+    WRITE_BEHIND_CHECKPOINT("select last_sequence from write_behind_checkpoint where journal_id = ?;"),
+    INSERT_WRITE_BEHIND_CHECKPOINT("insert into write_behind_checkpoint (journal_id, last_sequence) values (?, ?);"),
+    UPDATE_WRITE_BEHIND_CHECKPOINT("update write_behind_checkpoint set last_sequence = ? where journal_id = ?;");
+
+    private final String sql;
+    private final String numberedSql;
+    private final String generatedKeyColumn;
+
+    SqlStatement(String sql) {
+        this(sql, null);
+    }
+
+    SqlStatement(String sql, String generatedKeyColumn) {
+        this.sql = sql;
+        this.numberedSql = numberBindMarkers(sql);
+        this.generatedKeyColumn = generatedKeyColumn;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * The statement with {@code $1, $2, ...} instead of {@code ?} as bind markers, as R2DBC drivers expect them.
+     */
+    public String getNumberedSql() {
+        return numberedSql;
+    }
+
+    public String getGeneratedKeyColumn() {
+        return generatedKeyColumn;
+    }
+
+    public static SqlStatement insertBurgers(int burgerCount) {
+        switch (burgerCount) {
+            case 1:
+                return INSERT_ONE_BURGER;
+            case 2:
+                return INSERT_TWO_BURGERS;
+            case 3:
+                return INSERT_THREE_BURGERS;
+            default:
+                throw new IllegalArgumentException("no insert statement for " + burgerCount + " burgers");
+        }
+    }
+
+    private static String multiRowBurgerInsert(int rows) {
+        StringBuilder sql = new StringBuilder("insert into burger(patty_type, cheese, salad, tomato, cart_id) values ");
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "" : ", ").append("(?, ?, ?, ?, ?)");
+        }
+        return sql.append(";").toString();
+    }
+
+    private static String summaryCounts() {
+        return "count(burger.id) AS burger_count,"
+                + " sum(CASE WHEN burger.cheese THEN 1 ELSE 0 END) AS cheese_count,"
+                + " sum(CASE WHEN burger.salad THEN 1 ELSE 0 END) AS salad_count,"
+                + " sum(CASE WHEN burger.tomato THEN 1 ELSE 0 END) AS tomato_count";
+    }
+
+    private static String numberBindMarkers(String sql) {
+        StringBuilder numberedSql = new StringBuilder(sql.length() + 8);
+        int marker = 1;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                numberedSql.append('$').append(marker++);
+            } else {
+                numberedSql.append(c);
+            }
+        }
+        return numberedSql.toString();
+    }
+}
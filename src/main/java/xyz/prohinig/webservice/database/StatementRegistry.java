@@ -0,0 +1,134 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.dto.DaoMethodStatsDto;
+import xyz.prohinig.webservice.dto.StatementStatsDto;
+import xyz.prohinig.webservice.metrics.LatencyHistogram;
+import xyz.prohinig.webservice.metrics.RequestTrace;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Prepares the {@link SqlStatement}s and records how often and how long each of them is executed. Executions are
+ * also counted on the {@link RequestTrace} of the current request, and the DAOs record their methods here.
+ */
+public class StatementRegistry {
+
+    private final Map<SqlStatement, Timings> timingsByStatement = new EnumMap<>(SqlStatement.class);
+    private final Map<DaoMethod, MethodTimings> timingsByMethod = new EnumMap<>(DaoMethod.class);
+
+    public StatementRegistry() {
+        for (SqlStatement statement : SqlStatement.values()) {
+            timingsByStatement.put(statement, new Timings());
+        }
+        for (DaoMethod method : DaoMethod.values()) {
+            timingsByMethod.put(method, new MethodTimings());
+        }
+    }
+
+    public PreparedStatement prepare(Connection connection, SqlStatement statement) throws SQLException {
+        if (statement.getGeneratedKeyColumn() == null) {
+            return connection.prepareStatement(statement.getSql());
+        }
+        return connection.prepareStatement(statement.getSql(), new String[]{statement.getGeneratedKeyColumn()});
+    }
+
+    public ResultSet executeQuery(SqlStatement statement, PreparedStatement preparedStatement) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return preparedStatement.executeQuery();
+        } finally {
+            timingsByStatement.get(statement).record(System.nanoTime() - start);
+            RequestTrace.recordStatement(statement);
+        }
+    }
+
+    public int executeUpdate(SqlStatement statement, PreparedStatement preparedStatement) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return preparedStatement.executeUpdate();
+        } finally {
+            timingsByStatement.get(statement).record(System.nanoTime() - start);
+            RequestTrace.recordStatement(statement);
+        }
+    }
+
+    /**
+     * Runs the batch of the statement, recorded as one execution since it is sent in one round trip.
+     */
+    public int[] executeBatch(SqlStatement statement, PreparedStatement preparedStatement) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return preparedStatement.executeBatch();
+        } finally {
+            timingsByStatement.get(statement).record(System.nanoTime() - start);
+            RequestTrace.recordStatement(statement);
+        }
+    }
+
+    /**
+     * Records a call of a DAO method. Rows are the rows read from result sets by queries, or the rows inserted or
+     * deleted by writes.
+     */
+    public void recordMethod(DaoMethod method, long nanos, long rows) {
+        MethodTimings timings = timingsByMethod.get(method);
+        timings.latency.record(nanos);
+        timings.rowCount.add(rows);
+    }
+
+    /**
+     * Statistics of every executed statement, the statement with the highest total time first.
+     */
+    public List<StatementStatsDto> getStatistics() {
+        return timingsByStatement.entrySet().stream()
+                .filter(entry -> entry.getValue().count.sum() > 0)
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingLong(StatementStatsDto::getTotalMicros).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Statistics of every called DAO method.
+     */
+    public List<DaoMethodStatsDto> getMethodStatistics() {
+        return timingsByMethod.entrySet().stream()
+                .map(entry -> new DaoMethodStatsDto(entry.getKey().getName(), entry.getValue().rowCount.sum(),
+                        entry.getValue().latency.toDto()))
+                .filter(method -> method.getLatency().getCount() > 0)
+                .collect(Collectors.toList());
+    }
+
+    private static class MethodTimings {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rowCount = new LongAdder();
+    }
+
+    private static class Timings {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private StatementStatsDto toDto(SqlStatement statement) {
+            long executions = count.sum();
+            long totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos.sum());
+            return new StatementStatsDto(statement.name(), executions, totalMicros,
+                    executions == 0 ? 0 : totalMicros / executions, TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package xyz.prohinig.webservice.database;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the foreign key of {@code burger.cart_id} with one that deletes the burgers of a deleted cart. The name of
+ * the existing key was generated by the database that created the table, so it is looked up instead of assumed.
+ */
+class V3_1__Cascade_burger_deletes extends BaseJavaMigration {
+
+    private static final String CART_FOREIGN_KEYS = "select tc.constraint_name from information_schema.table_constraints tc"
+            + " join information_schema.key_column_usage kcu"
+            + " on kcu.constraint_schema = tc.constraint_schema and kcu.constraint_name = tc.constraint_name"
+            + " where tc.table_schema = current_schema and tc.table_name = 'burger'"
+            + " and tc.constraint_type = 'FOREIGN KEY' and kcu.column_name = 'cart_id';";
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            for (String foreignKey : findCartForeignKeys(connection)) {
+                statement.execute("alter table burger drop constraint " + quote(foreignKey) + ";");
+            }
+            statement.execute("alter table burger add constraint burger_cart_id_fkey"
+                    + " foreign key (cart_id) references cart (id) on delete cascade;");
+        }
+    }
+
+    private static List<String> findCartForeignKeys(Connection connection) throws SQLException {
+        List<String> foreignKeys = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(CART_FOREIGN_KEYS);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                foreignKeys.add(resultSet.getString(1));
+            }
+        }
+        return foreignKeys;
+    }
+
+    // generated names are not necessarily lower case
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
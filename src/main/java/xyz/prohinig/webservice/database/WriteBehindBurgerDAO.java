@@ -0,0 +1,53 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Acknowledges a single burger once it is in the journal of the {@link BurgerWriteBehind}, it is written to the
+ * database in the background. The burger is only accepted if the cart is still as it was read.
+ */
+public class WriteBehindBurgerDAO extends BurgerDAO {
+
+    private final BurgerWriteBehind writeBehind;
+
+    public WriteBehindBurgerDAO(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                                ActiveCartRegistry activeCartRegistry, BurgerWriteBehind writeBehind) {
+        super(databaseConnection, statementRegistry, cartCache, activeCartRegistry);
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * @throws CartVersionConflictException if the cart changed since it was read
+     */
+    @Override
+    public boolean persistBurger(Burger burger, Cart cart) {
+        try {
+            writeBehind.add(burger, cart);
+            return true;
+        } catch (SQLException | UncheckedIOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Written right away, after the pending burgers of the cart, so the version of the cart and the order of its
+     * burgers stay the same as without write-behind.
+     */
+    @Override
+    public boolean persistBurgers(List<Burger> burgers, Cart cart) {
+        if (writeBehind.hasPending(cart.getId())) {
+            writeBehind.flush();
+            if (writeBehind.hasPending(cart.getId())) {
+                return false;
+            }
+        }
+        return super.persistBurgers(burgers, cart);
+    }
+}
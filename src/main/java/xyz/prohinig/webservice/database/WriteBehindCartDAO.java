@@ -0,0 +1,103 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads carts with the burgers the {@link BurgerWriteBehind} has accepted but not written yet. Those burgers have no
+ * id. Writes to a cart first write its pending burgers.
+ */
+public class WriteBehindCartDAO extends CartDAO {
+
+    private final BurgerWriteBehind writeBehind;
+
+    public WriteBehindCartDAO(DatabaseConnection databaseConnection, StatementRegistry statementRegistry, CartCache cartCache,
+                              ActiveCartRegistry activeCartRegistry, BurgerWriteBehind writeBehind) {
+        super(databaseConnection, statementRegistry, cartCache, activeCartRegistry);
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public Cart getCartByID(int id) {
+        List<BurgerWriteBehind.PendingBurger> pending = writeBehind.getPending(id);
+        Cart cart = super.getCartByID(id);
+        return cart == null ? null : writeBehind.merge(cart, pending);
+    }
+
+    @Override
+    public Cart getActiveCart() {
+        Cart activeCart = super.getActiveCart();
+        while (activeCart != null) {
+            // the pending burgers have to be taken before the cart is read, so it is read again
+            List<BurgerWriteBehind.PendingBurger> pending = writeBehind.getPending(activeCart.getId());
+            Cart latestActiveCart = super.getActiveCart();
+            if (latestActiveCart != null && latestActiveCart.getId().equals(activeCart.getId())) {
+                return writeBehind.merge(latestActiveCart, pending);
+            }
+            activeCart = latestActiveCart;
+        }
+        return null;
+    }
+
+    /**
+     * The version does not cover pending burgers, so carts with pending burgers have no cached version.
+     */
+    @Override
+    public Integer getCachedVersion(int cartId) {
+        return writeBehind.hasPending(cartId) ? null : super.getCachedVersion(cartId);
+    }
+
+    /**
+     * A cart read with pending burgers is written once they are, at the version that holds them, see
+     * {@link BurgerWriteBehind#flushInto(Cart)}. Fails if they cannot be written first.
+     *
+     * @throws CartVersionConflictException if the cart changed since it was read, or a pending burger was accepted
+     *                                      after it was read
+     */
+    @Override
+    public boolean update(Cart cart) {
+        try {
+            if (cart.getId() != null && !writeBehind.flushInto(cart)) {
+                return false;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+        return super.update(cart);
+    }
+
+    /**
+     * Pending burgers that cannot be written before the cart is deleted are dropped once it is gone.
+     */
+    @Override
+    public boolean deleteCart(Cart cart) {
+        flushPending(cart.getId());
+        return super.deleteCart(cart);
+    }
+
+    @Override
+    public List<CartSummary> getCartSummaries(int afterId, int limit) {
+        return super.getCartSummaries(afterId, limit).stream()
+                .map(writeBehind::merge)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamCartSummaries(int afterId, int fetchSize, Consumer<CartSummary> consumer) {
+        super.streamCartSummaries(afterId, fetchSize, cartSummary -> consumer.accept(writeBehind.merge(cartSummary)));
+    }
+
+    private boolean flushPending(int cartId) {
+        if (writeBehind.hasPending(cartId)) {
+            writeBehind.flush();
+        }
+        return !writeBehind.hasPending(cartId);
+    }
+}
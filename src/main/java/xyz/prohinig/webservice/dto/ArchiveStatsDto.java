@@ -0,0 +1,25 @@
+package xyz.prohinig.webservice.dto;
+
+public class ArchiveStatsDto {
+    private final long runCount;
+    private final long archivedCount;
+    private final long skippedCount;
+
+    public ArchiveStatsDto(long runCount, long archivedCount, long skippedCount) {
+        this.runCount = runCount;
+        this.archivedCount = archivedCount;
+        this.skippedCount = skippedCount;
+    }
+
+    public long getRunCount() {
+        return runCount;
+    }
+
+    public long getArchivedCount() {
+        return archivedCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+}
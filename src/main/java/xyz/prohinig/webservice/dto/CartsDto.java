@@ -5,10 +5,12 @@ import java.util.List;
 public class CartsDto {
     private final int totalCount;
     private final List<CartDto> carts;
+    private final Integer nextCursor;
 
-    public CartsDto(int totalCount, List<CartDto> carts) {
+    public CartsDto(int totalCount, List<CartDto> carts, Integer nextCursor) {
         this.totalCount = totalCount;
         this.carts = carts;
+        this.nextCursor = nextCursor;
     }
 
     public int getTotalCount() {
@@ -18,4 +20,11 @@ public class CartsDto {
     public List<CartDto> getCarts() {
         return carts;
     }
+
+    /**
+     * Value for the {@code after} parameter of the next page, {@code null} on the last page.
+     */
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
 }
@@ -0,0 +1,63 @@
+package xyz.prohinig.webservice.dto;
+
+public class ConnectionPoolStatsDto {
+    private final int maximumPoolSize;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int threadsAwaitingConnection;
+    private final long borrowCount;
+    private final long borrowTimeoutCount;
+    private final long averageWaitMicros;
+    private final long maxWaitMicros;
+    private final LatencyDto waitLatency;
+
+    public ConnectionPoolStatsDto(int maximumPoolSize, int activeConnections, int idleConnections, int threadsAwaitingConnection,
+                                  long borrowCount, long borrowTimeoutCount, long averageWaitMicros, long maxWaitMicros,
+                                  LatencyDto waitLatency) {
+        this.maximumPoolSize = maximumPoolSize;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.borrowCount = borrowCount;
+        this.borrowTimeoutCount = borrowTimeoutCount;
+        this.averageWaitMicros = averageWaitMicros;
+        this.maxWaitMicros = maxWaitMicros;
+        this.waitLatency = waitLatency;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount;
+    }
+
+    public long getAverageWaitMicros() {
+        return averageWaitMicros;
+    }
+
+    public long getMaxWaitMicros() {
+        return maxWaitMicros;
+    }
+
+    public LatencyDto getWaitLatency() {
+        return waitLatency;
+    }
+}
@@ -0,0 +1,25 @@
+package xyz.prohinig.webservice.dto;
+
+public class DaoMethodStatsDto {
+    private final String name;
+    private final long rowCount;
+    private final LatencyDto latency;
+
+    public DaoMethodStatsDto(String name, long rowCount, LatencyDto latency) {
+        this.name = name;
+        this.rowCount = rowCount;
+        this.latency = latency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public LatencyDto getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,44 @@
+package xyz.prohinig.webservice.dto;
+
+public class EndpointStatsDto {
+    private final String name;
+    private final LatencyDto latency;
+    private final long statementCount;
+    private final long maxStatementsPerRequest;
+    private final long repeatedStatementRequestCount;
+    private final String lastRepeatedStatement;
+
+    public EndpointStatsDto(String name, LatencyDto latency, long statementCount, long maxStatementsPerRequest,
+                            long repeatedStatementRequestCount, String lastRepeatedStatement) {
+        this.name = name;
+        this.latency = latency;
+        this.statementCount = statementCount;
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+        this.repeatedStatementRequestCount = repeatedStatementRequestCount;
+        this.lastRepeatedStatement = lastRepeatedStatement;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyDto getLatency() {
+        return latency;
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    public long getMaxStatementsPerRequest() {
+        return maxStatementsPerRequest;
+    }
+
+    public long getRepeatedStatementRequestCount() {
+        return repeatedStatementRequestCount;
+    }
+
+    public String getLastRepeatedStatement() {
+        return lastRepeatedStatement;
+    }
+}
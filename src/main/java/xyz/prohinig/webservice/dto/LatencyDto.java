@@ -0,0 +1,43 @@
+package xyz.prohinig.webservice.dto;
+
+public class LatencyDto {
+    private final long count;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    public LatencyDto(long count, long meanMicros, long p50Micros, long p99Micros, long p999Micros, long maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
@@ -0,0 +1,31 @@
+package xyz.prohinig.webservice.dto;
+
+public class LoadCoalescingStatsDto {
+    private final long loadCount;
+    private final long coalescedCount;
+    private final long inFlightCount;
+    private final double coalescedRate;
+
+    public LoadCoalescingStatsDto(long loadCount, long coalescedCount, long inFlightCount, double coalescedRate) {
+        this.loadCount = loadCount;
+        this.coalescedCount = coalescedCount;
+        this.inFlightCount = inFlightCount;
+        this.coalescedRate = coalescedRate;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getInFlightCount() {
+        return inFlightCount;
+    }
+
+    public double getCoalescedRate() {
+        return coalescedRate;
+    }
+}
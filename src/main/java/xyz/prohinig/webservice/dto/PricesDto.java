@@ -0,0 +1,28 @@
+package xyz.prohinig.webservice.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class PricesDto {
+    private final BigDecimal base;
+    private final Map<PattyTypeDto, BigDecimal> patties;
+    private final Map<IngredientDto, BigDecimal> ingredients;
+
+    public PricesDto(BigDecimal base, Map<PattyTypeDto, BigDecimal> patties, Map<IngredientDto, BigDecimal> ingredients) {
+        this.base = base;
+        this.patties = patties;
+        this.ingredients = ingredients;
+    }
+
+    public BigDecimal getBase() {
+        return base;
+    }
+
+    public Map<PattyTypeDto, BigDecimal> getPatties() {
+        return patties;
+    }
+
+    public Map<IngredientDto, BigDecimal> getIngredients() {
+        return ingredients;
+    }
+}
@@ -0,0 +1,50 @@
+package xyz.prohinig.webservice.dto;
+
+public class ResponseCacheStatsDto {
+    private final long size;
+    private final long bytes;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long invalidationCount;
+    private final double hitRate;
+
+    public ResponseCacheStatsDto(long size, long bytes, long hitCount, long missCount, long evictionCount,
+                                 long invalidationCount, double hitRate) {
+        this.size = size;
+        this.bytes = bytes;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.hitRate = hitRate;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+}
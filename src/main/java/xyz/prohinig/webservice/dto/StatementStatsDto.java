@@ -0,0 +1,37 @@
+package xyz.prohinig.webservice.dto;
+
+public class StatementStatsDto {
+    private final String name;
+    private final long executionCount;
+    private final long totalMicros;
+    private final long averageMicros;
+    private final long maxMicros;
+
+    public StatementStatsDto(String name, long executionCount, long totalMicros, long averageMicros, long maxMicros) {
+        this.name = name;
+        this.executionCount = executionCount;
+        this.totalMicros = totalMicros;
+        this.averageMicros = averageMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutionCount() {
+        return executionCount;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getAverageMicros() {
+        return averageMicros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
@@ -0,0 +1,47 @@
+package xyz.prohinig.webservice.dto;
+
+import java.util.List;
+
+public class WriteBehindStatsDto {
+    private final long appendedCount;
+    private final long flushedCount;
+    private final long droppedCount;
+    // the carts of the latest dropped burgers, oldest first
+    private final List<Integer> droppedCartIds;
+    private final long pendingCount;
+    private final long journalBytes;
+
+    public WriteBehindStatsDto(long appendedCount, long flushedCount, long droppedCount, List<Integer> droppedCartIds,
+                               long pendingCount, long journalBytes) {
+        this.appendedCount = appendedCount;
+        this.flushedCount = flushedCount;
+        this.droppedCount = droppedCount;
+        this.droppedCartIds = droppedCartIds;
+        this.pendingCount = pendingCount;
+        this.journalBytes = journalBytes;
+    }
+
+    public long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public long getFlushedCount() {
+        return flushedCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public List<Integer> getDroppedCartIds() {
+        return droppedCartIds;
+    }
+
+    public long getPendingCount() {
+        return pendingCount;
+    }
+
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+}
@@ -1,21 +1,43 @@
 package xyz.prohinig.webservice.mapper;
 
 import xyz.prohinig.webservice.dto.BurgerDto;
-import xyz.prohinig.webservice.dto.BurgersDto;
 import xyz.prohinig.webservice.dto.IngredientDto;
 import xyz.prohinig.webservice.dto.PattyTypeDto;
 import xyz.prohinig.webservice.model.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class BurgerMapper {
 
+    // one immutable ingredient list per ingredient mask, shared by all burger dtos
+    private static final List<List<IngredientDto>> INGREDIENT_DTO_LISTS = new ArrayList<>(Burger.INGREDIENT_MASK_COUNT);
+
+    static {
+        for (int ingredients = 0; ingredients < Burger.INGREDIENT_MASK_COUNT; ingredients++) {
+            List<IngredientDto> ingredientDtoList = new ArrayList<>();
+
+            if ((ingredients & Burger.CHEESE) != 0) {
+                ingredientDtoList.add(IngredientDto.CHEESE);
+            }
+            if ((ingredients & Burger.SALAD) != 0) {
+                ingredientDtoList.add(IngredientDto.SALAD);
+            }
+            if ((ingredients & Burger.TOMATO) != 0) {
+                ingredientDtoList.add(IngredientDto.TOMATO);
+            }
+
+            INGREDIENT_DTO_LISTS.add(Collections.unmodifiableList(ingredientDtoList));
+        }
+    }
+
     public BurgerDto toBurgerDto(Burger burger) {
 
-        int burgerId = burger.getId();
+        // null for burgers that are not written to the database yet
+        Integer burgerId = burger.getId();
         PattyTypeDto pattyTypeDto = toPattyTypeDto(burger.getPattyType());
-        List<IngredientDto> ingredientDtoList = toIngredientDto(burger.getCheese(), burger.getSalad(), burger.getTomato());
+        List<IngredientDto> ingredientDtoList = toIngredientDtoList(burger.getIngredients());
 
         return new BurgerDto(burgerId, pattyTypeDto, ingredientDtoList);
     }
@@ -23,36 +45,59 @@ public class BurgerMapper {
     public Burger fromBurgerDto(BurgerDto burgerDto) {
 
         Integer burgerId = burgerDto.getId();
-        PattyType pattyType = PattyType.valueOf(burgerDto.getPattyType().name());
-        Ingredient cheese = burgerDto.getIngredients().contains(IngredientDto.CHEESE) ? new Cheese() : null;
-        Ingredient salad = burgerDto.getIngredients().contains(IngredientDto.SALAD) ? new Salad() : null;
-        Ingredient tomato = burgerDto.getIngredients().contains(IngredientDto.TOMATO) ? new Tomato() : null;
+        PattyType pattyType = toPattyType(burgerDto.getPattyType());
+        int ingredients = toIngredientMask(burgerDto.getIngredients());
 
         if(burgerId == null) {
-            return new Burger(pattyType, cheese, salad , tomato);
+            return new Burger(pattyType, ingredients);
         }
 
-        return new Burger(burgerId, pattyType, cheese, salad , tomato);
+        return new Burger(burgerId, pattyType, ingredients);
     }
 
-    private PattyTypeDto toPattyTypeDto(PattyType pattyType) {
-        return PattyTypeDto.valueOf(pattyType.name());
+    static PattyTypeDto toPattyTypeDto(PattyType pattyType) {
+        switch (pattyType) {
+            case MEAT:
+                return PattyTypeDto.MEAT;
+            case VEGGIE:
+                return PattyTypeDto.VEGGIE;
+            default:
+                throw new IllegalArgumentException("unknown patty type " + pattyType);
+        }
     }
 
-    private List<IngredientDto> toIngredientDto(Ingredient cheese, Ingredient salad, Ingredient tomato) {
-        List<IngredientDto> ingredientDtoList = new ArrayList<>();
-
-        if (cheese != null) {
-            ingredientDtoList.add(IngredientDto.CHEESE);
-        }
-        if (salad != null) {
-            ingredientDtoList.add(IngredientDto.SALAD);
-        }
-        if (tomato != null) {
-            ingredientDtoList.add(IngredientDto.TOMATO);
+    static PattyType toPattyType(PattyTypeDto pattyTypeDto) {
+        switch (pattyTypeDto) {
+            case MEAT:
+                return PattyType.MEAT;
+            case VEGGIE:
+                return PattyType.VEGGIE;
+            default:
+                throw new IllegalArgumentException("unknown patty type " + pattyTypeDto);
         }
+    }
 
-        return ingredientDtoList;
+    static List<IngredientDto> toIngredientDtoList(int ingredients) {
+        return INGREDIENT_DTO_LISTS.get(ingredients);
+    }
+
+    static int toIngredientMask(List<IngredientDto> ingredientDtoList) {
+        int ingredients = 0;
+
+        for (int i = 0; i < ingredientDtoList.size(); i++) {
+            switch (ingredientDtoList.get(i)) {
+                case CHEESE:
+                    ingredients |= Burger.CHEESE;
+                    break;
+                case SALAD:
+                    ingredients |= Burger.SALAD;
+                    break;
+                case TOMATO:
+                    ingredients |= Burger.TOMATO;
+                    break;
+            }
+        }
 
+        return ingredients;
     }
 }
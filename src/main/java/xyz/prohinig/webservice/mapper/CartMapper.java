@@ -2,9 +2,14 @@ package xyz.prohinig.webservice.mapper;
 
 import xyz.prohinig.webservice.dto.CartDto;
 import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.CartSummary;
 
 public class CartMapper {
     public CartDto toCartDto(Cart cart) {
         return new CartDto(cart.getId(), cart.getBurgers().size(), cart.getTotal(), !cart.isCheckedOut());
     }
+
+    public CartDto toCartDto(CartSummary cartSummary) {
+        return new CartDto(cartSummary.getId(), cartSummary.getBurgerCount(), cartSummary.getTotal(), !cartSummary.isCheckedOut());
+    }
 }
@@ -0,0 +1,106 @@
+package xyz.prohinig.webservice.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.PattyTypeDto;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.io.IOException;
+
+/**
+ * Binds burgers in the compact representation of the binary wire format. The patty type is written as its code and
+ * the ingredients as a mask of {@link Burger#CHEESE}, {@link Burger#SALAD} and {@link Burger#TOMATO}. The field names
+ * are the same as in JSON. Only registered with the binary format, JSON keeps the enum names.
+ */
+public class CompactDtoModule extends SimpleModule {
+
+    private static final String ID_FIELD = "id";
+    private static final String PATTY_TYPE_FIELD = "pattyType";
+    private static final String INGREDIENTS_FIELD = "ingredients";
+
+    public CompactDtoModule() {
+        super(CompactDtoModule.class.getSimpleName());
+        addSerializer(BurgerDto.class, new BurgerDtoSerializer());
+        addDeserializer(BurgerDto.class, new BurgerDtoDeserializer());
+    }
+
+    private static class BurgerDtoSerializer extends StdSerializer<BurgerDto> {
+
+        BurgerDtoSerializer() {
+            super(BurgerDto.class);
+        }
+
+        @Override
+        public void serialize(BurgerDto burgerDto, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(burgerDto);
+            if (burgerDto.getId() == null) {
+                generator.writeNullField(ID_FIELD);
+            } else {
+                generator.writeNumberField(ID_FIELD, burgerDto.getId());
+            }
+            generator.writeNumberField(PATTY_TYPE_FIELD, BurgerMapper.toPattyType(burgerDto.getPattyType()).getCode());
+            generator.writeNumberField(INGREDIENTS_FIELD, BurgerMapper.toIngredientMask(burgerDto.getIngredients()));
+            generator.writeEndObject();
+        }
+    }
+
+    private static class BurgerDtoDeserializer extends StdDeserializer<BurgerDto> {
+
+        BurgerDtoDeserializer() {
+            super(BurgerDto.class);
+        }
+
+        @Override
+        public BurgerDto deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartObjectToken()) {
+                return (BurgerDto) context.handleUnexpectedToken(BurgerDto.class, parser);
+            }
+
+            Integer id = null;
+            PattyTypeDto pattyType = null;
+            int ingredients = 0;
+
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case ID_FIELD:
+                        id = token == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+                        break;
+                    case PATTY_TYPE_FIELD:
+                        pattyType = toPattyTypeDto(parser.getIntValue(), context);
+                        break;
+                    case INGREDIENTS_FIELD:
+                        ingredients = parser.getIntValue();
+                        if (ingredients < 0 || ingredients >= Burger.INGREDIENT_MASK_COUNT) {
+                            throw context.weirdNumberException(ingredients, Integer.class, "invalid ingredient mask");
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (pattyType == null) {
+                throw context.weirdStringException(null, PattyTypeDto.class, "missing patty type");
+            }
+            return new BurgerDto(id, pattyType, BurgerMapper.toIngredientDtoList(ingredients));
+        }
+
+        private static PattyTypeDto toPattyTypeDto(int code, DeserializationContext context) throws IOException {
+            for (PattyType pattyType : PattyType.values()) {
+                if (pattyType.getCode() == code) {
+                    return BurgerMapper.toPattyTypeDto(pattyType);
+                }
+            }
+            throw context.weirdNumberException(code, PattyTypeDto.class, "unknown patty type code");
+        }
+    }
+}
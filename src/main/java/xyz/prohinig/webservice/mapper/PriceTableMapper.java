@@ -0,0 +1,66 @@
+package xyz.prohinig.webservice.mapper;
+
+import xyz.prohinig.webservice.dto.IngredientDto;
+import xyz.prohinig.webservice.dto.PattyTypeDto;
+import xyz.prohinig.webservice.dto.PricesDto;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.PattyType;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class PriceTableMapper {
+
+    public PricesDto toPricesDto(PriceTable priceTable) {
+        Map<PattyTypeDto, BigDecimal> patties = new EnumMap<>(PattyTypeDto.class);
+        for (PattyType pattyType : PattyType.values()) {
+            patties.put(PattyTypeDto.valueOf(pattyType.name()), fromCents(priceTable.getPattyPriceInCents(pattyType)));
+        }
+
+        Map<IngredientDto, BigDecimal> ingredients = new EnumMap<>(IngredientDto.class);
+        ingredients.put(IngredientDto.CHEESE, fromCents(priceTable.getIngredientsPriceInCents(Burger.CHEESE)));
+        ingredients.put(IngredientDto.SALAD, fromCents(priceTable.getIngredientsPriceInCents(Burger.SALAD)));
+        ingredients.put(IngredientDto.TOMATO, fromCents(priceTable.getIngredientsPriceInCents(Burger.TOMATO)));
+
+        return new PricesDto(fromCents(priceTable.getBasePriceInCents()), patties, ingredients);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a price is missing, negative or not a whole number of cents
+     */
+    public PriceTable fromPricesDto(PricesDto pricesDto) {
+        if (pricesDto.getPatties() == null || pricesDto.getIngredients() == null) {
+            throw new IllegalArgumentException("patty and ingredient prices are required");
+        }
+
+        Map<PattyType, Long> pattyPrices = new EnumMap<>(PattyType.class);
+        for (PattyType pattyType : PattyType.values()) {
+            pattyPrices.put(pattyType, toCents(pricesDto.getPatties().get(PattyTypeDto.valueOf(pattyType.name()))));
+        }
+
+        return new PriceTable(
+                toCents(pricesDto.getBase()),
+                pattyPrices,
+                toCents(pricesDto.getIngredients().get(IngredientDto.CHEESE)),
+                toCents(pricesDto.getIngredients().get(IngredientDto.SALAD)),
+                toCents(pricesDto.getIngredients().get(IngredientDto.TOMATO)));
+    }
+
+    private BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private long toCents(BigDecimal price) {
+        if (price == null || price.signum() < 0) {
+            throw new IllegalArgumentException("price must be present and not negative: " + price);
+        }
+
+        try {
+            return price.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("price must be a whole number of cents: " + price, e);
+        }
+    }
+}
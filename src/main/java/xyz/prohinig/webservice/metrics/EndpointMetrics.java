@@ -0,0 +1,81 @@
+package xyz.prohinig.webservice.metrics;
+
+import xyz.prohinig.webservice.database.SqlStatement;
+import xyz.prohinig.webservice.dto.EndpointStatsDto;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Latency and statements per endpoint. A request that executes the same statement at least
+ * {@code repeatedStatementThreshold} times is counted as a likely N+1 query.
+ */
+public class EndpointMetrics {
+
+    private final int repeatedStatementThreshold;
+    private final ConcurrentMap<Method, Endpoint> endpointsByHandler = new ConcurrentHashMap<>();
+
+    public EndpointMetrics(int repeatedStatementThreshold) {
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    public boolean isRegistered(Method handler) {
+        return endpointsByHandler.containsKey(handler);
+    }
+
+    public void register(Method handler, String name) {
+        endpointsByHandler.putIfAbsent(handler, new Endpoint(name));
+    }
+
+    /**
+     * Records a request handled by the handler method, which has to be registered.
+     */
+    public void record(Method handler, RequestTrace trace, long nanos) {
+        Endpoint endpoint = endpointsByHandler.get(handler);
+
+        endpoint.latency.record(nanos);
+        endpoint.statementCount.add(trace.getStatementCount());
+        endpoint.maxStatementsPerRequest.accumulateAndGet(trace.getStatementCount(), Math::max);
+
+        SqlStatement mostExecuted = trace.getMostExecutedStatement();
+        if (mostExecuted != null && trace.getExecutions(mostExecuted) >= repeatedStatementThreshold) {
+            endpoint.repeatedStatementRequestCount.increment();
+            endpoint.lastRepeatedStatement = mostExecuted;
+        }
+    }
+
+    /**
+     * Statistics of every endpoint that handled a request, the endpoint with the most requests first.
+     */
+    public List<EndpointStatsDto> getStatistics() {
+        return endpointsByHandler.values().stream()
+                .map(Endpoint::toDto)
+                .sorted(Comparator.comparingLong((EndpointStatsDto endpoint) -> endpoint.getLatency().getCount()).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static class Endpoint {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder statementCount = new LongAdder();
+        private final AtomicLong maxStatementsPerRequest = new AtomicLong();
+        private final LongAdder repeatedStatementRequestCount = new LongAdder();
+        private volatile SqlStatement lastRepeatedStatement;
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        private EndpointStatsDto toDto() {
+            SqlStatement repeatedStatement = lastRepeatedStatement;
+            return new EndpointStatsDto(name, latency.toDto(), statementCount.sum(), maxStatementsPerRequest.get(),
+                    repeatedStatementRequestCount.sum(), repeatedStatement == null ? null : repeatedStatement.name());
+        }
+    }
+}
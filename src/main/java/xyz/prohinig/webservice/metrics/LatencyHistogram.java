@@ -0,0 +1,43 @@
+package xyz.prohinig.webservice.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import xyz.prohinig.webservice.dto.LatencyDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HDR histogram of durations. Recording is wait-free and does not allocate, reading folds the values recorded
+ * since the last read into the histogram of all values.
+ */
+public class LatencyHistogram {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    // 1% precision keeps each histogram at a few ten kilobytes
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS)));
+    }
+
+    public synchronized LatencyDto toDto() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+
+        return new LatencyDto(
+                total.getTotalCount(),
+                toMicros((long) total.getMean()),
+                toMicros(total.getValueAtPercentile(50)),
+                toMicros(total.getValueAtPercentile(99)),
+                toMicros(total.getValueAtPercentile(99.9)),
+                toMicros(total.getMaxValue()));
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,64 @@
+package xyz.prohinig.webservice.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+
+/**
+ * Traces every request to a controller method and records it in the {@link EndpointMetrics} once it completed.
+ * Streamed responses complete on another thread and are not recorded. A handler method that ran on another thread
+ * leaves its trace in a request attribute, it is continued when the request is dispatched back.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String DETACHED_TRACE_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".detachedTrace";
+
+    private final EndpointMetrics endpointMetrics;
+
+    public RequestMetricsInterceptor(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RequestTrace detachedTrace = (RequestTrace) request.getAttribute(DETACHED_TRACE_ATTRIBUTE);
+            if (detachedTrace != null) {
+                request.removeAttribute(DETACHED_TRACE_ATTRIBUTE);
+                RequestTrace.attach(detachedTrace);
+            } else {
+                RequestTrace.begin();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestTrace trace = RequestTrace.end();
+        if (trace == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+
+        long nanos = System.nanoTime() - trace.getStartNanos();
+        Method handlerMethod = ((HandlerMethod) handler).getMethod();
+        // the name is only built for the first request of an endpoint
+        if (!endpointMetrics.isRegistered(handlerMethod)) {
+            endpointMetrics.register(handlerMethod, endpointName(request));
+        }
+        endpointMetrics.record(handlerMethod, trace, nanos);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTrace.end();
+    }
+
+    private static String endpointName(HttpServletRequest request) {
+        return request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    }
+}
@@ -0,0 +1,109 @@
+package xyz.prohinig.webservice.metrics;
+
+import xyz.prohinig.webservice.database.SqlStatement;
+
+import java.util.Arrays;
+
+/**
+ * Counts the statements executed by the request handled on the current thread. Each thread reuses its trace, so
+ * tracing a request does not allocate.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> TRACES = ThreadLocal.withInitial(RequestTrace::new);
+    private static final SqlStatement[] STATEMENTS = SqlStatement.values();
+
+    private final int[] executionsByStatement = new int[STATEMENTS.length];
+    private boolean active;
+    private long startNanos;
+    private int statementCount;
+
+    private RequestTrace() {
+    }
+
+    public static void begin() {
+        RequestTrace trace = TRACES.get();
+        Arrays.fill(trace.executionsByStatement, 0);
+        trace.statementCount = 0;
+        trace.startNanos = System.nanoTime();
+        trace.active = true;
+    }
+
+    /**
+     * Stops tracing on the current thread.
+     *
+     * @return the trace, valid until the next request on this thread begins, {@code null} if no request was traced
+     */
+    public static RequestTrace end() {
+        RequestTrace trace = TRACES.get();
+        if (!trace.active) {
+            return null;
+        }
+        trace.active = false;
+        return trace;
+    }
+
+    /**
+     * Stops tracing on the current thread, for a request that continues on another thread.
+     *
+     * @return a copy of the trace to {@link #attach(RequestTrace) attach} there, {@code null} if no request was traced
+     */
+    public static RequestTrace detach() {
+        RequestTrace trace = end();
+        if (trace == null) {
+            return null;
+        }
+        RequestTrace detached = new RequestTrace();
+        detached.copyFrom(trace);
+        return detached;
+    }
+
+    /**
+     * Continues tracing a detached request on the current thread.
+     */
+    public static void attach(RequestTrace detached) {
+        RequestTrace trace = TRACES.get();
+        trace.copyFrom(detached);
+        trace.active = true;
+    }
+
+    public static void recordStatement(SqlStatement statement) {
+        RequestTrace trace = TRACES.get();
+        if (trace.active) {
+            trace.executionsByStatement[statement.ordinal()]++;
+            trace.statementCount++;
+        }
+    }
+
+    private void copyFrom(RequestTrace trace) {
+        System.arraycopy(trace.executionsByStatement, 0, executionsByStatement, 0, executionsByStatement.length);
+        statementCount = trace.statementCount;
+        startNanos = trace.startNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * The statement executed most often, {@code null} if no statement was executed.
+     */
+    public SqlStatement getMostExecutedStatement() {
+        SqlStatement mostExecuted = null;
+        for (SqlStatement statement : STATEMENTS) {
+            if (executionsByStatement[statement.ordinal()] > 0
+                    && (mostExecuted == null || getExecutions(statement) > getExecutions(mostExecuted))) {
+                mostExecuted = statement;
+            }
+        }
+        return mostExecuted;
+    }
+
+    public int getExecutions(SqlStatement statement) {
+        return executionsByStatement[statement.ordinal()];
+    }
+}
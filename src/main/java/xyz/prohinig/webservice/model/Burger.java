@@ -3,25 +3,36 @@ package xyz.prohinig.webservice.model;
 import static java.util.Objects.requireNonNull;
 
 public class Burger {
+
+    // ingredient bits of the ingredient mask
+    public static final int CHEESE = 1;
+    public static final int SALAD = 1 << 1;
+    public static final int TOMATO = 1 << 2;
+    public static final int INGREDIENT_MASK_COUNT = 1 << 3;
+
     private Integer id = null;
     private final PattyType pattyType;
-    private final Ingredient cheese;
-    private final Ingredient salad;
-    private final Ingredient tomato;
+    private final int ingredients;
 
     public Burger(int id, PattyType pattyType, Ingredient cheese, Ingredient salad, Ingredient tomato) {
-        this.id = id;
-        this.pattyType = requireNonNull(pattyType);
-        this.cheese = cheese;
-        this.salad = salad;
-        this.tomato = tomato;
+        this(id, pattyType, toIngredientMask(cheese, salad, tomato));
     }
 
     public Burger(PattyType pattyType, Ingredient cheese, Ingredient salad, Ingredient tomato) {
+        this(pattyType, toIngredientMask(cheese, salad, tomato));
+    }
+
+    public Burger(int id, PattyType pattyType, int ingredients) {
+        this(pattyType, ingredients);
+        this.id = id;
+    }
+
+    public Burger(PattyType pattyType, int ingredients) {
+        if (ingredients < 0 || ingredients >= INGREDIENT_MASK_COUNT) {
+            throw new IllegalArgumentException("invalid ingredient mask " + ingredients);
+        }
         this.pattyType = requireNonNull(pattyType);
-        this.cheese = cheese;
-        this.salad = salad;
-        this.tomato = tomato;
+        this.ingredients = ingredients;
     }
 
     public Integer getId() {
@@ -36,40 +47,48 @@ public class Burger {
         return pattyType;
     }
 
+    /**
+     * The ingredients of this burger as a combination of {@link #CHEESE}, {@link #SALAD} and {@link #TOMATO}.
+     */
+    public int getIngredients() {
+        return ingredients;
+    }
+
+    public boolean hasIngredient(int ingredient) {
+        return (ingredients & ingredient) != 0;
+    }
+
     public Ingredient getCheese() {
-        return cheese;
+        return hasIngredient(CHEESE) ? Cheese.INSTANCE : null;
     }
 
     public Ingredient getSalad() {
-        return salad;
+        return hasIngredient(SALAD) ? Salad.INSTANCE : null;
     }
 
     public Ingredient getTomato() {
-        return tomato;
+        return hasIngredient(TOMATO) ? Tomato.INSTANCE : null;
+    }
+
+    public long getPriceInCents() {
+        return PriceTable.current().getBurgerPriceInCents(pattyType, ingredients);
     }
 
     public double getPrice() {
-        double price = 3;
-        price += pattyType.getPrice();
-        if (cheese != null) {
-            price += cheese.getPrice();
-        }
-        if (salad != null) {
-            price += salad.getPrice();
-        }
-        if (tomato != null) {
-            price += tomato.getPrice();
-        }
-        return price;
+        return getPriceInCents() / 100.0;
     }
 
     @Override
     public String toString() {
         return "Burger{" +
                 "pattyType=" + pattyType +
-                ", cheese=" + cheese +
-                ", salad=" + salad +
-                ", tomato=" + tomato +
+                ", cheese=" + getCheese() +
+                ", salad=" + getSalad() +
+                ", tomato=" + getTomato() +
                 '}';
     }
+
+    private static int toIngredientMask(Ingredient cheese, Ingredient salad, Ingredient tomato) {
+        return (cheese != null ? CHEESE : 0) | (salad != null ? SALAD : 0) | (tomato != null ? TOMATO : 0);
+    }
 }
@@ -1,12 +1,22 @@
 package xyz.prohinig.webservice.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Cart {
+
+    public static final int MAX_BURGERS = 3;
+
     private Integer id = null;
     private final List<Burger> burgers = new ArrayList<>();
     private boolean checkedOut = false;
+    // incremented by the database on every change of the cart or its burgers
+    private int version = 0;
+
+    // total of the burgers, valid as long as totalPriceTable is the current price table
+    private long totalInCents = 0;
+    private PriceTable totalPriceTable = PriceTable.current();
 
     public Cart(int id) {
         this.id = id;
@@ -28,20 +38,29 @@ public class Cart {
         this.id = id;
     }
 
+    /**
+     * Burgers can only be changed through {@link #addBurger(Burger)} and {@link #removeBurgerByIndex(int)}.
+     */
     public List<Burger> getBurgers() {
-        return burgers;
+        return Collections.unmodifiableList(burgers);
     }
 
     public void addBurger(Burger burger) {
         verifyNotCheckoutOut();
-        if (burgers.size() < 3) {
+        if (burgers.size() < MAX_BURGERS) {
             burgers.add(burger);
+            totalInCents += totalPriceTable.getBurgerPriceInCents(burger);
         }
     }
 
+    public boolean hasRoomFor(int burgerCount) {
+        return burgers.size() + burgerCount <= MAX_BURGERS;
+    }
+
     public boolean removeBurgerByIndex(int index) {
         verifyNotCheckoutOut();
         Burger burger = burgers.remove(index);
+        totalInCents -= totalPriceTable.getBurgerPriceInCents(burger);
 
         return burger != null;
     }
@@ -59,12 +78,24 @@ public class Cart {
         checkedOut = true;
     }
 
-    public double getTotal() {
-        double total = 0;
-        for (Burger burger : burgers) {
-            total += burger.getPrice();
+    public long getTotalInCents() {
+        PriceTable priceTable = PriceTable.current();
+
+        // prices changed since the total was computed
+        if (priceTable != totalPriceTable) {
+            long total = 0;
+            for (Burger burger : burgers) {
+                total += priceTable.getBurgerPriceInCents(burger);
+            }
+            totalInCents = total;
+            totalPriceTable = priceTable;
         }
-        return total;
+
+        return totalInCents;
+    }
+
+    public double getTotal() {
+        return getTotalInCents() / 100.0;
     }
 
     public String getSummary() {
@@ -92,6 +123,28 @@ public class Cart {
         return checkedOut;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Creates a cart with the same id, state, version and burgers. The burger list is copied, the burgers themselves are shared.
+     */
+    public Cart copy() {
+        Cart copy = new Cart();
+        copy.id = id;
+        copy.checkedOut = checkedOut;
+        copy.version = version;
+        copy.burgers.addAll(burgers);
+        copy.totalInCents = totalInCents;
+        copy.totalPriceTable = totalPriceTable;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Cart{" +
@@ -0,0 +1,38 @@
+package xyz.prohinig.webservice.model;
+
+/**
+ * Burger count and total of a cart, without the burgers themselves.
+ */
+public class CartSummary {
+    private final int id;
+    private final boolean checkedOut;
+    private final int burgerCount;
+    private final long totalInCents;
+
+    public CartSummary(int id, boolean checkedOut, int burgerCount, long totalInCents) {
+        this.id = id;
+        this.checkedOut = checkedOut;
+        this.burgerCount = burgerCount;
+        this.totalInCents = totalInCents;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isCheckedOut() {
+        return checkedOut;
+    }
+
+    public int getBurgerCount() {
+        return burgerCount;
+    }
+
+    public long getTotalInCents() {
+        return totalInCents;
+    }
+
+    public double getTotal() {
+        return totalInCents / 100.0;
+    }
+}
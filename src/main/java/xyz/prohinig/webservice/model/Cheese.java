@@ -1,9 +1,15 @@
 package xyz.prohinig.webservice.model;
 
 public class Cheese implements Ingredient {
+
+    public static final Cheese INSTANCE = new Cheese();
+
+    private Cheese() {
+    }
+
     @Override
     public double getPrice() {
-        return 1.5;
+        return PriceTable.current().getIngredientsPriceInCents(Burger.CHEESE) / 100.0;
     }
 
     @Override
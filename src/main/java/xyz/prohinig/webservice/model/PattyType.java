@@ -1,16 +1,30 @@
 package xyz.prohinig.webservice.model;
 
 public enum PattyType {
-    MEAT(2),
-    VEGGIE(2.5);
+    MEAT(0),
+    VEGGIE(1);
 
-    private final double price;
+    private static final PattyType[] BY_CODE = {MEAT, VEGGIE};
 
-    PattyType(double price) {
-        this.price = price;
+    // stored in burger.patty_type, must never change for an existing patty type
+    private final int code;
+
+    PattyType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static PattyType fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("unknown patty type code " + code);
+        }
+        return BY_CODE[code];
     }
 
     public double getPrice() {
-        return price;
+        return PriceTable.current().getPattyPriceInCents(this) / 100.0;
     }
 }
@@ -0,0 +1,114 @@
+package xyz.prohinig.webservice.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable prices in cents. The price of every burger is precomputed per patty type and ingredient mask.
+ * <p>
+ * There is one current price table, it can be replaced at runtime with {@link #install(PriceTable)}.
+ */
+public class PriceTable {
+
+    public static final PriceTable DEFAULT = new PriceTable(300, defaultPattyPrices(), 150, 100, 50);
+
+    private static volatile PriceTable current = DEFAULT;
+
+    private final long basePriceInCents;
+    private final Map<PattyType, Long> pattyPricesInCents;
+    private final long cheesePriceInCents;
+    private final long saladPriceInCents;
+    private final long tomatoPriceInCents;
+    private final long[][] burgerPricesInCents;
+    private final int fingerprint;
+
+    public PriceTable(long basePriceInCents, Map<PattyType, Long> pattyPricesInCents, long cheesePriceInCents,
+                      long saladPriceInCents, long tomatoPriceInCents) {
+        this.basePriceInCents = basePriceInCents;
+        this.pattyPricesInCents = new EnumMap<>(pattyPricesInCents);
+        this.cheesePriceInCents = cheesePriceInCents;
+        this.saladPriceInCents = saladPriceInCents;
+        this.tomatoPriceInCents = tomatoPriceInCents;
+        this.burgerPricesInCents = new long[PattyType.values().length][Burger.INGREDIENT_MASK_COUNT];
+
+        for (PattyType pattyType : PattyType.values()) {
+            long pattyPrice = requireNonNull(this.pattyPricesInCents.get(pattyType), "no price for patty type " + pattyType);
+            for (int ingredients = 0; ingredients < Burger.INGREDIENT_MASK_COUNT; ingredients++) {
+                burgerPricesInCents[pattyType.ordinal()][ingredients] = basePriceInCents + pattyPrice + getIngredientsPriceInCents(ingredients);
+            }
+        }
+
+        this.fingerprint = Objects.hash(basePriceInCents, this.pattyPricesInCents, cheesePriceInCents, saladPriceInCents, tomatoPriceInCents);
+    }
+
+    public static PriceTable current() {
+        return current;
+    }
+
+    /**
+     * Makes the given price table the current one. Cart totals computed with the previous table are recomputed
+     * on their next access.
+     */
+    public static void install(PriceTable priceTable) {
+        current = requireNonNull(priceTable);
+    }
+
+    /**
+     * Derived from the prices only, so tables with the same prices have the same fingerprint on every instance.
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getBasePriceInCents() {
+        return basePriceInCents;
+    }
+
+    public long getPattyPriceInCents(PattyType pattyType) {
+        return pattyPricesInCents.get(pattyType);
+    }
+
+    /**
+     * @param ingredients a combination of {@link Burger#CHEESE}, {@link Burger#SALAD} and {@link Burger#TOMATO}
+     */
+    public long getIngredientsPriceInCents(int ingredients) {
+        long price = 0;
+        if ((ingredients & Burger.CHEESE) != 0) {
+            price += cheesePriceInCents;
+        }
+        if ((ingredients & Burger.SALAD) != 0) {
+            price += saladPriceInCents;
+        }
+        if ((ingredients & Burger.TOMATO) != 0) {
+            price += tomatoPriceInCents;
+        }
+        return price;
+    }
+
+    public long getBurgerPriceInCents(PattyType pattyType, int ingredients) {
+        return burgerPricesInCents[pattyType.ordinal()][ingredients];
+    }
+
+    public long getBurgerPriceInCents(Burger burger) {
+        return getBurgerPriceInCents(burger.getPattyType(), burger.getIngredients());
+    }
+
+    /**
+     * Price of {@code burgerCount} burgers with the given patty type, {@code cheeseCount} of them with cheese and
+     * so on.
+     */
+    public long getBurgersPriceInCents(PattyType pattyType, long burgerCount, long cheeseCount, long saladCount, long tomatoCount) {
+        return burgerCount * (basePriceInCents + getPattyPriceInCents(pattyType))
+                + cheeseCount * cheesePriceInCents + saladCount * saladPriceInCents + tomatoCount * tomatoPriceInCents;
+    }
+
+    private static Map<PattyType, Long> defaultPattyPrices() {
+        Map<PattyType, Long> pattyPrices = new EnumMap<>(PattyType.class);
+        pattyPrices.put(PattyType.MEAT, 200L);
+        pattyPrices.put(PattyType.VEGGIE, 250L);
+        return pattyPrices;
+    }
+}
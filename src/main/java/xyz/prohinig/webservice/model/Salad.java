@@ -1,9 +1,15 @@
 package xyz.prohinig.webservice.model;
 
 public class Salad implements Ingredient {
+
+    public static final Salad INSTANCE = new Salad();
+
+    private Salad() {
+    }
+
     @Override
     public double getPrice() {
-        return 1;
+        return PriceTable.current().getIngredientsPriceInCents(Burger.SALAD) / 100.0;
     }
 
     @Override
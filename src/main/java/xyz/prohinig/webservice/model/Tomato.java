@@ -1,9 +1,15 @@
 package xyz.prohinig.webservice.model;
 
 public class Tomato implements Ingredient {
+
+    public static final Tomato INSTANCE = new Tomato();
+
+    private Tomato() {
+    }
+
     @Override
     public double getPrice() {
-        return 0.5;
+        return PriceTable.current().getIngredientsPriceInCents(Burger.TOMATO) / 100.0;
     }
 
     @Override
@@ -0,0 +1,14 @@
+-- the schema the service was first deployed with, existing databases are baselined at this version
+create table if not exists cart (
+    id serial primary key,
+    active boolean not null default true
+);
+
+create table if not exists burger (
+    id serial primary key,
+    patty_type varchar(16) not null,
+    cheese boolean not null,
+    salad boolean not null,
+    tomato boolean not null,
+    cart_id integer not null references cart (id)
+);
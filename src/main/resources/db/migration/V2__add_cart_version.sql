@@ -0,0 +1,2 @@
+-- incremented on every change of the cart or its burgers
+alter table cart add column if not exists version integer not null default 0;
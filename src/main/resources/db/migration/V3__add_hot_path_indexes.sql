@@ -0,0 +1,5 @@
+-- every lookup of the burgers of a cart joins on cart_id
+create index if not exists burger_cart_id_idx on burger (cart_id);
+
+-- loads the active carts on startup, only active carts are indexed so it stays small as checked out carts pile up
+create index if not exists cart_active_id_idx on cart (id) ${active_carts_only};
@@ -0,0 +1,3 @@
+-- patty types are stored as PattyType codes, 0 = MEAT, 1 = VEGGIE
+alter table burger alter column patty_type type smallint using case patty_type when 'MEAT' then 0 when 'VEGGIE' then 1 end;
+alter table burger add constraint burger_patty_type_check check (patty_type in (0, 1));
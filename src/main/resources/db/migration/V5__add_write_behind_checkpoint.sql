@@ -0,0 +1,5 @@
+-- the last journal sequence every write-behind journal wrote to the database, updated in the same transaction
+create table if not exists write_behind_checkpoint (
+    journal_id varchar(64) primary key,
+    last_sequence bigint not null
+);
@@ -0,0 +1,15 @@
+-- when the cart was checked out, carts checked out before this migration count as checked out now
+alter table cart add column if not exists checked_out_at timestamp with time zone;
+update cart set checked_out_at = now() where not active and checked_out_at is null;
+
+-- finds the carts due for archival, only checked out carts are indexed
+create index if not exists cart_checked_out_at_idx on cart (checked_out_at) ${checked_out_carts_only};
+
+-- checked out carts moved out of cart and burger, one row per cart with its burgers packed into bytes.
+-- Carts are only ever looked up by id, so the table is not partitioned.
+create table if not exists cart_archive (
+    id integer primary key,
+    version integer not null,
+    checked_out_at timestamp with time zone not null,
+    burgers bytea not null
+);
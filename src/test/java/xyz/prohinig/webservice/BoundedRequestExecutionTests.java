@@ -0,0 +1,113 @@
+package xyz.prohinig.webservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.dto.EndpointStatsDto;
+import xyz.prohinig.webservice.metrics.EndpointMetrics;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "webservice.database.url=jdbc:h2:mem:bounded-request-execution;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "webservice.database.username=sa",
+        "webservice.database.password=",
+        "webservice.database.schema.verify-indexes=false",
+        "webservice.execution.bounded.enabled=true",
+        "webservice.execution.bounded.threads=2"})
+class BoundedRequestExecutionTests {
+
+    private static final int REQUESTS = 8;
+
+    @SpyBean
+    private CartStorage cartStorage;
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void atMostTheConfiguredNumberOfRequestsRunAtATime() throws Exception {
+        Cart cart = new Cart();
+        cartStorage.update(cart);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            threadNames.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(100);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(cartStorage).getCartByID(anyInt());
+
+        ExecutorService clients = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(clients.submit(() -> restTemplate.getForEntity("/carts/" + cart.getId(), String.class)));
+            }
+            for (Future<ResponseEntity<String>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        assertThat(maxRunning).hasValue(2);
+        assertThat(threadNames).allSatisfy(threadName -> assertThat(threadName).startsWith("request-executor-"));
+    }
+
+    @Test
+    void requestsAreAnsweredAndRecordedAfterTheyRanOnTheExecutor() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, Burger.CHEESE));
+        cartStorage.update(cart);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/carts/" + cart.getId(), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(response.getHeaders().getETag());
+        assertThat(restTemplate.exchange("/carts/" + cart.getId(), HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        assertThat(restTemplate.exchange("/carts/" + cart.getId(), HttpMethod.DELETE, null, Void.class).getStatusCode())
+                .isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(restTemplate.getForEntity("/carts/" + cart.getId(), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        // the statements ran on the executor, they are counted for the request
+        assertThat(endpointMetrics.getStatistics()).filteredOn(endpoint -> endpoint.getName().equals("DELETE /carts/{cartId}"))
+                .singleElement().satisfies(endpoint -> {
+                    assertThat(endpoint.getLatency().getCount()).isEqualTo(1);
+                    assertThat(endpoint.getStatementCount()).isPositive();
+                });
+    }
+}
@@ -0,0 +1,141 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.TestStorage;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class BurgerControllerTests {
+
+    private TestStorage storage;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        storage = createStorage();
+        storage.insertCart(false, new Burger(PattyType.MEAT, Burger.CHEESE | Burger.TOMATO),
+                new Burger(PattyType.VEGGIE, Burger.SALAD));
+        storage.insertCart(false);
+        storage.insertCart(true, new Burger(PattyType.MEAT, 0));
+
+        // request bodies are bound through constructor parameter names, as with the ObjectMapper of the application
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().modules(new ParameterNamesModule()).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(new BurgerController(storage.getBurgerStorage(), new BurgerMapper(), storage.getCartStorage(),
+                        new SerializedResponses(new ResponseCache(0, 0, Duration.ZERO), objectMapper, 1024)))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper),
+                        new MappingJackson2SmileHttpMessageConverter(BinaryWireFormat.createObjectMapper()))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    TestStorage createStorage() {
+        return TestStorage.database();
+    }
+
+    @Test
+    void addBurgersReturnsGeneratedIds() throws Exception {
+        mockMvc.perform(post("/carts/2/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"pattyType\":\"MEAT\",\"ingredients\":[\"CHEESE\"]},{\"pattyType\":\"VEGGIE\",\"ingredients\":[]}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.burgers[*].id").value(contains(4, 5)))
+                .andExpect(jsonPath("$.burgers[*].pattyType").value(contains("MEAT", "VEGGIE")));
+
+        mockMvc.perform(get("/carts/2/burgers"))
+                .andExpect(jsonPath("$.burgers", hasSize(2)));
+    }
+
+    @Test
+    void burgersAreExchangedInBinaryFormatWithIngredientMask() throws Exception {
+        ObjectMapper smileMapper = BinaryWireFormat.createObjectMapper();
+        byte[] order = smileMapper.writeValueAsBytes(smileMapper.createArrayNode()
+                .add(smileMapper.createObjectNode().put("pattyType", 1).put("ingredients", Burger.CHEESE | Burger.TOMATO)));
+
+        byte[] created = mockMvc.perform(post("/carts/2/burgers/bulk").contentType(BinaryWireFormat.MEDIA_TYPE)
+                        .accept(BinaryWireFormat.MEDIA_TYPE).content(order))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(BinaryWireFormat.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode createdBurger = smileMapper.readTree(created).get("burgers").get(0);
+        assertThat(createdBurger.get("id").intValue()).isEqualTo(4);
+        assertThat(createdBurger.get("pattyType").intValue()).isEqualTo(1);
+        assertThat(createdBurger.get("ingredients").intValue()).isEqualTo(Burger.CHEESE | Burger.TOMATO);
+
+        // clients that do not ask for the binary format keep getting JSON
+        mockMvc.perform(get("/carts/2/burgers"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.burgers[0].pattyType").value("VEGGIE"))
+                .andExpect(jsonPath("$.burgers[0].ingredients").value(contains("CHEESE", "TOMATO")));
+    }
+
+    @Test
+    void addBurgersRejectsOrdersBeyondTheBurgerLimit() throws Exception {
+        mockMvc.perform(post("/carts/1/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"pattyType\":\"MEAT\",\"ingredients\":[]},{\"pattyType\":\"MEAT\",\"ingredients\":[]}]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/carts/2/burgers/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/carts/1/burgers"))
+                .andExpect(jsonPath("$.burgers", hasSize(2)));
+    }
+
+    @Test
+    void addBurgersRejectsCheckedOutCart() throws Exception {
+        mockMvc.perform(post("/carts/3/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"pattyType\":\"MEAT\",\"ingredients\":[]}]"))
+                .andExpect(status().isConflict());
+
+        storage.getStatementCount().ifPresent(statements -> assertThat(statements).isEqualTo(1));
+    }
+
+    @Test
+    void addBurgersChangesETagOfBurgers() throws Exception {
+        String etag = mockMvc.perform(get("/carts/2/burgers"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/carts/2/burgers").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/carts/2/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"pattyType\":\"MEAT\",\"ingredients\":[]}]"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/carts/2/burgers").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG,
+                        "\"" + storage.getCartStorage().getCartByID(2).getVersion() + "\""))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$.burgers", hasSize(1)));
+    }
+}
@@ -0,0 +1,191 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.BurgerDAO;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.CartVersionConflictException;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.database.TestDatabase;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.PattyTypeDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many requests changing the same carts at once, the limit of burgers per cart and the burgers of other requests
+ * have to survive them.
+ */
+class CartConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int CARTS = 20;
+
+    private TestDatabase database;
+    private CartDAO cartDAO;
+    private BurgerController burgerController;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        CartCache cartCache = createCartCache();
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        StatementRegistry statementRegistry = new StatementRegistry();
+        cartDAO = createCartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        BurgerDAO burgerDAO = createBurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+
+        SerializedResponses serializedResponses =
+                new SerializedResponses(new ResponseCache(0, 0, Duration.ofMinutes(1)), new ObjectMapper(), 1024);
+        burgerController = new BurgerController(burgerDAO, new BurgerMapper(), cartDAO, serializedResponses);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    CartCache createCartCache() {
+        return new CartCache(0, Duration.ZERO);
+    }
+
+    CartDAO createCartDAO(TestDatabase database, StatementRegistry statementRegistry, CartCache cartCache,
+                          ActiveCartRegistry activeCartRegistry) {
+        return new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+    }
+
+    BurgerDAO createBurgerDAO(TestDatabase database, StatementRegistry statementRegistry, CartCache cartCache,
+                              ActiveCartRegistry activeCartRegistry) {
+        return new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+    }
+
+    /**
+     * Called once every request is answered, before the stored carts are checked.
+     */
+    void finishWrites() {
+    }
+
+    // one version for the new cart and one for every burger added
+    void assertVersionOf(Cart cart) {
+        assertThat(cart.getVersion()).isEqualTo(1 + cart.getBurgers().size());
+    }
+
+    @Test
+    void cartsNeverHoldMoreThanTheBurgerLimit() throws Exception {
+        List<Integer> cartIds = new ArrayList<>();
+        for (int i = 0; i < CARTS; i++) {
+            Cart cart = new Cart();
+            cartDAO.update(cart);
+            cartIds.add(cart.getId());
+        }
+
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        runConcurrently(THREADS * 10, request -> {
+            int cartId = cartIds.get(request % CARTS);
+            try {
+                burgerController.addBurger(cartId, new BurgerDto(null, PattyTypeDto.MEAT, List.of()));
+                added.incrementAndGet();
+            } catch (CartVersionConflictException e) {
+                conflicts.incrementAndGet();
+            } catch (ResponseStatusException e) {
+                assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                rejected.incrementAndGet();
+            }
+        });
+
+        finishWrites();
+
+        int storedBurgers = 0;
+        for (int cartId : cartIds) {
+            Cart cart = cartDAO.getCartByID(cartId);
+            assertThat(cart.getBurgers()).hasSizeLessThanOrEqualTo(Cart.MAX_BURGERS);
+            assertVersionOf(cart);
+            storedBurgers += cart.getBurgers().size();
+        }
+        assertThat(storedBurgers).isEqualTo(added.get());
+        assertThat(added.get() + rejected.get() + conflicts.get()).isEqualTo(THREADS * 10);
+    }
+
+    @Test
+    void removalsDoNotDeleteBurgersAddedConcurrently() throws Exception {
+        Cart cart = new Cart();
+        cartDAO.update(cart);
+        int cartId = cart.getId();
+
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        runConcurrently(THREADS * 10, request -> {
+            Cart readCart = cartDAO.getCartByID(cartId);
+            try {
+                if (request % 2 == 0) {
+                    if (readCart.hasRoomFor(1)) {
+                        readCart.addBurger(new Burger(PattyType.VEGGIE, 0));
+                        if (cartDAO.update(readCart)) {
+                            added.incrementAndGet();
+                        }
+                    }
+                } else if (!readCart.getBurgers().isEmpty()) {
+                    readCart.removeBurgerByIndex(0);
+                    if (cartDAO.update(readCart)) {
+                        removed.incrementAndGet();
+                    }
+                }
+            } catch (CartVersionConflictException e) {
+                // the cart changed since it was read, nothing was written
+            }
+        });
+
+        finishWrites();
+
+        Cart storedCart = cartDAO.getCartByID(cartId);
+        assertThat(storedCart.getBurgers()).hasSize(added.get() - removed.get());
+        assertThat(storedCart.getVersion()).isEqualTo(1 + added.get() + removed.get());
+    }
+
+    private static void runConcurrently(int requests, RequestTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                int request = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(request);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface RequestTask {
+        void run(int request);
+    }
+}
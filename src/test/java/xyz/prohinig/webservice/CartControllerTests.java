@@ -0,0 +1,182 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.database.TestStorage;
+import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class CartControllerTests {
+
+    private TestStorage storage;
+    private CartStorage cartDAO;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        storage = createStorage();
+        storage.insertCart(false, new Burger(PattyType.MEAT, Burger.CHEESE | Burger.TOMATO));
+        storage.insertCart(true, new Burger(PattyType.VEGGIE, Burger.SALAD));
+        storage.insertCart(false);
+
+        cartDAO = storage.getCartStorage();
+        // every body large enough to be compressed, nothing cached
+        ObjectMapper objectMapper = new ObjectMapper();
+        SerializedResponses serializedResponses = new SerializedResponses(new ResponseCache(0, 0, Duration.ZERO), objectMapper, 0);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CartController(cartDAO, new CartMapper(), objectMapper, serializedResponses))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    TestStorage createStorage() {
+        return TestStorage.database();
+    }
+
+    @Test
+    void getAllCartsPagesByCartId() throws Exception {
+        mockMvc.perform(get("/carts").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.carts[*].id").value(contains(1, 2)))
+                .andExpect(jsonPath("$.nextCursor").value(2));
+
+        // the last cart has no burgers and is still listed
+        mockMvc.perform(get("/carts").param("limit", "2").param("after", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.carts", hasSize(1)))
+                .andExpect(jsonPath("$.carts[0].id").value(3))
+                .andExpect(jsonPath("$.carts[0].burgerCount").value(0))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void getAllCartsRejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/carts").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllCartsWithoutAcceptHeaderReturnsJson() throws Exception {
+        mockMvc.perform(get("/carts"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.carts", hasSize(3)));
+    }
+
+    @Test
+    void getAllCartsIsCompressedForClientsAcceptingGzip() throws Exception {
+        MvcResult result = mockMvc.perform(get("/carts").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andReturn();
+
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new ObjectMapper().readTree(body).get("carts")).hasSize(3);
+        }
+
+        mockMvc.perform(get("/carts"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.carts", hasSize(3)));
+    }
+
+    @Test
+    void getAllCartsIsNotCompressedForClientsRefusingGzip() throws Exception {
+        mockMvc.perform(get("/carts").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.carts", hasSize(3)));
+
+        mockMvc.perform(get("/carts").header(HttpHeaders.ACCEPT_ENCODING, "*, gzip; q=0.0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+        mockMvc.perform(get("/carts").header(HttpHeaders.ACCEPT_ENCODING, "deflate, *;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    void refusedGzipIsCachedAsTheUncompressedVariant() {
+        SerializedResponses serializedResponses = new SerializedResponses(new ResponseCache(0, 0, Duration.ZERO), new ObjectMapper(), 0);
+
+        assertThat(serializedResponses.selectVariant(requestAcceptingEncoding("gzip;q=0"), false).getKey())
+                .isEqualTo(serializedResponses.selectVariant(requestAcceptingEncoding(null), false).getKey());
+        assertThat(serializedResponses.selectVariant(requestAcceptingEncoding("GZIP;q=0.1"), false).getKey())
+                .isEqualTo(serializedResponses.selectVariant(requestAcceptingEncoding("gzip"), false).getKey())
+                .isNotEqualTo(serializedResponses.selectVariant(requestAcceptingEncoding(null), false).getKey());
+    }
+
+    @Test
+    void streamAllCartsWritesOneCartPerLine() throws Exception {
+        MvcResult result = mockMvc.perform(get("/carts").accept(MediaType.APPLICATION_NDJSON).param("after", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).containsExactly(
+                "{\"id\":2,\"burgerCount\":1,\"total\":6.5,\"active\":false}",
+                "{\"id\":3,\"burgerCount\":0,\"total\":0.0,\"active\":true}");
+    }
+
+    @Test
+    void getCartAnswersNotModifiedUntilTheCartChanges() throws Exception {
+        String etag = mockMvc.perform(get("/carts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/carts/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        Cart cart = cartDAO.getCartByID(1);
+        cart.addBurger(new Burger(PattyType.VEGGIE, null, null, null));
+        cartDAO.update(cart);
+
+        String changedETag = mockMvc.perform(get("/carts/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.burgerCount").value(2))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedETag).isNotEqualTo(etag);
+    }
+
+    private static ServletWebRequest requestAcceptingEncoding(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/carts");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request);
+    }
+}
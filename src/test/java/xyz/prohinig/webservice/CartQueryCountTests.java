@@ -0,0 +1,163 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.BurgerDAO;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.database.TestDatabase;
+import xyz.prohinig.webservice.dto.BurgerDto;
+import xyz.prohinig.webservice.dto.BurgersDto;
+import xyz.prohinig.webservice.dto.IngredientDto;
+import xyz.prohinig.webservice.dto.PattyTypeDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.mapper.CartMapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartQueryCountTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private TestDatabase database;
+    private CartController cartController;
+    private BurgerController burgerController;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.execute("insert into cart (id, active) values (1, true), (2, true);"
+                + "insert into burger (patty_type, cheese, salad, tomato, cart_id) values"
+                + " (0, true, false, true, 1), (1, false, true, false, 1);");
+        database.resetStatementCount();
+
+        // an empty cache, so every request has to go to the database
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        StatementRegistry statementRegistry = new StatementRegistry();
+        CartDAO cartDAO = new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        BurgerDAO burgerDAO = new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+
+        // no cached responses either
+        SerializedResponses serializedResponses = newSerializedResponses(0);
+        cartController = new CartController(cartDAO, new CartMapper(), OBJECT_MAPPER, serializedResponses);
+        burgerController = new BurgerController(burgerDAO, new BurgerMapper(), cartDAO, serializedResponses);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void getCartRunsOneQuery() throws IOException {
+        JsonNode cart = OBJECT_MAPPER.readTree(cartController.getCart(1, newRequest()).getBody());
+
+        assertThat(cart.get("burgerCount").asInt()).isEqualTo(2);
+        assertThat(database.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getBurgersOfCartRunsOneQuery() throws IOException {
+        JsonNode burgers = OBJECT_MAPPER.readTree(burgerController.getBurgersOfCart(1, newRequest()).getBody());
+
+        assertThat(burgers.get("burgersCount").asInt()).isEqualTo(2);
+        assertThat(database.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getBurgersOfEmptyCartRunsOneQuery() throws IOException {
+        JsonNode burgers = OBJECT_MAPPER.readTree(burgerController.getBurgersOfCart(2, newRequest()).getBody());
+
+        assertThat(burgers.get("burgersCount").asInt()).isZero();
+        assertThat(database.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getSpecificBurgerOfCartRunsOneQuery() {
+        burgerController.getSpecificBurgerOfCart(1, 1, newRequest());
+
+        assertThat(database.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void addBurgersRunsOneQueryOneInsertAndOneVersionBump() {
+        BurgersDto burgers = burgerController.addBurgers(2, List.of(
+                new BurgerDto(null, PattyTypeDto.MEAT, List.of(IngredientDto.CHEESE)),
+                new BurgerDto(null, PattyTypeDto.VEGGIE, List.of()),
+                new BurgerDto(null, PattyTypeDto.MEAT, List.of(IngredientDto.SALAD, IngredientDto.TOMATO))));
+
+        assertThat(burgers.getBurgers()).extracting(BurgerDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(database.getStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void getCartWithCurrentETagRunsNoQuery() {
+        CartDAO cachingCartDAO = new CartDAO(database, new StatementRegistry(), new CartCache(100, Duration.ofMinutes(1)),
+                new ActiveCartRegistry());
+        CartController cachingCartController = new CartController(cachingCartDAO, new CartMapper(), OBJECT_MAPPER,
+                newSerializedResponses(0));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cachingCartController.getCart(1, new ServletWebRequest(new MockHttpServletRequest("GET", "/carts/1"), response));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        database.resetStatementCount();
+
+        MockHttpServletRequest conditionalRequest = new MockHttpServletRequest("GET", "/carts/1");
+        conditionalRequest.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        response = new MockHttpServletResponse();
+
+        assertThat(cachingCartController.getCart(1, new ServletWebRequest(conditionalRequest, response))).isNull();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(database.getStatementCount()).isZero();
+    }
+
+    @Test
+    void getAllCartsIsServedFromResponseCacheUntilACartOnThePageIsWritten() throws IOException {
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ResponseCache responseCache = new ResponseCache(1 << 20, 1 << 20, Duration.ofMinutes(1));
+        cartCache.addWriteListener(responseCache::invalidatePagesContaining);
+        StatementRegistry statementRegistry = new StatementRegistry();
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        CartDAO cartDAO = new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        BurgerDAO burgerDAO = new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        SerializedResponses serializedResponses = new SerializedResponses(responseCache, OBJECT_MAPPER, 1024);
+        CartController cachingCartController = new CartController(cartDAO, new CartMapper(), OBJECT_MAPPER, serializedResponses);
+        BurgerController cachingBurgerController = new BurgerController(burgerDAO, new BurgerMapper(), cartDAO, serializedResponses);
+
+        byte[] page = cachingCartController.getAllCarts(100, 0, newRequest()).getBody();
+        database.resetStatementCount();
+
+        assertThat(cachingCartController.getAllCarts(100, 0, newRequest()).getBody()).isEqualTo(page);
+        assertThat(database.getStatementCount()).isZero();
+
+        cachingBurgerController.addBurger(2, new BurgerDto(null, PattyTypeDto.MEAT, List.of()));
+        JsonNode carts = OBJECT_MAPPER.readTree(cachingCartController.getAllCarts(100, 0, newRequest()).getBody());
+
+        assertThat(carts.get("carts").get(1).get("burgerCount").asInt()).isEqualTo(1);
+        assertThat(responseCache.getStatistics().getInvalidationCount()).isEqualTo(1);
+    }
+
+    private static SerializedResponses newSerializedResponses(long maximumBytes) {
+        return new SerializedResponses(new ResponseCache(maximumBytes, maximumBytes, Duration.ofMinutes(1)), OBJECT_MAPPER, 1024);
+    }
+
+    private static ServletWebRequest newRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+    }
+}
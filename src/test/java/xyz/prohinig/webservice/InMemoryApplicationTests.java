@@ -0,0 +1,44 @@
+package xyz.prohinig.webservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import xyz.prohinig.webservice.database.CartStorage;
+import xyz.prohinig.webservice.database.InMemoryCartDAO;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// starts without any database connection
+@SpringBootTest(properties = "webservice.storage.engine=memory")
+@AutoConfigureMockMvc
+class InMemoryApplicationTests {
+
+	@Autowired
+	private CartStorage cartStorage;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void cartsAreServedFromMemory() throws Exception {
+		assertThat(cartStorage).isInstanceOf(InMemoryCartDAO.class);
+
+		Cart cart = new Cart();
+		cart.addBurger(new Burger(PattyType.MEAT, Burger.CHEESE));
+		cartStorage.update(cart);
+
+		mockMvc.perform(get("/carts/" + cart.getId() + "/burgers"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.burgers[0].id").value(cart.getBurgers().get(0).getId()));
+		mockMvc.perform(get("/metrics/connection-pool"))
+				.andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,14 @@
+package xyz.prohinig.webservice;
+
+import xyz.prohinig.webservice.database.TestStorage;
+
+/**
+ * The tests of the {@link BurgerController} against the in-memory storage engine.
+ */
+class InMemoryBurgerControllerTests extends BurgerControllerTests {
+
+    @Override
+    TestStorage createStorage() {
+        return TestStorage.memory();
+    }
+}
@@ -0,0 +1,14 @@
+package xyz.prohinig.webservice;
+
+import xyz.prohinig.webservice.database.TestStorage;
+
+/**
+ * The tests of the {@link CartController} against the in-memory storage engine.
+ */
+class InMemoryCartControllerTests extends CartControllerTests {
+
+    @Override
+    TestStorage createStorage() {
+        return TestStorage.memory();
+    }
+}
@@ -0,0 +1,105 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.BurgerDAO;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.SqlStatement;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.database.TestDatabase;
+import xyz.prohinig.webservice.dto.DaoMethodStatsDto;
+import xyz.prohinig.webservice.dto.EndpointStatsDto;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.metrics.EndpointMetrics;
+import xyz.prohinig.webservice.metrics.RequestMetricsInterceptor;
+import xyz.prohinig.webservice.metrics.RequestTrace;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MetricsTests {
+
+    private TestDatabase database;
+    private StatementRegistry statementRegistry;
+    private CartDAO cartDAO;
+    private EndpointMetrics endpointMetrics;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.execute("insert into cart (id, active) values (1, true), (2, true);"
+                + "insert into burger (patty_type, cheese, salad, tomato, cart_id) values"
+                + " (0, true, false, true, 1), (1, false, true, false, 1);");
+
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        statementRegistry = new StatementRegistry();
+        cartDAO = new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        BurgerDAO burgerDAO = new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        endpointMetrics = new EndpointMetrics(2);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new BurgerController(burgerDAO, new BurgerMapper(), cartDAO,
+                        new SerializedResponses(new ResponseCache(0, 0, Duration.ZERO), new ObjectMapper(), 1024)))
+                .addInterceptors(new RequestMetricsInterceptor(endpointMetrics))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void requestsAreRecordedPerEndpointAndDaoMethod() throws Exception {
+        mockMvc.perform(get("/carts/1/burgers")).andExpect(status().isOk());
+        mockMvc.perform(get("/carts/2/burgers")).andExpect(status().isOk());
+
+        List<EndpointStatsDto> endpoints = endpointMetrics.getStatistics();
+        assertThat(endpoints).hasSize(1);
+        EndpointStatsDto endpoint = endpoints.get(0);
+        assertThat(endpoint.getName()).isEqualTo("GET /carts/{cartId}/burgers");
+        assertThat(endpoint.getLatency().getCount()).isEqualTo(2);
+        assertThat(endpoint.getLatency().getMaxMicros()).isGreaterThanOrEqualTo(endpoint.getLatency().getP50Micros());
+        assertThat(endpoint.getStatementCount()).isEqualTo(2);
+        assertThat(endpoint.getMaxStatementsPerRequest()).isEqualTo(1);
+        assertThat(endpoint.getRepeatedStatementRequestCount()).isZero();
+
+        // two burger rows for the first cart, a single row of nulls for the empty one
+        DaoMethodStatsDto getCartByID = statementRegistry.getMethodStatistics().stream()
+                .filter(method -> method.getName().equals("CartDAO.getCartByID"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(getCartByID.getLatency().getCount()).isEqualTo(2);
+        assertThat(getCartByID.getRowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void repeatedStatementIsReportedAsNPlusOne() throws Exception {
+        Method handler = MetricsTests.class.getDeclaredMethod("repeatedStatementIsReportedAsNPlusOne");
+        endpointMetrics.register(handler, "GET /carts/all");
+
+        RequestTrace.begin();
+        cartDAO.getCartByID(1);
+        cartDAO.getCartByID(2);
+        RequestTrace trace = RequestTrace.end();
+        endpointMetrics.record(handler, trace, 1000);
+
+        EndpointStatsDto endpoint = endpointMetrics.getStatistics().get(0);
+        assertThat(endpoint.getRepeatedStatementRequestCount()).isEqualTo(1);
+        assertThat(endpoint.getLastRepeatedStatement()).isEqualTo(SqlStatement.CART_WITH_BURGERS_BY_ID.name());
+        assertThat(RequestTrace.end()).isNull();
+    }
+}
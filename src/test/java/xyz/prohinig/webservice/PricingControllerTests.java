@@ -0,0 +1,120 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import xyz.prohinig.webservice.cache.ResponseCache;
+import xyz.prohinig.webservice.database.TestStorage;
+import xyz.prohinig.webservice.mapper.CartMapper;
+import xyz.prohinig.webservice.mapper.PriceTableMapper;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.PattyType;
+import xyz.prohinig.webservice.model.PriceTable;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PricingControllerTests {
+
+    private static final String PRICES = "{\"base\": 1.00, \"patties\": {\"MEAT\": 2.00, \"VEGGIE\": 3.00},"
+            + " \"ingredients\": {\"CHEESE\": 0.50, \"SALAD\": 0.25, \"TOMATO\": 0.10}}";
+
+    private TestStorage storage;
+    private SerializedResponses serializedResponses;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        PriceTable.install(PriceTable.DEFAULT);
+        storage = TestStorage.database();
+        storage.insertCart(false, new Burger(PattyType.MEAT, Burger.CHEESE));
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().modules(new ParameterNamesModule()).build();
+        // responses are cached, so a stale total would be served from the cache
+        serializedResponses = new SerializedResponses(new ResponseCache(1 << 20, 1 << 20, Duration.ofMinutes(1)), objectMapper, 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+        PriceTable.install(PriceTable.DEFAULT);
+    }
+
+    @Test
+    void updatedPricesChangeTheCartTagAndTheCachedVariant() throws Exception {
+        MockMvc mockMvc = newMockMvc(true);
+        String variant = serializedResponses.selectVariant(newRequest(), true).getKey();
+        String etag = mockMvc.perform(get("/carts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(6.50))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/prices").contentType(MediaType.APPLICATION_JSON).content(PRICES))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/prices"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.base").value(1.00))
+                .andExpect(jsonPath("$.patties.VEGGIE").value(3.00));
+        assertThat(serializedResponses.selectVariant(newRequest(), true).getKey()).isNotEqualTo(variant);
+
+        String changedETag = mockMvc.perform(get("/carts/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3.50))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedETag).isNotEqualTo(etag);
+
+        mockMvc.perform(get("/carts/1").header(HttpHeaders.IF_NONE_MATCH, changedETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void pricesAreNotUpdatedUnlessUpdatesAreEnabled() throws Exception {
+        MockMvc mockMvc = newMockMvc(false);
+
+        mockMvc.perform(put("/prices").contentType(MediaType.APPLICATION_JSON).content(PRICES))
+                .andExpect(status().isForbidden());
+
+        assertThat(PriceTable.current()).isSameAs(PriceTable.DEFAULT);
+        mockMvc.perform(get("/prices"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.base").value(3.00));
+    }
+
+    @Test
+    void invalidPricesAreRejected() throws Exception {
+        MockMvc mockMvc = newMockMvc(true);
+
+        mockMvc.perform(put("/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content(PRICES.replace("0.10", "-0.10")))
+                .andExpect(status().isBadRequest());
+
+        assertThat(PriceTable.current()).isSameAs(PriceTable.DEFAULT);
+    }
+
+    private MockMvc newMockMvc(boolean updatesEnabled) {
+        return MockMvcBuilders.standaloneSetup(new PricingController(new PriceTableMapper(), updatesEnabled),
+                        new CartController(storage.getCartStorage(), new CartMapper(), objectMapper, serializedResponses))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    private static ServletWebRequest newRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/carts/1"));
+    }
+}
@@ -0,0 +1,187 @@
+package xyz.prohinig.webservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.database.ReactiveBurgerDAO;
+import xyz.prohinig.webservice.database.ReactiveCartDAO;
+import xyz.prohinig.webservice.database.ReactiveDatabaseConnection;
+import xyz.prohinig.webservice.database.TestDatabase;
+import xyz.prohinig.webservice.mapper.BurgerMapper;
+import xyz.prohinig.webservice.mapper.CartMapper;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+class ReactiveControllerTests {
+
+    private TestDatabase database;
+    private ReactiveDatabaseConnection reactiveDatabaseConnection;
+    private ReactiveCartDAO cartDAO;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.execute("insert into cart (id, active) values (1, true), (2, false), (3, true);"
+                + "insert into burger (patty_type, cheese, salad, tomato, cart_id) values"
+                + " (0, true, false, true, 1), (1, false, true, false, 2), (0, false, false, false, 2);");
+
+        reactiveDatabaseConnection = database.createReactiveConnection();
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        cartDAO = new ReactiveCartDAO(reactiveDatabaseConnection, cartCache, activeCartRegistry);
+        ReactiveBurgerDAO burgerDAO = new ReactiveBurgerDAO(reactiveDatabaseConnection, cartCache, activeCartRegistry);
+
+        // request bodies are bound through constructor parameter names, as with the ObjectMapper of the application
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().modules(new ParameterNamesModule()).build();
+        webTestClient = WebTestClient.bindToController(
+                        new ReactiveCartController(cartDAO, new CartMapper()),
+                        new ReactiveBurgerController(burgerDAO, new BurgerMapper(), cartDAO))
+                .httpMessageCodecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2SmileEncoder(
+                            new Jackson2SmileEncoder(BinaryWireFormat.createObjectMapper(), BinaryWireFormat.MEDIA_TYPE));
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveDatabaseConnection.close();
+        database.close();
+    }
+
+    @Test
+    void getAllCartsPagesByCartId() {
+        webTestClient.get().uri("/carts?limit=2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.carts[*].id").value(contains(1, 2))
+                .jsonPath("$.carts[1].burgerCount").isEqualTo(2)
+                .jsonPath("$.carts[1].total").isEqualTo(11.5)
+                .jsonPath("$.nextCursor").isEqualTo(2);
+
+        webTestClient.get().uri("/carts?limit=2&after=2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.carts[*].id").value(contains(3))
+                .jsonPath("$.carts[0].burgerCount").isEqualTo(0)
+                .jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    void getAllCartsRejectsInvalidLimit() {
+        webTestClient.get().uri("/carts?limit=0").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamAllCartsWritesOneCartPerLine() {
+        String body = webTestClient.get().uri("/carts?after=1").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(body.split("\n")).containsExactly(
+                "{\"id\":2,\"burgerCount\":2,\"total\":11.5,\"active\":false}",
+                "{\"id\":3,\"burgerCount\":0,\"total\":0.0,\"active\":true}");
+    }
+
+    @Test
+    void streamCartSummariesEmitsCartsOnDemand() {
+        StepVerifier.create(cartDAO.streamCartSummaries(0, 1), 1)
+                .assertNext(cart -> assertThat(cart.getId()).isEqualTo(1))
+                .thenRequest(2)
+                .assertNext(cart -> assertThat(cart.getId()).isEqualTo(2))
+                .assertNext(cart -> assertThat(cart.getId()).isEqualTo(3))
+                .verifyComplete();
+    }
+
+    @Test
+    void getBurgersOfCartMatchesServletContract() {
+        webTestClient.get().uri("/carts/2/burgers").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.burgers[*].pattyType").value(contains("VEGGIE", "MEAT"));
+
+        webTestClient.get().uri("/carts/4/burgers").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getAllCartsNegotiatesBinaryFormat() throws Exception {
+        byte[] body = webTestClient.get().uri("/carts?limit=2").accept(BinaryWireFormat.MEDIA_TYPE).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(BinaryWireFormat.MEDIA_TYPE)
+                .expectBody().returnResult().getResponseBody();
+
+        JsonNode carts = BinaryWireFormat.createObjectMapper().readTree(body);
+        assertThat(carts.get("carts").get(1).get("burgerCount").intValue()).isEqualTo(2);
+
+        webTestClient.get().uri("/carts/2/burgers").exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void addBurgerPersistsBurger() {
+        webTestClient.post().uri("/carts/3/burgers").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"pattyType\":\"VEGGIE\",\"ingredients\":[\"CHEESE\"]}")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/carts/3").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.burgerCount").isEqualTo(1)
+                .jsonPath("$.total").isEqualTo(7.0);
+    }
+
+    @Test
+    void addBurgersReturnsGeneratedIds() {
+        webTestClient.post().uri("/carts/3/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"pattyType\":\"MEAT\",\"ingredients\":[]},{\"pattyType\":\"VEGGIE\",\"ingredients\":[\"TOMATO\"]}]")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.burgers[*].id").value(contains(4, 5));
+
+        webTestClient.post().uri("/carts/1/burgers/bulk").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"pattyType\":\"MEAT\",\"ingredients\":[]},{\"pattyType\":\"MEAT\",\"ingredients\":[]},{\"pattyType\":\"MEAT\",\"ingredients\":[]}]")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getBurgersOfCartAnswersNotModifiedUntilTheCartChanges() {
+        String etag = webTestClient.get().uri("/carts/3/burgers").exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/carts/3/burgers").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.post().uri("/carts/3/burgers").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"pattyType\":\"MEAT\",\"ingredients\":[]}")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/carts/3/burgers").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+    }
+}
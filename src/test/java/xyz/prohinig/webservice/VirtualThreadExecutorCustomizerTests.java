@@ -0,0 +1,38 @@
+package xyz.prohinig.webservice;
+
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadExecutorCustomizerTests {
+
+    @Test
+    void requestsRunOnVirtualThreadsUntilTheCustomizerIsClosed() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        Http11NioProtocol protocolHandler = new Http11NioProtocol();
+
+        ExecutorService executor;
+        try (VirtualThreadExecutorCustomizer customizer = new VirtualThreadExecutorCustomizer()) {
+            customizer.customize(protocolHandler);
+            executor = (ExecutorService) protocolHandler.getExecutor();
+            // Thread.isVirtual() is not part of the Java 17 API the tests compile against
+            Object isVirtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get();
+            assertThat(isVirtual).isEqualTo(true);
+        }
+        assertThat(executor.isShutdown()).isTrue();
+    }
+
+    @Test
+    void failsBeforeJava21() {
+        assumeTrue(Runtime.version().feature() < 21, "virtual threads are available");
+
+        assertThatThrownBy(VirtualThreadExecutorCustomizer::new)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 21");
+    }
+}
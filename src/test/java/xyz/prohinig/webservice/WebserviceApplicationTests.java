@@ -3,7 +3,8 @@ package xyz.prohinig.webservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// starts without a database
+@SpringBootTest(properties = {"webservice.database.schema.migrate=false", "webservice.database.schema.verify-indexes=false"})
 class WebserviceApplicationTests {
 
 	@Test
@@ -0,0 +1,72 @@
+package xyz.prohinig.webservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.database.BurgerDAO;
+import xyz.prohinig.webservice.database.BurgerWriteBehind;
+import xyz.prohinig.webservice.database.CartDAO;
+import xyz.prohinig.webservice.database.StatementRegistry;
+import xyz.prohinig.webservice.database.TestDatabase;
+import xyz.prohinig.webservice.database.WriteBehindBurgerDAO;
+import xyz.prohinig.webservice.database.WriteBehindCartDAO;
+import xyz.prohinig.webservice.model.Cart;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The concurrency tests with single burgers accepted by the {@link BurgerWriteBehind}, which flushes while the
+ * requests run.
+ */
+class WriteBehindCartConcurrencyTests extends CartConcurrencyTests {
+
+    @TempDir
+    Path directory;
+
+    private BurgerWriteBehind writeBehind;
+
+    @AfterEach
+    void closeWriteBehind() throws IOException {
+        writeBehind.close();
+    }
+
+    // half of the carts fit, burgers are checked against the known versions and against the database for the others
+    @Override
+    CartCache createCartCache() {
+        return new CartCache(10, Duration.ofMinutes(1));
+    }
+
+    @Override
+    CartDAO createCartDAO(TestDatabase database, StatementRegistry statementRegistry, CartCache cartCache,
+                          ActiveCartRegistry activeCartRegistry) {
+        writeBehind = new BurgerWriteBehind(database, statementRegistry, cartCache, activeCartRegistry,
+                directory.resolve("burger-journal.bin"), "test", Duration.ofMillis(1), 8);
+        writeBehind.start();
+        return new WriteBehindCartDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+    }
+
+    @Override
+    BurgerDAO createBurgerDAO(TestDatabase database, StatementRegistry statementRegistry, CartCache cartCache,
+                              ActiveCartRegistry activeCartRegistry) {
+        return new WriteBehindBurgerDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+    }
+
+    // every accepted burger fits its cart, none is dropped on the way to the database
+    @Override
+    void finishWrites() {
+        writeBehind.flush();
+        assertThat(writeBehind.getStatistics().getPendingCount()).isZero();
+        assertThat(writeBehind.getStatistics().getDroppedCount()).isZero();
+    }
+
+    // burgers of the same cart may be written in one batch
+    @Override
+    void assertVersionOf(Cart cart) {
+        assertThat(cart.getVersion()).isBetween(Math.min(2, 1 + cart.getBurgers().size()), 1 + cart.getBurgers().size());
+    }
+}
@@ -0,0 +1,181 @@
+package xyz.prohinig.webservice.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import xyz.prohinig.webservice.model.Burger;
+import xyz.prohinig.webservice.model.Cart;
+import xyz.prohinig.webservice.model.PattyType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartCacheTests {
+
+    private static final int READERS = 8;
+
+    // no cached carts, every read is a miss
+    private final CartCache cartCache = new CartCache(0, Duration.ZERO);
+    private final ExecutorService executor = Executors.newFixedThreadPool(READERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Cart>> reads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            reads.add(executor.submit(() -> cartCache.getOrLoad(1, cartId -> {
+                loads.incrementAndGet();
+                await(release);
+                return newCart(cartId);
+            })));
+        }
+        awaitCoalesced(READERS - 1);
+        release.countDown();
+
+        List<Cart> carts = new ArrayList<>();
+        for (Future<Cart> read : reads) {
+            carts.add(read.get());
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(carts).allSatisfy(cart -> assertThat(cart.getBurgers()).hasSize(1));
+        // every reader may modify its cart
+        assertThat(carts).doesNotHaveDuplicates();
+        assertThat(cartCache.getLoadCoalescingStatistics().getLoadCount()).isEqualTo(1);
+        assertThat(cartCache.getLoadCoalescingStatistics().getInFlightCount()).isZero();
+    }
+
+    @Test
+    void writeDetachesRunningLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Cart> readBeforeWrite = executor.submit(() -> cartCache.getOrLoad(1, cartId -> {
+            loads.incrementAndGet();
+            await(release);
+            return newCart(cartId);
+        }));
+        while (loads.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        cartCache.invalidate(1);
+        Cart readAfterWrite = cartCache.getOrLoad(1, cartId -> {
+            loads.incrementAndGet();
+            return newCart(cartId);
+        });
+        release.countDown();
+
+        assertThat(readBeforeWrite.get()).isNotNull();
+        assertThat(readAfterWrite).isNotNull();
+        assertThat(loads).hasValue(2);
+        assertThat(cartCache.getLoadCoalescingStatistics().getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void deleteDuringLoadKeepsTheCartOutOfTheCache() throws Exception {
+        CartCache cachingCartCache = new CartCache(100, Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // the load read the cart before it was deleted
+        Future<Cart> readBeforeDelete = executor.submit(() -> cachingCartCache.getOrLoad(1, cartId -> {
+            loading.countDown();
+            await(release);
+            return newCart(cartId);
+        }));
+        await(loading);
+        cachingCartCache.remove(1);
+        release.countDown();
+
+        assertThat(readBeforeDelete.get()).isNotNull();
+        assertThat(cachingCartCache.get(1)).isNull();
+        assertThat(cachingCartCache.getVersion(1)).isNull();
+
+        // a late put of the deleted cart is not handed out either
+        cachingCartCache.put(newCart(1));
+        assertThat(cachingCartCache.get(1)).isNull();
+        assertThat(cachingCartCache.getVersion(1)).isNull();
+    }
+
+    @Test
+    void loadedCartIsCachedUnlessAWriteDetachedTheLoad() throws Exception {
+        CartCache cachingCartCache = new CartCache(100, Duration.ofMinutes(1));
+        assertThat(cachingCartCache.getOrLoad(1, CartCacheTests::newCart)).isNotNull();
+        assertThat(cachingCartCache.get(1)).isNotNull();
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cachingCartCache.invalidate(2);
+        Future<Cart> readBeforeWrite = executor.submit(() -> cachingCartCache.getOrLoadAsync(2, cartId ->
+                CompletableFuture.supplyAsync(() -> {
+                    loading.countDown();
+                    await(release);
+                    return newCart(cartId);
+                })).join());
+        await(loading);
+        cachingCartCache.invalidate(2);
+        release.countDown();
+
+        assertThat(readBeforeWrite.get()).isNotNull();
+        assertThat(cachingCartCache.get(2)).isNull();
+    }
+
+    @Test
+    void failedLoadIsThrownToAllReaders() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Cart>> reads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            reads.add(executor.submit(() -> cartCache.getOrLoad(1, cartId -> {
+                await(release);
+                throw new IllegalStateException("database gone");
+            })));
+        }
+        awaitCoalesced(READERS - 1);
+        release.countDown();
+
+        for (Future<Cart> read : reads) {
+            assertThat(read).failsWithin(Duration.ofSeconds(5))
+                    .withThrowableOfType(Exception.class)
+                    .withRootCauseInstanceOf(IllegalStateException.class);
+        }
+        // the next read loads again
+        assertThat(cartCache.getOrLoad(1, CartCacheTests::newCart)).isNotNull();
+    }
+
+    private void awaitCoalesced(long coalescedCount) {
+        while (cartCache.getLoadCoalescingStatistics().getCoalescedCount() < coalescedCount) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Cart newCart(int cartId) {
+        Cart cart = new Cart(cartId, false);
+        cart.addBurger(new Burger(PattyType.MEAT, Burger.CHEESE));
+        return cart;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package xyz.prohinig.webservice.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BurgerWriteBehindTests {
+
+    @TempDir
+    Path directory;
+
+    private TestDatabase database;
+    private Path journalPath;
+    private BurgerWriteBehind writeBehind;
+    private CartDAO cartDAO;
+    private BurgerDAO burgerDAO;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.execute("insert into cart (id, active, version) values (1, true, 1), (2, true, 1);");
+        journalPath = directory.resolve("burger-journal.bin");
+        start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        database.close();
+    }
+
+    @Test
+    void addedBurgerIsReadBeforeItIsWritten() {
+        Cart cart = cartDAO.getCartByID(1);
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, Salad.INSTANCE, null), cart)).isTrue();
+
+        assertThat(countStoredBurgers()).isZero();
+        assertThat(cartDAO.getCachedVersion(1)).isNull();
+        Cart cartWithPendingBurger = cartDAO.getCartByID(1);
+        assertThat(cartWithPendingBurger.getVersion()).isEqualTo(1);
+        assertThat(cartWithPendingBurger.getBurgers()).singleElement().satisfies(burger -> {
+            assertThat(burger.getId()).isNull();
+            assertThat(burger.getPattyType()).isEqualTo(PattyType.VEGGIE);
+        });
+        assertThat(cartDAO.getCartSummaries(0, 10).get(0).getBurgerCount()).isEqualTo(1);
+
+        writeBehind.flush();
+
+        assertThat(countStoredBurgers()).isEqualTo(1);
+        // the flusher does not touch the burgers of carts that were read before
+        assertThat(cartWithPendingBurger.getBurgers().get(0).getId()).isNull();
+        Cart storedCart = cartDAO.getCartByID(1);
+        assertThat(storedCart.getVersion()).isEqualTo(2);
+        assertThat(storedCart.getBurgers()).singleElement().satisfies(burger -> assertThat(burger.getId()).isNotNull());
+        assertThat(cartDAO.getCartSummaries(0, 10).get(0).getBurgerCount()).isEqualTo(1);
+        assertThat(writeBehind.getStatistics().getPendingCount()).isZero();
+        assertThat(writeBehind.getStatistics().getJournalBytes()).isZero();
+    }
+
+    @Test
+    void journalIsReplayedExactlyOnceAfterCrash() throws IOException {
+        burgerDAO.persistBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, null), cartDAO.getCartByID(1));
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, Tomato.INSTANCE), cartDAO.getCartByID(1));
+        Path journalBeforeFlush = directory.resolve("journal-before-flush.bin");
+        Files.copy(journalPath, journalBeforeFlush);
+
+        // the burgers are written, the process dies before the journal is truncated
+        writeBehind.flush();
+        crash();
+        Files.copy(journalBeforeFlush, journalPath, StandardCopyOption.REPLACE_EXISTING);
+
+        start();
+        assertThat(writeBehind.getStatistics().getPendingCount()).isZero();
+        writeBehind.flush();
+        assertThat(countStoredBurgers()).isEqualTo(2);
+
+        // a crash before the flush, the restarted instance writes the burgers of the journal
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1));
+        crash();
+        start();
+        assertThat(writeBehind.getStatistics().getPendingCount()).isEqualTo(1);
+        writeBehind.flush();
+        assertThat(cartDAO.getCartByID(1).getBurgers()).extracting(Burger::getPattyType)
+                .containsExactly(PattyType.MEAT, PattyType.VEGGIE, PattyType.VEGGIE);
+    }
+
+    @Test
+    void incompleteRecordIsCutOff() throws IOException {
+        burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(2));
+        crash();
+        Files.write(journalPath, new byte[BurgerJournal.RECORD_SIZE - 1], StandardOpenOption.APPEND);
+
+        start();
+
+        assertThat(writeBehind.getStatistics().getPendingCount()).isEqualTo(1);
+        assertThat(Files.size(journalPath)).isEqualTo(BurgerJournal.RECORD_SIZE);
+        writeBehind.flush();
+        assertThat(cartDAO.getCartByID(2).getBurgers()).hasSize(1);
+    }
+
+    @Test
+    void burgersOfDeletedCartAreDropped() {
+        burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(2));
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1));
+        database.execute("delete from cart where id = 2;");
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getStatistics().getDroppedCount()).isEqualTo(1);
+        assertThat(writeBehind.getStatistics().getDroppedCartIds()).containsExactly(2);
+        assertThat(writeBehind.getStatistics().getFlushedCount()).isEqualTo(1);
+        assertThat(cartDAO.getCartByID(1).getBurgers()).singleElement()
+                .satisfies(burger -> assertThat(burger.getId()).isNotNull());
+    }
+
+    @Test
+    void burgerIsRejectedForCartThatChangedSinceItWasRead() {
+        Cart cart = cartDAO.getCartByID(1);
+        Cart sameCart = cartDAO.getCartByID(1);
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cart)).isTrue();
+
+        // another burger was accepted for the cart
+        assertThatThrownBy(() -> burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), sameCart))
+                .isInstanceOf(CartVersionConflictException.class);
+
+        // the cart was written to the database
+        Cart cartWithPendingBurger = cartDAO.getCartByID(1);
+        database.execute("update cart set version = version + 1 where id = 1;");
+        assertThatThrownBy(() -> burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartWithPendingBurger))
+                .isInstanceOf(CartVersionConflictException.class);
+
+        assertThat(writeBehind.getStatistics().getPendingCount()).isEqualTo(1);
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1))).isTrue();
+        writeBehind.flush();
+        assertThat(cartDAO.getCartByID(1).getBurgers()).extracting(Burger::getPattyType)
+                .containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+    }
+
+    @Test
+    void burgerIsCheckedAgainstTheKnownVersionWithoutReadingTheDatabase() throws IOException {
+        writeBehind.close();
+        start(new CartCache(100, Duration.ofMinutes(1)));
+        Cart cart = cartDAO.getCartByID(1);
+        Cart sameCart = cartDAO.getCartByID(1);
+        database.resetStatementCount();
+
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cart)).isTrue();
+        assertThatThrownBy(() -> burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), sameCart))
+                .isInstanceOf(CartVersionConflictException.class);
+        assertThat(database.getStatementCount()).isZero();
+
+        // the burger is written after the cart was read
+        Cart cartWithPendingBurger = cartDAO.getCartByID(1);
+        writeBehind.flush();
+        database.resetStatementCount();
+        assertThatThrownBy(() -> burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartWithPendingBurger))
+                .isInstanceOf(CartVersionConflictException.class);
+        assertThat(database.getStatementCount()).isZero();
+
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1))).isTrue();
+        writeBehind.flush();
+        assertThat(cartDAO.getCartByID(1).getBurgers()).extracting(Burger::getPattyType)
+                .containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+    }
+
+    @Test
+    void cartReadWithPendingBurgersIsUpdatedOnceTheyAreWritten() {
+        burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(1));
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1));
+        Cart cart = cartDAO.getCartByID(1);
+        cart.removeBurgerByIndex(0);
+        cart.addBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, null));
+
+        assertThat(cartDAO.update(cart)).isTrue();
+
+        // both pending burgers were written in one batch before the update
+        assertThat(cart.getVersion()).isEqualTo(3);
+        assertThat(cart.getBurgers()).allSatisfy(burger -> assertThat(burger.getId()).isNotNull());
+        Cart storedCart = cartDAO.getCartByID(1);
+        assertThat(storedCart.getVersion()).isEqualTo(3);
+        assertThat(storedCart.getBurgers()).extracting(Burger::getId)
+                .containsExactlyElementsOf(cart.getBurgers().stream().map(Burger::getId).collect(Collectors.toList()));
+        assertThat(storedCart.getBurgers()).extracting(Burger::getIngredients).containsExactly(0, Burger.CHEESE);
+    }
+
+    @Test
+    void cartReadBeforeAnotherBurgerWasAcceptedIsNotUpdated() {
+        burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(1));
+        Cart cart = cartDAO.getCartByID(1);
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1));
+        cart.checkout();
+
+        assertThatThrownBy(() -> cartDAO.update(cart)).isInstanceOf(CartVersionConflictException.class);
+        // the same once the other burger is written
+        writeBehind.flush();
+        assertThatThrownBy(() -> cartDAO.update(cart)).isInstanceOf(CartVersionConflictException.class);
+
+        Cart latestCart = cartDAO.getCartByID(1);
+        latestCart.checkout();
+        assertThat(cartDAO.update(latestCart)).isTrue();
+        Cart storedCart = cartDAO.getCartByID(1);
+        assertThat(storedCart.isCheckedOut()).isTrue();
+        assertThat(storedCart.getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void burgersBeyondTheLimitAreDropped(CapturedOutput output) {
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(2));
+        burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1));
+        // written around the write-behind after the burger was accepted
+        database.execute("insert into burger (patty_type, cheese, salad, tomato, cart_id) values"
+                + " (0, false, false, false, 2), (0, false, false, false, 2), (0, false, false, false, 2);"
+                + "update cart set version = version + 1 where id = 2;");
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getStatistics().getDroppedCount()).isEqualTo(1);
+        assertThat(writeBehind.getStatistics().getDroppedCartIds()).containsExactly(2);
+        assertThat(output).contains("Dropped burger 1 of cart 2");
+        assertThat(writeBehind.getStatistics().getPendingCount()).isZero();
+        assertThat(cartDAO.getCartByID(2).getBurgers()).extracting(Burger::getPattyType)
+                .containsExactly(PattyType.MEAT, PattyType.MEAT, PattyType.MEAT);
+        assertThat(cartDAO.getCartByID(1).getBurgers()).singleElement()
+                .satisfies(burger -> assertThat(burger.getId()).isNotNull());
+    }
+
+    @Test
+    void failedAppendDoesNotHoldBackLaterBurgers() throws IOException {
+        writeBehind.close();
+        FailingFileChannel channel = startWithFailingJournal();
+
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(1))).isTrue();
+        // half of the record is written before the write fails
+        channel.failNextWrite = true;
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, null), cartDAO.getCartByID(1)))
+                .isFalse();
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1))).isTrue();
+
+        try (BurgerJournal reopened = new BurgerJournal(copyJournal(), 0)) {
+            assertThat(reopened.getRecoveredEntries()).extracting(BurgerJournal.Entry::getSequence).containsExactly(1L, 2L);
+        }
+        writeBehind.flush();
+        assertThat(writeBehind.getStatistics().getPendingCount()).isZero();
+        assertThat(cartDAO.getCartByID(1).getBurgers()).extracting(Burger::getIngredients).containsExactly(0, 0);
+    }
+
+    @Test
+    void failedForceStopsTheJournal() throws IOException {
+        writeBehind.close();
+        FailingFileChannel channel = startWithFailingJournal();
+
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, null, null), cartDAO.getCartByID(1))).isTrue();
+        channel.failNextForce = true;
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1))).isFalse();
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cartDAO.getCartByID(1))).isFalse();
+
+        // the burger of the failed force does not come back on the next open
+        try (BurgerJournal reopened = new BurgerJournal(copyJournal(), 0)) {
+            assertThat(reopened.getRecoveredEntries()).extracting(BurgerJournal.Entry::getSequence).containsExactly(1L);
+        }
+        writeBehind.flush();
+        assertThat(cartDAO.getCartByID(1).getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT);
+    }
+
+    private void start() {
+        start(new CartCache(0, Duration.ZERO));
+    }
+
+    private void start(CartCache cartCache) {
+        StatementRegistry statementRegistry = new StatementRegistry();
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        // flushed by the tests
+        writeBehind = new BurgerWriteBehind(database, statementRegistry, cartCache, activeCartRegistry, journalPath,
+                "test", Duration.ofHours(1), 100);
+        writeBehind.start();
+        cartDAO = new WriteBehindCartDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+        burgerDAO = new WriteBehindBurgerDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+    }
+
+    private FailingFileChannel startWithFailingJournal() {
+        FailingFileChannel[] channel = new FailingFileChannel[1];
+        StatementRegistry statementRegistry = new StatementRegistry();
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        writeBehind = new BurgerWriteBehind(database, statementRegistry, cartCache, activeCartRegistry, journalPath,
+                "test", Duration.ofHours(1), 100) {
+            @Override
+            BurgerJournal openJournal(long lastFlushedSequence) throws IOException {
+                channel[0] = new FailingFileChannel(FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE));
+                return new BurgerJournal(channel[0], lastFlushedSequence);
+            }
+        };
+        writeBehind.start();
+        cartDAO = new WriteBehindCartDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+        burgerDAO = new WriteBehindBurgerDAO(database, statementRegistry, cartCache, activeCartRegistry, writeBehind);
+        return channel[0];
+    }
+
+    private Path copyJournal() throws IOException {
+        Path copy = directory.resolve("journal-copy.bin");
+        Files.copy(journalPath, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    private void crash() throws IOException {
+        writeBehind.halt();
+        writeBehind = null;
+    }
+
+    private int countStoredBurgers() {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from burger;")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fails the next write halfway through the buffer, or the next force, once.
+     */
+    private static class FailingFileChannel extends FileChannel {
+        private final FileChannel channel;
+        private volatile boolean failNextWrite;
+        private volatile boolean failNextForce;
+
+        FailingFileChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer half = source.duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                source.position(half.limit());
+                channel.write(half, position);
+                throw new IOException("no space left on device");
+            }
+            return channel.write(source, position);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failNextForce) {
+                failNextForce = false;
+                throw new IOException("input/output error");
+            }
+            channel.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            return channel.read(destination);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+            return channel.read(destinations, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            return channel.write(source);
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            return channel.write(sources, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return channel.transferFrom(source, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer destination, long position) throws IOException {
+            return channel.read(destination, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package xyz.prohinig.webservice.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.dto.StatementStatsDto;
+import xyz.prohinig.webservice.model.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartArchiverTests {
+
+    private static final Duration MIN_AGE = Duration.ofHours(1);
+
+    private TestDatabase database;
+    private CartDAO cartDAO;
+    private CartArchiver cartArchiver;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        StatementRegistry statementRegistry = new StatementRegistry();
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        cartDAO = new CartDAO(database, statementRegistry, cartCache, new ActiveCartRegistry());
+        // a batch size of one archives the carts in several transactions
+        cartArchiver = new CartArchiver(database, statementRegistry, cartCache, MIN_AGE, Duration.ofHours(1), 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartArchiver.close();
+        database.close();
+    }
+
+    @Test
+    void archivedCartIsReadFromArchive() {
+        Cart cart = checkedOutCart(new Burger(PattyType.MEAT, Burger.CHEESE | Burger.TOMATO),
+                new Burger(PattyType.VEGGIE, Burger.SALAD));
+        Cart emptyCart = checkedOutCart();
+        backdate(cart);
+        backdate(emptyCart);
+
+        assertThat(cartArchiver.archive()).isEqualTo(2);
+
+        assertThat(cartDAO.getCartSummaries(0, 10)).isEmpty();
+        Cart archivedCart = cartDAO.getCartByID(cart.getId());
+        assertThat(archivedCart.isCheckedOut()).isTrue();
+        assertThat(archivedCart.getVersion()).isEqualTo(cart.getVersion());
+        assertThat(archivedCart.getBurgers()).extracting(Burger::getId)
+                .containsExactlyElementsOf(cart.getBurgers().stream().map(Burger::getId).toList());
+        assertThat(archivedCart.getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+        assertThat(archivedCart.getBurgers()).extracting(Burger::getIngredients)
+                .containsExactly(Burger.CHEESE | Burger.TOMATO, Burger.SALAD);
+        assertThat(cartDAO.getCartByID(emptyCart.getId()).getBurgers()).isEmpty();
+        assertThat(cartArchiver.getStatistics().getArchivedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void activeAndRecentlyCheckedOutCartsStay() {
+        Cart activeCart = new Cart();
+        activeCart.addBurger(new Burger(PattyType.MEAT, 0));
+        cartDAO.update(activeCart);
+        Cart recentCart = checkedOutCart(new Burger(PattyType.VEGGIE, 0));
+
+        assertThat(cartArchiver.archive()).isZero();
+
+        assertThat(cartDAO.getCartSummaries(0, 10)).extracting(CartSummary::getId)
+                .containsExactly(activeCart.getId(), recentCart.getId());
+    }
+
+    @Test
+    void cartWrittenWhileItIsArchivedStaysInTheHotTables() {
+        Cart writtenCart = checkedOutCart(new Burger(PattyType.MEAT, Burger.CHEESE));
+        Cart cart = checkedOutCart(new Burger(PattyType.VEGGIE, 0));
+        backdate(writtenCart);
+        backdate(cart);
+        StatementRegistry statementRegistry = new StatementRegistry() {
+            @Override
+            public int[] executeBatch(SqlStatement statement, PreparedStatement preparedStatement) throws SQLException {
+                int[] updatedRows = super.executeBatch(statement, preparedStatement);
+                if (statement == SqlStatement.INSERT_ARCHIVED_CART) {
+                    // a request writes the cart between the read and the delete of the archiver
+                    database.execute("update cart set version = version + 1 where id = " + writtenCart.getId());
+                }
+                return updatedRows;
+            }
+        };
+        CartArchiver racingArchiver = new CartArchiver(database, statementRegistry, new CartCache(0, Duration.ZERO),
+                MIN_AGE, Duration.ofHours(1), 10);
+
+        assertThat(racingArchiver.archive()).isEqualTo(1);
+
+        assertThat(database.queryForStrings("select id from cart_archive;")).containsExactly(String.valueOf(cart.getId()));
+        assertThat(cartDAO.getCartSummaries(0, 10)).extracting(CartSummary::getId).containsExactly(writtenCart.getId());
+        Cart storedCart = cartDAO.getCartByID(writtenCart.getId());
+        assertThat(storedCart.getVersion()).isGreaterThan(writtenCart.getVersion());
+        assertThat(storedCart.getBurgers()).extracting(Burger::getId)
+                .containsExactly(writtenCart.getBurgers().get(0).getId());
+        // tried again by the next batch of the same run, which found it written again
+        assertThat(racingArchiver.getStatistics().getSkippedCount()).isEqualTo(2);
+        assertThat(statementRegistry.getStatistics()).extracting(StatementStatsDto::getName)
+                .contains(SqlStatement.INSERT_ARCHIVED_CART.name(), SqlStatement.DELETE_CART_IF_UNCHANGED.name(),
+                        SqlStatement.DELETE_ARCHIVED_CART.name());
+    }
+
+    @Test
+    void archivedCartCanBeDeleted() {
+        Cart cart = checkedOutCart(new Burger(PattyType.MEAT, 0));
+        backdate(cart);
+        cartArchiver.archive();
+
+        assertThat(cartDAO.deleteCart(cart)).isTrue();
+
+        assertThat(cartDAO.getCartByID(cart.getId())).isNull();
+        assertThat(cartDAO.deleteCart(cart)).isFalse();
+    }
+
+    @Test
+    void archivedCartIsReadAndDeletedOnTheReactiveStack() {
+        Cart cart = checkedOutCart(new Burger(PattyType.VEGGIE, Burger.CHEESE));
+        backdate(cart);
+        cartArchiver.archive();
+
+        try (ReactiveDatabaseConnection reactiveDatabaseConnection = database.createReactiveConnection()) {
+            ReactiveCartDAO reactiveCartDAO = new ReactiveCartDAO(reactiveDatabaseConnection, new CartCache(0, Duration.ZERO),
+                    new ActiveCartRegistry());
+
+            Cart archivedCart = reactiveCartDAO.getCartByID(cart.getId()).block();
+            assertThat(archivedCart.isCheckedOut()).isTrue();
+            assertThat(archivedCart.getVersion()).isEqualTo(cart.getVersion());
+            assertThat(archivedCart.getBurgers()).singleElement().satisfies(burger -> {
+                assertThat(burger.getId()).isEqualTo(cart.getBurgers().get(0).getId());
+                assertThat(burger.getIngredients()).isEqualTo(Burger.CHEESE);
+            });
+
+            assertThat(reactiveCartDAO.deleteCart(cart).block()).isTrue();
+            assertThat(reactiveCartDAO.getCartByID(cart.getId()).blockOptional()).isEmpty();
+        }
+    }
+
+    private Cart checkedOutCart(Burger... burgers) {
+        Cart cart = new Cart();
+        for (Burger burger : burgers) {
+            cart.addBurger(burger);
+        }
+        cartDAO.update(cart);
+        if (cart.getBurgers().isEmpty()) {
+            // empty carts cannot be checked out through the model, but may exist in older data
+            database.execute("update cart set active = false, checked_out_at = current_timestamp where id = " + cart.getId());
+        } else {
+            cart.checkout();
+            cartDAO.update(cart);
+        }
+        return cartDAO.getCartByID(cart.getId());
+    }
+
+    private void backdate(Cart cart) {
+        database.execute("update cart set checked_out_at = checked_out_at - interval '2' hour where id = " + cart.getId());
+    }
+}
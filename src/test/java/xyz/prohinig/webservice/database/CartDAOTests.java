@@ -0,0 +1,186 @@
+package xyz.prohinig.webservice.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.*;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartDAOTests {
+
+    private TestDatabase database;
+    private CartDAO cartDAO;
+    private BurgerDAO burgerDAO;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        StatementRegistry statementRegistry = new StatementRegistry();
+        CartCache cartCache = new CartCache(0, Duration.ZERO);
+        ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        cartDAO = new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        burgerDAO = new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void updatePersistsNewCartAndBurgers() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, Tomato.INSTANCE));
+        cart.addBurger(new Burger(PattyType.VEGGIE, null, Salad.INSTANCE, null));
+
+        assertThat(cartDAO.update(cart)).isTrue();
+
+        assertThat(cart.getId()).isNotNull();
+        assertThat(cart.getBurgers()).allSatisfy(burger -> assertThat(burger.getId()).isNotNull());
+
+        Cart storedCart = cartDAO.getCartByID(cart.getId());
+        assertThat(storedCart.getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+    }
+
+    @Test
+    void updateDeletesRemovedBurgers() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, null, null, null));
+        cart.addBurger(new Burger(PattyType.VEGGIE, null, null, null));
+        cartDAO.update(cart);
+
+        cart.removeBurgerByIndex(0);
+        assertThat(cartDAO.update(cart)).isTrue();
+        assertThat(cartDAO.getCartByID(cart.getId()).getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.VEGGIE);
+
+        cart.removeBurgerByIndex(0);
+        assertThat(cartDAO.update(cart)).isTrue();
+        assertThat(cartDAO.getCartByID(cart.getId()).getBurgers()).isEmpty();
+    }
+
+    @Test
+    void failedUpdateRollsBackWholeCart() {
+        database.execute("alter table burger add constraint no_veggie check (patty_type <> 1);");
+
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, null, null, null));
+        cart.addBurger(new Burger(PattyType.VEGGIE, null, null, null));
+
+        assertThat(cartDAO.update(cart)).isFalse();
+
+        assertThat(cart.getId()).isNull();
+        assertThat(cart.getBurgers()).allSatisfy(burger -> assertThat(burger.getId()).isNull());
+        assertThat(cartDAO.getCartSummaries(0, 10)).isEmpty();
+        assertThat(cartDAO.getCartByID(1)).isNull();
+    }
+
+    @Test
+    void cartSummariesMatchLoadedCarts() {
+        Cart mixedCart = new Cart();
+        mixedCart.addBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, Tomato.INSTANCE));
+        mixedCart.addBurger(new Burger(PattyType.VEGGIE, null, Salad.INSTANCE, null));
+        mixedCart.addBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, Salad.INSTANCE, null));
+        cartDAO.update(mixedCart);
+        mixedCart.checkout();
+        cartDAO.update(mixedCart);
+
+        Cart emptyCart = new Cart();
+        cartDAO.update(emptyCart);
+
+        assertThat(cartDAO.getCartSummaries(0, 10)).satisfiesExactly(
+                summary -> {
+                    assertThat(summary.getId()).isEqualTo(mixedCart.getId());
+                    assertThat(summary.getBurgerCount()).isEqualTo(3);
+                    assertThat(summary.getTotalInCents()).isEqualTo(mixedCart.getTotalInCents());
+                    assertThat(summary.isCheckedOut()).isTrue();
+                },
+                summary -> {
+                    assertThat(summary.getId()).isEqualTo(emptyCart.getId());
+                    assertThat(summary.getBurgerCount()).isZero();
+                    assertThat(summary.getTotalInCents()).isZero();
+                    assertThat(summary.isCheckedOut()).isFalse();
+                });
+        assertThat(cartDAO.getCartSummaries(mixedCart.getId(), 10)).extracting(CartSummary::getId).containsExactly(emptyCart.getId());
+    }
+
+    @Test
+    void everyUpdateIncrementsTheVersion() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, null, null, null));
+        cartDAO.update(cart);
+        assertThat(cart.getVersion()).isEqualTo(1);
+
+        cart.checkout();
+        cartDAO.update(cart);
+        assertThat(cart.getVersion()).isEqualTo(2);
+        assertThat(cartDAO.getCartByID(cart.getId()).getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void writesToAStaleCartAreRejected() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, null, null, null));
+        cartDAO.update(cart);
+
+        Cart staleCart = cartDAO.getCartByID(cart.getId());
+        Cart staleCheckout = cartDAO.getCartByID(cart.getId());
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, null, null, null), cart)).isTrue();
+
+        Burger burger = new Burger(PattyType.MEAT, Cheese.INSTANCE, null, null);
+        assertThatThrownBy(() -> burgerDAO.persistBurger(burger, staleCart)).isInstanceOf(CartVersionConflictException.class);
+        assertThat(burger.getId()).isNull();
+
+        // the burger added in between is not removed
+        staleCart.removeBurgerByIndex(0);
+        assertThatThrownBy(() -> cartDAO.update(staleCart)).isInstanceOf(CartVersionConflictException.class);
+        assertThat(staleCart.getVersion()).isEqualTo(1);
+
+        staleCheckout.checkout();
+        assertThatThrownBy(() -> cartDAO.update(staleCheckout)).isInstanceOf(CartVersionConflictException.class);
+
+        Cart storedCart = cartDAO.getCartByID(cart.getId());
+        assertThat(storedCart.getVersion()).isEqualTo(2);
+        assertThat(storedCart.isCheckedOut()).isFalse();
+        assertThat(storedCart.getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT, PattyType.VEGGIE);
+    }
+
+    @Test
+    void activeCartIsLoadedOnceAndFollowsWrites() {
+        database.execute("insert into cart (id, active, version) values (1, false, 2), (2, true, 1), (3, true, 1);"
+                + "insert into burger (patty_type, cheese, salad, tomato, cart_id) values"
+                + " (0, true, false, true, 1), (1, false, true, false, 2);"
+                + "alter table cart alter column id restart with 4;");
+
+        // the latest active cart has no burgers
+        Cart activeCart = cartDAO.getActiveCart();
+        assertThat(activeCart.getId()).isEqualTo(3);
+        assertThat(activeCart.getBurgers()).isEmpty();
+
+        database.resetStatementCount();
+
+        Cart sameCart = cartDAO.getActiveCart();
+        assertThat(sameCart.getId()).isEqualTo(3);
+        assertThat(database.getStatementCount()).isZero();
+
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, null, Salad.INSTANCE, null), sameCart)).isTrue();
+        assertThat(cartDAO.getActiveCart().getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.MEAT);
+
+        cartDAO.deleteCart(cartDAO.getActiveCart());
+        assertThat(cartDAO.getActiveCart().getBurgers()).extracting(Burger::getPattyType).containsExactly(PattyType.VEGGIE);
+
+        Cart checkedOutCart = cartDAO.getCartByID(2);
+        checkedOutCart.checkout();
+        cartDAO.update(checkedOutCart);
+        assertThat(cartDAO.getActiveCart()).isNull();
+
+        Cart newCart = new Cart();
+        cartDAO.update(newCart);
+        assertThat(cartDAO.getActiveCart().getId()).isEqualTo(newCart.getId());
+    }
+}
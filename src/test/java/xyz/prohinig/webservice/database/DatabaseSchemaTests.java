@@ -0,0 +1,54 @@
+package xyz.prohinig.webservice.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseSchemaTests {
+
+    private TestDatabase database;
+    private DatabaseSchema databaseSchema;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        databaseSchema = new DatabaseSchema(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void verifyIndexesAcceptsCompleteSchema() {
+        assertThatCode(databaseSchema::verifyIndexes).doesNotThrowAnyException();
+    }
+
+    @Test
+    void verifyIndexesNamesMissingIndex() {
+        // H2 backs the foreign key of burger with burger_cart_id_idx, it cannot be dropped
+        database.execute("drop index cart_checked_out_at_idx;");
+
+        assertThatThrownBy(databaseSchema::verifyIndexes)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cart.cart_checked_out_at_idx");
+    }
+
+    @Test
+    void migrationReplacesGeneratedForeignKeyOfBurger() {
+        // H2 names the foreign key of the first migration CONSTRAINT_ followed by a hash, not burger_cart_id_fkey
+        assertThat(database.queryForStrings("select constraint_name from information_schema.table_constraints"
+                + " where table_name = 'burger' and constraint_type = 'FOREIGN KEY';"))
+                .containsExactly("burger_cart_id_fkey");
+
+        database.execute("insert into cart (id) values (1);");
+        database.execute("insert into burger (patty_type, cheese, salad, tomato, cart_id) values (0, true, false, false, 1);");
+        database.execute("delete from cart where id = 1;");
+        assertThat(database.queryForStrings("select id from burger;")).isEmpty();
+    }
+}
@@ -0,0 +1,136 @@
+package xyz.prohinig.webservice.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryStoreTests {
+
+    private final CartCache cartCache = new CartCache(0, Duration.ZERO);
+
+    @Test
+    void cartsAreWrittenAndReadLikeInTheDatabase() {
+        InMemoryStore store = new InMemoryStore(null, Duration.ZERO);
+        InMemoryCartDAO cartDAO = new InMemoryCartDAO(store, new StatementRegistry(), cartCache);
+        InMemoryBurgerDAO burgerDAO = new InMemoryBurgerDAO(store, new StatementRegistry(), cartCache);
+
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, Cheese.INSTANCE, null, Tomato.INSTANCE));
+        cart.addBurger(new Burger(PattyType.VEGGIE, null, Salad.INSTANCE, null));
+        assertThat(cartDAO.update(cart)).isTrue();
+        assertThat(cart.getId()).isEqualTo(1);
+        assertThat(cart.getVersion()).isEqualTo(1);
+        assertThat(cart.getBurgers()).extracting(Burger::getId).containsExactly(1, 2);
+
+        cart.removeBurgerByIndex(0);
+        assertThat(cartDAO.update(cart)).isTrue();
+        assertThat(burgerDAO.persistBurger(new Burger(PattyType.MEAT, Burger.SALAD), cart)).isTrue();
+
+        Cart storedCart = cartDAO.getCartByID(cart.getId());
+        assertThat(storedCart.getVersion()).isEqualTo(3);
+        assertThat(cartDAO.getCachedVersion(cart.getId())).isEqualTo(3);
+        assertThat(storedCart.getBurgers()).extracting(Burger::getId).containsExactly(2, 3);
+        assertThat(storedCart.getBurgers().get(1).getIngredients()).isEqualTo(Burger.SALAD);
+        assertThat(cartDAO.getActiveCart().getId()).isEqualTo(cart.getId());
+
+        List<CartSummary> cartSummaries = cartDAO.getCartSummaries(0, 10);
+        assertThat(cartSummaries).extracting(CartSummary::getBurgerCount).containsExactly(2);
+        assertThat(cartSummaries.get(0).getTotalInCents()).isEqualTo(storedCart.getTotalInCents());
+
+        storedCart.checkout();
+        assertThat(cartDAO.update(storedCart)).isTrue();
+        assertThat(cartDAO.getActiveCart()).isNull();
+        assertThat(cartDAO.deleteCart(storedCart)).isTrue();
+        assertThat(cartDAO.getCartByID(cart.getId())).isNull();
+        assertThatThrownBy(() -> burgerDAO.persistBurger(new Burger(PattyType.MEAT, 0), cart))
+                .isInstanceOf(CartVersionConflictException.class);
+    }
+
+    @Test
+    void concurrentAdditionsToOneCartAreNotLost() throws Exception {
+        InMemoryStore store = new InMemoryStore(null, Duration.ZERO);
+        InMemoryCartDAO cartDAO = new InMemoryCartDAO(store, new StatementRegistry(), cartCache);
+        InMemoryBurgerDAO burgerDAO = new InMemoryBurgerDAO(store, new StatementRegistry(), cartCache);
+        Cart cart = new Cart();
+        cartDAO.update(cart);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int added = 0;
+        try {
+            List<Future<Boolean>> additions = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                additions.add(executor.submit(() -> {
+                    // every addition reads the cart again and only applies to the version it read
+                    Cart readCart = cartDAO.getCartByID(cart.getId());
+                    try {
+                        return burgerDAO.persistBurger(new Burger(PattyType.VEGGIE, 0), readCart);
+                    } catch (CartVersionConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            for (Future<Boolean> addition : additions) {
+                if (addition.get()) {
+                    added++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Cart storedCart = cartDAO.getCartByID(cart.getId());
+        assertThat(added).isPositive();
+        assertThat(storedCart.getVersion()).isEqualTo(1 + added);
+        assertThat(cartDAO.getCartSummaries(0, 1).get(0).getBurgerCount()).isEqualTo(added);
+    }
+
+    @Test
+    void snapshotIsReadOnStart(@TempDir Path directory) throws IOException {
+        Path snapshotPath = directory.resolve("store.bin");
+        InMemoryStore store = new InMemoryStore(snapshotPath, Duration.ZERO);
+        store.start();
+        InMemoryCartDAO cartDAO = new InMemoryCartDAO(store, new StatementRegistry(), cartCache);
+
+        Cart checkedOutCart = new Cart();
+        checkedOutCart.addBurger(new Burger(PattyType.MEAT, Burger.CHEESE | Burger.TOMATO));
+        cartDAO.update(checkedOutCart);
+        checkedOutCart.checkout();
+        cartDAO.update(checkedOutCart);
+        Cart activeCart = new Cart();
+        cartDAO.update(activeCart);
+        store.close();
+
+        InMemoryStore restartedStore = new InMemoryStore(snapshotPath, Duration.ZERO);
+        restartedStore.start();
+        InMemoryCartDAO restartedCartDAO = new InMemoryCartDAO(restartedStore, new StatementRegistry(), cartCache);
+
+        Cart restoredCart = restartedCartDAO.getCartByID(checkedOutCart.getId());
+        assertThat(restoredCart.isCheckedOut()).isTrue();
+        assertThat(restoredCart.getVersion()).isEqualTo(2);
+        assertThat(restoredCart.getBurgers()).singleElement().satisfies(burger -> {
+            assertThat(burger.getId()).isEqualTo(1);
+            assertThat(burger.getIngredients()).isEqualTo(Burger.CHEESE | Burger.TOMATO);
+        });
+        assertThat(restartedCartDAO.getActiveCart().getId()).isEqualTo(activeCart.getId());
+
+        // ids continue after the restored ones
+        Cart newCart = new Cart();
+        newCart.addBurger(new Burger(PattyType.VEGGIE, 0));
+        restartedCartDAO.update(newCart);
+        assertThat(newCart.getId()).isEqualTo(3);
+        assertThat(newCart.getBurgers().get(0).getId()).isEqualTo(2);
+    }
+}
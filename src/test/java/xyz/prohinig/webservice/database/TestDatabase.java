@@ -0,0 +1,112 @@
+package xyz.prohinig.webservice.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database in PostgreSQL mode standing in for Postgres, migrated with the scripts of the service. Every
+ * statement executed through {@link #getConnection()} is counted.
+ */
+public class TestDatabase extends DatabaseConnection {
+
+    private final AtomicInteger executedStatements = new AtomicInteger();
+    private final String url;
+
+    private TestDatabase(HikariDataSource dataSource, String url) {
+        super(dataSource);
+        this.url = url;
+    }
+
+    public static TestDatabase create() {
+        String url = "mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:" + url);
+        config.setMaximumPoolSize(4);
+
+        TestDatabase testDatabase = new TestDatabase(new HikariDataSource(config), url);
+        new DatabaseSchema(testDatabase).migrate();
+        testDatabase.resetStatementCount();
+        return testDatabase;
+    }
+
+    @Override
+    public Connection getConnection() {
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        return countingStatement((Statement) result, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * R2DBC access to the same database.
+     */
+    public ReactiveDatabaseConnection createReactiveConnection() {
+        return new ReactiveDatabaseConnection(new H2ConnectionFactory(H2ConnectionConfiguration.builder().url(url).build()));
+    }
+
+    public void execute(String sql) {
+        try (Connection connection = super.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<String> queryForStrings(String sql) {
+        List<String> values = new ArrayList<>();
+        try (Connection connection = super.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return values;
+    }
+
+    public int getStatementCount() {
+        return executedStatements.get();
+    }
+
+    public void resetStatementCount() {
+        executedStatements.set(0);
+    }
+
+    private Object countingStatement(Statement statement, Class<?> statementType) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementType},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        executedStatements.incrementAndGet();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package xyz.prohinig.webservice.database;
+
+import xyz.prohinig.webservice.cache.ActiveCartRegistry;
+import xyz.prohinig.webservice.cache.CartCache;
+import xyz.prohinig.webservice.model.Burger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cart and burger storage of one of the storage engines, without caching. Carts are inserted the same way for every
+ * engine, the carts get ids from 1 and their burgers get ids from 1 in the order they are inserted.
+ */
+public abstract class TestStorage implements AutoCloseable {
+
+    protected final StatementRegistry statementRegistry = new StatementRegistry();
+    protected final CartCache cartCache = new CartCache(0, Duration.ZERO);
+
+    public static TestStorage database() {
+        return new Database();
+    }
+
+    public static TestStorage memory() {
+        return new Memory();
+    }
+
+    public abstract CartStorage getCartStorage();
+
+    public abstract BurgerStorage getBurgerStorage();
+
+    public abstract void insertCart(boolean checkedOut, Burger... burgers);
+
+    /**
+     * @return the statements executed against the database since the last insert, empty if there is no database
+     */
+    public abstract OptionalInt getStatementCount();
+
+    @Override
+    public abstract void close();
+
+    private static final class Database extends TestStorage {
+
+        private final TestDatabase database = TestDatabase.create();
+        private final ActiveCartRegistry activeCartRegistry = new ActiveCartRegistry();
+        private final CartDAO cartDAO = new CartDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        private final BurgerDAO burgerDAO = new BurgerDAO(database, statementRegistry, cartCache, activeCartRegistry);
+        private int lastCartId;
+
+        @Override
+        public CartStorage getCartStorage() {
+            return cartDAO;
+        }
+
+        @Override
+        public BurgerStorage getBurgerStorage() {
+            return burgerDAO;
+        }
+
+        @Override
+        public void insertCart(boolean checkedOut, Burger... burgers) {
+            int cartId = ++lastCartId;
+            database.execute("insert into cart (id, active) values (" + cartId + ", " + !checkedOut + ");");
+            if (burgers.length > 0) {
+                database.execute("insert into burger (patty_type, cheese, salad, tomato, cart_id) values "
+                        + Stream.of(burgers)
+                        .map(burger -> "(" + burger.getPattyType().getCode() + ", " + burger.hasIngredient(Burger.CHEESE)
+                                + ", " + burger.hasIngredient(Burger.SALAD) + ", " + burger.hasIngredient(Burger.TOMATO)
+                                + ", " + cartId + ")")
+                        .collect(Collectors.joining(", ")) + ";");
+            }
+            database.resetStatementCount();
+        }
+
+        @Override
+        public OptionalInt getStatementCount() {
+            return OptionalInt.of(database.getStatementCount());
+        }
+
+        @Override
+        public void close() {
+            database.close();
+        }
+    }
+
+    private static final class Memory extends TestStorage {
+
+        private final InMemoryStore store = new InMemoryStore(null, Duration.ZERO);
+        private final InMemoryCartDAO cartDAO = new InMemoryCartDAO(store, statementRegistry, cartCache);
+        private final InMemoryBurgerDAO burgerDAO = new InMemoryBurgerDAO(store, statementRegistry, cartCache);
+
+        @Override
+        public CartStorage getCartStorage() {
+            return cartDAO;
+        }
+
+        @Override
+        public BurgerStorage getBurgerStorage() {
+            return burgerDAO;
+        }
+
+        @Override
+        public void insertCart(boolean checkedOut, Burger... burgers) {
+            store.insert(checkedOut, List.of(burgers));
+        }
+
+        @Override
+        public OptionalInt getStatementCount() {
+            return OptionalInt.empty();
+        }
+
+        @Override
+        public void close() {
+            try {
+                store.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
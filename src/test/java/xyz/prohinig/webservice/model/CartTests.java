@@ -0,0 +1,62 @@
+package xyz.prohinig.webservice.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartTests {
+
+    @AfterEach
+    void restorePrices() {
+        PriceTable.install(PriceTable.DEFAULT);
+    }
+
+    @Test
+    void totalFollowsAddedAndRemovedBurgers() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, Burger.CHEESE | Burger.TOMATO));
+        cart.addBurger(new Burger(PattyType.VEGGIE, Burger.SALAD));
+        cart.addBurger(new Burger(PattyType.MEAT, 0));
+
+        assertThat(cart.getTotalInCents()).isEqualTo(700 + 650 + 500);
+
+        cart.removeBurgerByIndex(1);
+        assertThat(cart.getTotalInCents()).isEqualTo(700 + 500);
+        assertThat(cart.getTotal()).isEqualTo(12.0);
+    }
+
+    @Test
+    void totalIsExact() {
+        Map<PattyType, Long> pattyPrices = new EnumMap<>(PattyType.class);
+        pattyPrices.put(PattyType.MEAT, 10L);
+        pattyPrices.put(PattyType.VEGGIE, 20L);
+        PriceTable.install(new PriceTable(0, pattyPrices, 0, 0, 0));
+
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, 0));
+        cart.addBurger(new Burger(PattyType.VEGGIE, 0));
+
+        // 0.1 + 0.2 is 0.30000000000000004 in double arithmetic
+        assertThat(cart.getTotalInCents()).isEqualTo(30);
+        assertThat(cart.getTotal()).isEqualTo(0.3);
+    }
+
+    @Test
+    void totalIsRecomputedWhenPricesChange() {
+        Cart cart = new Cart();
+        cart.addBurger(new Burger(PattyType.MEAT, 0));
+        assertThat(cart.getTotalInCents()).isEqualTo(500);
+
+        Map<PattyType, Long> pattyPrices = new EnumMap<>(PattyType.class);
+        pattyPrices.put(PattyType.MEAT, 250L);
+        pattyPrices.put(PattyType.VEGGIE, 250L);
+        PriceTable.install(new PriceTable(300, pattyPrices, 150, 100, 50));
+
+        assertThat(cart.getTotalInCents()).isEqualTo(550);
+        assertThat(cart.copy().getTotalInCents()).isEqualTo(550);
+    }
+}